@@ -0,0 +1,75 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.FileDownloaderLauncher;
+import com.abhishekjain.filedownloader.engine.DownloadEngines;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Shared fixtures of the benchmarks: the downloader context, test files and a local HTTP server.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Starts the downloader the same way {@link FileDownloaderLauncher#main(String[])} does, without any source to
+     * download. Properties (key=value) override the ones of application.properties.
+     */
+    static synchronized ConfigurableApplicationContext startDownloader(String... properties) {
+
+        DownloadEngines.install();
+
+        return new SpringApplicationBuilder(FileDownloaderLauncher.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(Stream.concat(Stream.of("logging.level.root=WARN"), Arrays.stream(properties))
+                           .map(property -> "--" + property)
+                           .toArray(String[]::new));
+    }
+
+    static Path randomFile(Path directory, int size) throws IOException {
+
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return Files.write(directory.resolve("source-" + size + ".bin"), content);
+    }
+
+    /**
+     * Starts a server on localhost answering every path with the content of #file.
+     */
+    static HttpServer serve(Path file) throws IOException {
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        server.createContext("/", exchange -> {
+            try (OutputStream body = exchange.getResponseBody()) {
+                exchange.sendResponseHeaders(200, Files.size(file));
+                Files.copy(file, body);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    static String url(HttpServer server, String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
@@ -0,0 +1,62 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link FileDownloaderUtils#uniqueFileSaveLocation(URL, String)}, computed for every source downloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileNameBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private FileDownloaderUtils fileDownloaderUtils;
+    private URL shortUrl;
+    private URL longUrl;
+
+    @Setup(Level.Trial)
+    public void setup() throws MalformedURLException {
+
+        context = BenchmarkSupport.startDownloader();
+        fileDownloaderUtils = context.getBean(FileDownloaderUtils.class);
+        shortUrl = new URL("http://www.africau.edu/images/default/sample.pdf");
+        longUrl = new URL("https://raw.githubusercontent.com:443/neovim/neovim/master/runtime/doc/a/b/c/d/e/f/g/h/"
+                                  + "filetype.txt?token=0123456789abcdef0123456789abcdef");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String uniqueFileSaveLocationShortUrl() {
+        return fileDownloaderUtils.uniqueFileSaveLocation(shortUrl, "download");
+    }
+
+    @Benchmark
+    public String uniqueFileSaveLocationLongUrl() {
+        return fileDownloaderUtils.uniqueFileSaveLocation(longUrl, "download");
+    }
+}
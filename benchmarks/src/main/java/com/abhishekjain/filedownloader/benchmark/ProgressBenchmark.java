@@ -0,0 +1,101 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.progress.ProgressRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the progress and metrics accounting on the transfer path, with many threads reading at once:
+ * <ul>
+ * <li><b>rawChannel</b> : reads of 16KB from a channel producing them without any copy</li>
+ * <li><b>meteredChannel</b> : the same reads through the {@link DownloadMetrics.Recording} of a download, that counts
+ * them towards the metrics and the progress registered in {@link ProgressRegistry}</li>
+ * </ul>
+ * Every thread runs its own download, as with thousands of concurrent downloads, all of them against the same host
+ * so that they share its counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProgressBenchmark {
+
+    private static final int READ_SIZE = 16 * 1024;
+
+    private final DownloadMetrics downloadMetrics = new DownloadMetrics();
+    private final ProgressRegistry progressRegistry = new ProgressRegistry();
+
+    @State(Scope.Thread)
+    public static class Download {
+
+        private ByteBuffer buffer;
+        private ReadableByteChannel raw;
+        private ReadableByteChannel metered;
+
+        @Setup(Level.Trial)
+        public void setup(ProgressBenchmark benchmark) {
+
+            buffer = ByteBuffer.allocate(READ_SIZE);
+            raw = new EndlessChannel();
+            final String source = "http://localhost/" + Thread.currentThread().getName();
+            metered = benchmark.downloadMetrics.start(benchmark.progressRegistry.start(source))
+                                               .meter(new EndlessChannel());
+        }
+    }
+
+    @Benchmark
+    public int rawChannel(Download download) throws IOException {
+
+        download.buffer.clear();
+        return download.raw.read(download.buffer);
+    }
+
+    @Benchmark
+    public int meteredChannel(Download download) throws IOException {
+
+        download.buffer.clear();
+        return download.metered.read(download.buffer);
+    }
+
+    /**
+     * Channel filling every read by moving the position of the buffer, so that only the accounting is measured.
+     */
+    private static class EndlessChannel implements ReadableByteChannel {
+
+        @Override
+        public int read(ByteBuffer dst) {
+
+            final int read = dst.remaining();
+            dst.position(dst.limit());
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
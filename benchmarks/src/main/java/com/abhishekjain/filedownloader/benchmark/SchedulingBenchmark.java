@@ -0,0 +1,85 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.manager.DownloadManager;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.service.ParallelFileDownloadServiceImpl;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link ParallelFileDownloadServiceImpl} scheduling a batch: validation, journaling and executor
+ * hand-off, with a {@link DownloadManager} that returns immediately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SchedulingBenchmark {
+
+    @Param({"100", "1000"})
+    private int sources;
+
+    @Param({"4", "16"})
+    private int poolThreads;
+
+    @Param({"pool", "virtual"})
+    private String executionMode;
+
+    private Path workDirectory;
+    private ConfigurableApplicationContext context;
+    private ParallelFileDownloadServiceImpl downloadService;
+    private final List<String> batch = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        workDirectory = Files.createTempDirectory("scheduling-benchmark");
+        context = BenchmarkSupport.startDownloader("download.pool.threads=" + poolThreads,
+                                                   "download.execution.mode=" + executionMode);
+        downloadService = context.getBean(ParallelFileDownloadServiceImpl.class);
+
+        final DownloadManager noopDownloadManager = (source, outputDirectory) ->
+                new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED);
+        FieldUtils.writeField(downloadService, "downloadManager", noopDownloadManager, true);
+
+        for (int i = 0; i < sources; i++) {
+            batch.add("http://host-" + (i % 10) + ".example.com/files/file-" + i + ".bin");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        context.close();
+        FileUtils.deleteQuietly(workDirectory.toFile());
+    }
+
+    @Benchmark
+    public List<FileDownloadResult> downloadFilesFromSources() {
+
+        return downloadService.downloadFilesFromSources(batch, workDirectory.toString()).getCompletion().join();
+    }
+}
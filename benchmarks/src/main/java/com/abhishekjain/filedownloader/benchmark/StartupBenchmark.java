@@ -0,0 +1,144 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.FileDownloaderLauncher;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time to first byte of a download from the launch of the process: a new JVM runs
+ * {@link FileDownloaderLauncher#main(String[])} for one source of a local HTTP server, until the server gets its
+ * request. Compares the Spring Boot application with the fast start (<b>--fast</b>), optionally with the AppCDS
+ * archive of update-jar.sh (-p sharedArchive=..).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class StartupBenchmark {
+
+    private static final long FIRST_BYTE_TIMEOUT_SECONDS = 120;
+
+    @Param({"boot", "fast"})
+    private String launcher;
+
+    @Param({""})
+    private String sharedArchive;
+
+    private Path workDirectory;
+    private Path downloadDirectory;
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile CountDownLatch firstByte;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        workDirectory = Files.createTempDirectory("startup-benchmark");
+        downloadDirectory = workDirectory.resolve("download");
+        final Path source = BenchmarkSupport.randomFile(workDirectory, 1024 * 1024);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.createContext("/", exchange -> {
+            firstByte.countDown();
+            try (OutputStream body = exchange.getResponseBody()) {
+                exchange.sendResponseHeaders(200, Files.size(source));
+                Files.copy(source, body);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        firstByte = new CountDownLatch(1);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws InterruptedException {
+
+        if (!process.waitFor(FIRST_BYTE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        FileUtils.deleteQuietly(downloadDirectory.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        server.stop(0);
+        executor.shutdownNow();
+        FileUtils.deleteQuietly(workDirectory.toFile());
+    }
+
+    @Benchmark
+    public void timeToFirstByte() throws IOException, InterruptedException {
+
+        process = new ProcessBuilder(command())
+                .directory(workDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(workDirectory.resolve("launcher.log").toFile()))
+                .start();
+
+        if (!firstByte.await(FIRST_BYTE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("No request from the launcher, see " + workDirectory + "/launcher.log");
+        }
+    }
+
+    private List<String> command() {
+
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (StringUtils.isNotBlank(sharedArchive)) {
+            command.add("-XX:SharedArchiveFile=" + Paths.get(sharedArchive).toAbsolutePath());
+            command.add("-Xshare:auto");
+        }
+        // The process runs in the work directory, where its logs go
+        command.add("-cp");
+        command.add(Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                          .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+                          .collect(Collectors.joining(File.pathSeparator)));
+        command.add(FileDownloaderLauncher.class.getName());
+        if ("fast".equals(launcher)) {
+            command.add("--fast");
+        }
+        command.add("--urls=" + BenchmarkSupport.url(server, "/source.bin"));
+        command.add("--directory=" + downloadDirectory);
+        command.add("--logging.level.root=WARN");
+        return command;
+    }
+}
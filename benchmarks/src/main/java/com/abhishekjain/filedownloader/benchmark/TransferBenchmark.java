@@ -0,0 +1,161 @@
+package com.abhishekjain.filedownloader.benchmark;
+
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.custom.Rot13Server;
+import com.abhishekjain.filedownloader.manager.DownloadManager;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of downloading one file, through the bare {@code transferFrom(Channels.newChannel(..))} copy, the
+ * {@link ChunkedTransfer} copy and the full {@link DownloadManager} path, for file: and http: sources of several
+ * sizes and concurrency levels. rot13: sources are served by the {@link Rot13Server} reference server.
+ * Each operation downloads #concurrency files of #fileSize bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferBenchmark {
+
+    @Param({"65536", "1048576", "33554432"})
+    private int fileSize;
+
+    @Param({"file", "http", "rot13"})
+    private String protocol;
+
+    @Param({"1", "8"})
+    private int concurrency;
+
+    private Path workDirectory;
+    private HttpServer server;
+    private Rot13Server rot13Server;
+    private ConfigurableApplicationContext context;
+    private DownloadManager downloadManager;
+    private ChunkedTransfer chunkedTransfer;
+    private ExecutorService executor;
+    private final List<String> sources = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+
+        workDirectory = Files.createTempDirectory("transfer-benchmark");
+        final Path sourceFile = BenchmarkSupport.randomFile(workDirectory, fileSize);
+
+        server = BenchmarkSupport.serve(sourceFile);
+        rot13Server = new Rot13Server(workDirectory);
+        for (int i = 0; i < concurrency; i++) {
+            if ("http".equals(protocol)) {
+                sources.add(BenchmarkSupport.url(server, "/file-" + i + ".bin"));
+            } else {
+                final Path copy = Files.copy(sourceFile, workDirectory.resolve("file-" + i + ".bin"));
+                sources.add("rot13".equals(protocol) ? rot13Server.url("/" + copy.getFileName())
+                                    : copy.toUri().toString());
+            }
+        }
+
+        context = BenchmarkSupport.startDownloader();
+        downloadManager = context.getBean("RetryableDownloadManager", DownloadManager.class);
+        chunkedTransfer = context.getBean(ChunkedTransfer.class);
+        executor = Executors.newFixedThreadPool(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+
+        executor.shutdownNow();
+        context.close();
+        server.stop(0);
+        rot13Server.close();
+        FileUtils.deleteQuietly(workDirectory.toFile());
+    }
+
+    @Benchmark
+    public void transferFromNewChannel() {
+
+        runConcurrently(source -> {
+            final Path target = workDirectory.resolve("raw-" + source.hashCode());
+            try (ReadableByteChannel in = Channels.newChannel(new URL(source).openStream());
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.transferFrom(in, 0, Long.MAX_VALUE);
+            }
+        });
+    }
+
+    @Benchmark
+    public void chunkedTransfer() {
+
+        runConcurrently(source -> {
+            final Path target = workDirectory.resolve("chunked-" + source.hashCode());
+            try (ReadableByteChannel in = Channels.newChannel(new URL(source).openStream());
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                chunkedTransfer.transfer(in, out, 0, Long.MAX_VALUE);
+            }
+        });
+    }
+
+    @Benchmark
+    public void downloadFromSource() {
+
+        final String outputDirectory = workDirectory.resolve("download").toString();
+        runConcurrently(source -> {
+            final FileDownloadResult result = downloadManager.downloadFromSource(source, outputDirectory);
+            if (!DownloadStatus.COMPLETED.equals(result.getDownloadStatusStatus())) {
+                throw new IOException(result.getMessage());
+            }
+        });
+    }
+
+    private void runConcurrently(Download download) {
+
+        CompletableFuture.allOf(sources.stream()
+                                       .map(source -> CompletableFuture.runAsync(() -> {
+                                           try {
+                                               download.run(source);
+                                           } catch (IOException e) {
+                                               throw new IllegalStateException(e);
+                                           }
+                                       }, executor))
+                                       .toArray(CompletableFuture[]::new))
+                         .join();
+    }
+
+    private interface Download {
+        void run(String source) throws IOException;
+    }
+}
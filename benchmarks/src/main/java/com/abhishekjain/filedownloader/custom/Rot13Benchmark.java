@@ -0,0 +1,112 @@
+package com.abhishekjain.filedownloader.custom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the rot13 custom protocol decoding over the {@link rot13CryptInputStream} handed out by
+ * {@link CryptURLConnection}:
+ * <ul>
+ * <li><b>rot13CryptInputStreamChannel</b> : {@code Channels.newChannel} over the stream, using its bulk reads</li>
+ * <li><b>rot13Channel</b> : the channel of {@link CryptChannels} that {@code downloadAndSave} uses</li>
+ * <li><b>rawChannel</b> : {@code Channels.newChannel} over the undecoded content, the speed to get close to</li>
+ * </ul>
+ * The socket is replaced by an in-memory stream so that only the transform is measured.
+ * <p>
+ * Lives in the custom package as the crypt streams are package private.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Rot13Benchmark {
+
+    @Param({"65536", "1048576"})
+    private int size;
+
+    private byte[] content;
+    private ByteBuffer buffer;
+    private ByteBuffer directBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789 \n";
+        final Random random = new Random(size);
+        content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        buffer = ByteBuffer.allocate(8192);
+        directBuffer = ByteBuffer.allocateDirect(8192);
+    }
+
+    @Benchmark
+    public long rot13CryptInputStreamChannel() throws IOException {
+
+        final CryptInputStream cryptInputStream = new rot13CryptInputStream();
+        cryptInputStream.set(new ByteArrayInputStream(content), null);
+
+        return drain(Channels.newChannel(cryptInputStream), buffer);
+    }
+
+    @Benchmark
+    public long rot13Channel() throws IOException {
+
+        final CryptInputStream cryptInputStream = new rot13CryptInputStream();
+        cryptInputStream.set(new ByteArrayInputStream(content), null);
+
+        return drain(CryptChannels.newChannel(cryptInputStream), buffer);
+    }
+
+    @Benchmark
+    public long rot13ChannelDirectBuffer() throws IOException {
+
+        final CryptInputStream cryptInputStream = new rot13CryptInputStream();
+        cryptInputStream.set(new ByteArrayInputStream(content), null);
+
+        return drain(CryptChannels.newChannel(cryptInputStream), directBuffer);
+    }
+
+    @Benchmark
+    public long rawChannel() throws IOException {
+        return drain(Channels.newChannel(new ByteArrayInputStream(content)), buffer);
+    }
+
+    private static long drain(ReadableByteChannel readableByteChannel, ByteBuffer buffer) throws IOException {
+
+        long checksum = 0;
+        try (ReadableByteChannel channel = readableByteChannel) {
+            while (true) {
+                buffer.clear();
+                final int read = channel.read(buffer);
+                if (read == -1) {
+                    break;
+                }
+                checksum += buffer.get(0);
+            }
+        }
+        return checksum;
+    }
+}
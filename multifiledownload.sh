@@ -1,2 +1,8 @@
 #!/bin/bash
-java -jar bin/multi-filedownloader.jar "$1" "$2"
+# Fast start of the downloads, with the AppCDS archive of update-jar.sh when there is one
+if [ -f bin/multi-filedownloader-fast.jar ]; then
+    [ -f bin/multi-filedownloader.jsa ] && CDS="-XX:SharedArchiveFile=bin/multi-filedownloader.jsa -Xshare:auto"
+    java $CDS -jar bin/multi-filedownloader-fast.jar --fast "$1" "$2"
+else
+    java -jar bin/multi-filedownloader.jar "$1" "$2"
+fi
@@ -0,0 +1,136 @@
+package com.abhishekjain.filedownloader;
+
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.checksum.ChecksumVerifier;
+import com.abhishekjain.filedownloader.configuration.FileDownloaderConfig;
+import com.abhishekjain.filedownloader.configuration.retry.RetryTemplates;
+import com.abhishekjain.filedownloader.daemon.DaemonServer;
+import com.abhishekjain.filedownloader.daemon.DownloadJobRegistry;
+import com.abhishekjain.filedownloader.execution.AdaptiveConcurrencyController;
+import com.abhishekjain.filedownloader.http.PooledHttpClient;
+import com.abhishekjain.filedownloader.journal.DownloadJournalRegistry;
+import com.abhishekjain.filedownloader.manager.ConditionalDownloader;
+import com.abhishekjain.filedownloader.manager.PartialDownloadResumer;
+import com.abhishekjain.filedownloader.manager.RetryableDownloadManagerImpl;
+import com.abhishekjain.filedownloader.manager.SegmentedDownloader;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataRegistry;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.metrics.MetricsReporter;
+import com.abhishekjain.filedownloader.progress.ProgressRegistry;
+import com.abhishekjain.filedownloader.progress.ProgressReporter;
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
+import com.abhishekjain.filedownloader.service.ParallelFileDownloadServiceImpl;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
+import com.abhishekjain.filedownloader.transform.Base64Stage;
+import com.abhishekjain.filedownloader.transform.DeflateStage;
+import com.abhishekjain.filedownloader.transform.GzipStage;
+import com.abhishekjain.filedownloader.transform.Rot13Stage;
+import com.abhishekjain.filedownloader.transform.TransformPipeline;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.IOException;
+
+/**
+ * Context of the fast start of the launcher (<b>--fast</b>): the downloader components are registered one by one,
+ * without the classpath scanning, auto configuration and AspectJ proxies of the Spring Boot application.
+ * <p>
+ * The properties are the command line options over application.properties, and the logging is the one of
+ * logback-spring.xml at the <i>logging.level.root</i> level, as for the Spring Boot application. None of the
+ * components relies on a proxy: the retries go through the {@link RetryTemplate} and the {@link RetryScheduler}.
+ * </p>
+ * The {@link ManagedResource} components, such as the {@link DownloadMetrics}, are exported to the platform MBean
+ * server unless <i>spring.jmx.enabled</i> is false, as the JMX auto configuration of Spring Boot does.
+ */
+final class FastStartContext {
+
+    static final String OPTION = "--fast";
+
+    private static final String PROPERTIES = "classpath:application.properties";
+    private static final String ROOT_LOG_LEVEL = "logging.level.root";
+    private static final String JMX_ENABLED = "spring.jmx.enabled";
+
+    /**
+     * Every component of the downloader, a new one having to be added here as well
+     */
+    private static final Class<?>[] COMPONENTS = {
+            FileDownloaderConfig.class,
+            FileDownloaderUtils.class,
+            SourceMetadataRegistry.class,
+            DownloadJournalRegistry.class,
+            RetryScheduler.class,
+            DownloadMetrics.class,
+            MetricsReporter.class,
+            ProgressRegistry.class,
+            ProgressReporter.class,
+            ChecksumVerifier.class,
+            PooledHttpClient.class,
+            BandwidthThrottle.class,
+            ChunkedTransfer.class,
+            Base64Stage.class,
+            DeflateStage.class,
+            GzipStage.class,
+            Rot13Stage.class,
+            TransformPipeline.class,
+            PartialDownloadResumer.class,
+            SegmentedDownloader.class,
+            ConditionalDownloader.class,
+            RetryableDownloadManagerImpl.class,
+            AdaptiveConcurrencyController.class,
+            ParallelFileDownloadServiceImpl.class,
+            DownloadJobRegistry.class,
+            DaemonServer.class
+    };
+
+    private FastStartContext() {
+    }
+
+    /**
+     * @param args Application arguments, the options of which override application.properties
+     * @return The refreshed context, to be closed once the downloads are over
+     * @throws IOException If application.properties can not be read
+     */
+    static AnnotationConfigApplicationContext start(String[] args) throws IOException {
+
+        // Nothing gets logged until the logging is initialized from the properties
+        final LoggingSystem loggingSystem = LoggingSystem.get(FastStartContext.class.getClassLoader());
+        loggingSystem.beforeInitialize();
+
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        environment.getPropertySources().addLast(new ResourcePropertySource(PROPERTIES));
+        initializeLogging(loggingSystem, environment);
+
+        final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setEnvironment(environment);
+        context.register(COMPONENTS);
+        context.registerBean(PropertySourcesPlaceholderConfigurer.class);
+        context.registerBean("retryTemplate", RetryTemplate.class, () -> RetryTemplates.create(
+                context.getBean(DownloadMetrics.class), context.getBean(RetryScheduler.class),
+                environment.getRequiredProperty("download.retry.count", Integer.class)));
+        if (environment.getProperty(JMX_ENABLED, Boolean.class, true)) {
+            context.registerBean("mbeanExporter", AnnotationMBeanExporter.class);
+        }
+        context.registerShutdownHook();
+        context.refresh();
+        return context;
+    }
+
+    private static void initializeLogging(LoggingSystem loggingSystem, StandardEnvironment environment) {
+
+        loggingSystem.initialize(new LoggingInitializationContext(environment), null, null);
+        loggingSystem.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME,
+                                  LogLevel.valueOf(environment.getProperty(ROOT_LOG_LEVEL, LogLevel.INFO.name())
+                                                              .trim().toUpperCase()));
+    }
+}
@@ -1,7 +1,12 @@
 package com.abhishekjain.filedownloader;
 
 import com.abhishekjain.filedownloader.configuration.FileDownloaderConfig;
-import com.abhishekjain.filedownloader.custom.OurURLStreamHandlerFactory;
+import com.abhishekjain.filedownloader.daemon.DaemonServer;
+import com.abhishekjain.filedownloader.daemon.DownloadJobRegistry;
+import com.abhishekjain.filedownloader.engine.DownloadEngine;
+import com.abhishekjain.filedownloader.engine.DownloadEngines;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
 import com.abhishekjain.filedownloader.service.FileDownloadService;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -9,29 +14,46 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.util.CollectionUtils;
 
-import java.net.URL;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main Launcher class that contains the main method
  * and parses the arguments passed to the application.
+ * The application exits once the downloads are over, with a non zero exit code if any of them failed.
  */
 
 @EnableRetry
 @EnableAspectJAutoProxy
 @SpringBootApplication
-public class FileDownloaderLauncher implements ApplicationRunner {
+public class FileDownloaderLauncher implements ApplicationRunner, ExitCodeGenerator {
 
     private static final String WHITESPACE_REGEX = "\\s+";
+    private static final String STDIN = "-";
+    private static final String COMMENT = "#";
+    private static final String DAEMON = "daemon";
     private static final Logger log = LoggerFactory.getLogger(FileDownloaderLauncher.class);
 
     @Autowired
@@ -42,34 +64,76 @@ public class FileDownloaderLauncher implements ApplicationRunner {
     private
     FileDownloadService fileDownloadService;
 
+    @Autowired
+    private
+    DaemonServer daemonServer;
+
+    @Autowired
+    private
+    DownloadJobRegistry jobRegistry;
+
+    private int exitCode;
+
     /**
      * Main method that gets invoked when application is run.
      * <pre>
-     *   URL.setURLStreamHandlerFactory(new OurURLStreamHandlerFactory());
+     *   DownloadEngines.install();
      * </pre>
-     * This line is called to register the custom Protocol Handler to the application
+     * This line is called to register the custom Protocol Handlers of the {@link DownloadEngine}s to the
+     * application
+     * <p>
+     * With <b>--fast</b>, the downloads are run in the {@link FastStartContext} instead of the Spring Boot
+     * application, which takes longer to start than a few downloads take to complete.
+     * </p>
      *
-     * @param args Application arguments passed [--urls , --directory]
+     * @param args Application arguments passed [--urls | --urls-file, --directory, --fast, --daemon]
      */
     public static void main(String[] args) {
 
-        URL.setURLStreamHandlerFactory(new OurURLStreamHandlerFactory());
+        DownloadEngines.install();
 
-        new SpringApplicationBuilder(FileDownloaderLauncher.class)
+        if (Arrays.asList(args).contains(FastStartContext.OPTION)) {
+            System.exit(fastStart(args));
+        }
+
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(FileDownloaderLauncher.class)
                 .web(WebApplicationType.NONE)
                 .run(args);
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private static int fastStart(String[] args) {
+
+        try (AnnotationConfigApplicationContext context = FastStartContext.start(args)) {
+            final FileDownloaderLauncher launcher = context.getAutowireCapableBeanFactory()
+                                                           .createBean(FileDownloaderLauncher.class);
+            launcher.run(new DefaultApplicationArguments(args));
+            return launcher.getExitCode();
+        } catch (IOException | RuntimeException e) {
+            log.error("Fast start of the downloads failed", e);
+            return 1;
+        }
     }
 
     /**
      * The @{@link ApplicationRunner} interface method.
-     * The urls of the sources are parsed from --urls argument
+     * The urls of the sources are parsed from --urls argument, or streamed from the file passed as --urls-file
+     * argument (<b>-</b> for the standard input) with one or more urls per line, lines starting with <b>#</b> being
+     * ignored.
      * The save directory is parsed from --directory argument. If not passed then
      * #getDefaultDirectory() is used for saving the downloads.
+     * Waits for the downloads to be over, logging each result as it comes.
+     * <p>
+     * With --daemon, the application stays up instead, the downloads of the jobs submitted to the
+     * {@link DaemonServer} sharing its executor, connection pools and caches. The urls passed are its first job, and
+     * the directory passed the default directory of the jobs.
+     * </p>
      *
      * @param args
+     * @throws IOException If the urls file can not be read
      */
     @Override
-    public void run(ApplicationArguments args) {
+    public void run(ApplicationArguments args) throws IOException {
 
         final List<String> urls = urlSources(args.getOptionValues("urls"));
         final String outputDirectory = CollectionUtils.isEmpty(args.getOptionValues("directory")) ? "" : args
@@ -77,19 +141,92 @@ public class FileDownloaderLauncher implements ApplicationRunner {
                         ("directory")
                 .get(0);
 
+        final String saveDirectory = StringUtils.isBlank(outputDirectory) ? downloaderConfig.getDefaultDirectory()
+                : outputDirectory;
+
         log.info("Default directory to download files is set : {}", downloaderConfig.getDefaultDirectory());
         log.info("Overriding directory passed : {}", outputDirectory);
+
+        if (args.containsOption(DAEMON)) {
+            daemon(urls, saveDirectory);
+            return;
+        }
+
+        if (!CollectionUtils.isEmpty(args.getOptionValues("urls-file"))) {
+            final String urlsFile = args.getOptionValues("urls-file").get(0);
+            log.info("Sources(Urls) streamed from : {}", urlsFile);
+            streamSources(urlsFile, saveDirectory);
+            return;
+        }
+
         log.info("Sources(Urls) passed : {}", urls);
 
         if (!CollectionUtils.isEmpty(urls)) {
-            fileDownloadService.downloadFilesFromSources(urls, StringUtils.isBlank(outputDirectory) ? downloaderConfig
-                    .getDefaultDirectory() : outputDirectory);
+            final List<FileDownloadResult> results = fileDownloadService
+                    .downloadFilesFromSources(urls, saveDirectory)
+                    .onResult(FileDownloaderLauncher::logResult)
+                    .getCompletion()
+                    .join();
+
+            final long failed = results.stream()
+                                       .filter(result -> DownloadStatus.ERROR.equals(result.getDownloadStatusStatus()))
+                                       .count();
+            log.info("Download of all the sources is over, {} failed. Program would exit now", failed);
+            exitCode = failed > 0 ? 1 : 0;
 
         } else {
             log.info("No source has been provided to download. Program would exit now");
         }
     }
 
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private void daemon(final List<String> urls, final String saveDirectory) throws IOException {
+
+        downloaderConfig.setDefaultDirectory(saveDirectory);
+        daemonServer.start();
+        if (!urls.isEmpty()) {
+            jobRegistry.submit(urls, null);
+        }
+
+        try {
+            daemonServer.awaitShutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Download daemon stopped. Program would exit now");
+    }
+
+    private void streamSources(final String urlsFile, final String saveDirectory) throws IOException {
+
+        try (BufferedReader reader = STDIN.equals(urlsFile)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(urlsFile), StandardCharsets.UTF_8)) {
+
+            final Iterator<String> sources = reader.lines()
+                                                   .filter(line -> !StringUtils.startsWith(line.trim(), COMMENT))
+                                                   .flatMap(line -> Arrays.stream(line.split(WHITESPACE_REGEX)))
+                                                   .iterator();
+            final Map<DownloadStatus, Long> counts = fileDownloadService
+                    .streamFilesFromSources(sources, saveDirectory, FileDownloaderLauncher::logResult)
+                    .join();
+
+            log.info("Download of all the sources is over : {}. Program would exit now", counts);
+            exitCode = counts.get(DownloadStatus.ERROR) > 0 ? 1 : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void logResult(final FileDownloadResult result) {
+
+        log.info("Source: {} finished with status: {}, {} bytes in {} ms", result.getSource(),
+                 result.getDownloadStatusStatus(), result.getBytes(), result.getDurationMillis());
+    }
+
     private List<String> urlSources(final List<String> arg) {
         return CollectionUtils.isEmpty(arg) ? Collections.emptyList() : Arrays.asList(arg.get(0)
                                                                                          .split(WHITESPACE_REGEX));
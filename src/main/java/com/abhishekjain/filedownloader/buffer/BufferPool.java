@@ -0,0 +1,110 @@
+package com.abhishekjain.filedownloader.buffer;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of same sized {@link ByteBuffer}s, so that the buffers of the download path are reused across
+ * downloads instead of allocated for each of them.
+ * <p>
+ * A new buffer is allocated when the pool is empty. At most <i>maxPooled</i> released buffers are kept, the others
+ * are left to the garbage collector. Acquiring never blocks, unless the pool is given a <i>maxBuffers</i> cap on the
+ * buffers acquired at once, which bounds the memory of its buffers.
+ * </p>
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> pooled;
+    private final Semaphore available;
+    private final AtomicInteger acquired = new AtomicInteger();
+
+    /**
+     * @param bufferSize Capacity of the buffers
+     * @param maxPooled  Maximum number of idle buffers kept
+     * @param direct     true to pool direct buffers, heap buffers otherwise
+     */
+    public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+        this(bufferSize, maxPooled, direct, 0);
+    }
+
+    /**
+     * @param bufferSize Capacity of the buffers
+     * @param maxPooled  Maximum number of idle buffers kept
+     * @param direct     true to pool direct buffers, heap buffers otherwise
+     * @param maxBuffers Maximum number of buffers acquired at once, <b>0</b> for no maximum
+     */
+    public BufferPool(int bufferSize, int maxPooled, boolean direct, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.pooled = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+        this.available = maxBuffers > 0 ? new Semaphore(maxBuffers, true) : null;
+    }
+
+    /**
+     * Waits, with a <i>maxBuffers</i> cap, until one of the buffers acquired is released.
+     *
+     * @return A cleared buffer of {@link #bufferSize} bytes
+     * @throws InterruptedIOException If the thread is interrupted while waiting
+     */
+    public ByteBuffer acquire() throws InterruptedIOException {
+
+        if (available != null) {
+            try {
+                available.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a buffer");
+            }
+        }
+        acquired.incrementAndGet();
+        final ByteBuffer buffer = pooled.poll();
+        if (buffer == null) {
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool. It must not be used anymore by the caller.
+     *
+     * @param buffer Buffer acquired from this pool
+     */
+    public void release(ByteBuffer buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+        if (buffer.capacity() == bufferSize && buffer.isDirect() == direct) {
+            pooled.offer(buffer);
+        }
+        acquired.decrementAndGet();
+        if (available != null) {
+            available.release();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return Number of idle buffers in the pool
+     */
+    public int getPooledCount() {
+        return pooled.size();
+    }
+
+    /**
+     * @return Number of buffers acquired and not released yet
+     */
+    public int getAcquiredCount() {
+        return acquired.get();
+    }
+}
@@ -0,0 +1,145 @@
+package com.abhishekjain.filedownloader.buffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies the content of a source channel into a file, a chunk of {@link #bufferSize} bytes at a time.
+ * <p>
+ * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} only copies without buffering from another
+ * file channel: from any other channel, such as the ones of network streams, it copies through a small temporary
+ * heap buffer, allocated for every call and written to the file after every read. Here the source is read straight
+ * into a large direct buffer until it is full, and only then written to the file, in a single positional write
+ * that needs no further copy.
+ * </p>
+ * The buffers are drawn from a {@link BufferPool} shared by all the downloads, one for each chunk, and at most
+ * {@link #maxBuffers} of them are in use at once: a chunk waits for a buffer when all of them are, so that the buffers
+ * never take more than <i>bufferSize * maxBuffers</i> bytes of memory whatever the number of downloads.
+ * <p>
+ * A failure of the transfer is thrown as a {@link PartialTransferException}, with the number of bytes written to
+ * the file before it: those read from the source before it fails are written first.
+ * </p>
+ */
+@Component
+public class ChunkedTransfer {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedTransfer.class);
+
+    @Value("${download.transfer.buffer.size}")
+    private int bufferSize;
+
+    @Value("${download.transfer.buffer.max}")
+    private int maxBuffers;
+
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder chunkBytes = new LongAdder();
+
+    private BufferPool bufferPool;
+
+    @PostConstruct
+    public void init() {
+
+        bufferPool = new BufferPool(bufferSize, maxBuffers, true, maxBuffers);
+
+        log.info("Transferring downloads in chunks of {} bytes, with at most {} buffers", bufferSize, maxBuffers);
+    }
+
+    /**
+     * Transfers at most #count bytes of #source into #target from #position on.
+     *
+     * @param source   Channel of the content
+     * @param target   Channel of the file
+     * @param position Position of the file to write the content at
+     * @param count    Maximum number of bytes to transfer
+     * @return Number of bytes transferred, less than #count only if #source has no more to give
+     * @throws PartialTransferException If reading #source or writing #target fails
+     */
+    public long transfer(ReadableByteChannel source, FileChannel target, long position, long count)
+            throws IOException {
+
+        long transferred = 0;
+        try {
+            boolean drained = false;
+            while (!drained && transferred < count) {
+                final ByteBuffer buffer = bufferPool.acquire();
+                try {
+                    buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+                    try {
+                        drained = fill(source, buffer);
+                    } catch (IOException | RuntimeException e) {
+                        buffer.flip();
+                        try {
+                            transferred += write(buffer, target, position + transferred);
+                        } catch (IOException | RuntimeException writeFailure) {
+                            e.addSuppressed(writeFailure);
+                        }
+                        throw e;
+                    }
+                    buffer.flip();
+                    transferred += write(buffer, target, position + transferred);
+                } finally {
+                    bufferPool.release(buffer);
+                }
+            }
+            return transferred;
+        } catch (IOException | RuntimeException e) {
+            throw new PartialTransferException(transferred, e);
+        }
+    }
+
+    /**
+     * @return true if #source has no more to give, like transferFrom a read giving nothing ends the transfer
+     */
+    private static boolean fill(ReadableByteChannel source, ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of bytes written, all the remaining ones of #buffer
+     */
+    private int write(ByteBuffer buffer, FileChannel target, long position) throws IOException {
+
+        final int chunk = buffer.remaining();
+        long writePosition = position;
+        while (buffer.hasRemaining()) {
+            writePosition += target.write(buffer, writePosition);
+        }
+        if (chunk > 0) {
+            chunks.increment();
+            chunkBytes.add(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * @return Number of chunks written since the start
+     */
+    public long getChunks() {
+        return chunks.sum();
+    }
+
+    /**
+     * @return Number of bytes written in chunks since the start
+     */
+    public long getChunkBytes() {
+        return chunkBytes.sum();
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
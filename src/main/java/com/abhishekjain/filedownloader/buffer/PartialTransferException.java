@@ -0,0 +1,39 @@
+package com.abhishekjain.filedownloader.buffer;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a {@link ChunkedTransfer} fails, along with the number of bytes written to the file before the failure,
+ * which is the failure of the source or of the file.
+ */
+public class PartialTransferException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long transferred;
+
+    /**
+     * @param transferred Number of bytes written before the failure
+     * @param cause       Failure of the transfer, an {@link IOException} or a {@link RuntimeException}
+     */
+    PartialTransferException(long transferred, Exception cause) {
+        super("Transfer failed after " + transferred + " bytes: " + cause.getMessage(), cause);
+        this.transferred = transferred;
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+
+    /**
+     * @return The failure of the transfer, to be thrown in place of this exception
+     * @throws RuntimeException If the failure is one
+     */
+    public IOException failure() {
+
+        if (getCause() instanceof RuntimeException) {
+            throw (RuntimeException) getCause();
+        }
+        return (IOException) getCause();
+    }
+}
@@ -0,0 +1,59 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Checksum algorithms a download can be verified with, by the name they are given in the download options and the
+ * sidecar extensions.
+ */
+public enum ChecksumAlgorithm {
+
+    SHA256("sha256", "SHA-256"), SHA1("sha1", "SHA-1"), CRC32C("crc32c", null);
+
+    private final String name;
+    private final String jcaName;
+
+    ChecksumAlgorithm(String name, String jcaName) {
+        this.name = name;
+        this.jcaName = jcaName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return A new digest of the algorithm
+     */
+    public MessageDigest newDigest() {
+
+        if (jcaName == null) {
+            return new Crc32c();
+        }
+        try {
+            return MessageDigest.getInstance(jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest algorithm not available: " + jcaName, e);
+        }
+    }
+
+    /**
+     * @param name Name of the algorithm, case insensitive
+     * @return The algorithm, null if there is none of that name
+     */
+    public static ChecksumAlgorithm of(String name) {
+
+        if (name == null) {
+            return null;
+        }
+        final String lowerCaseName = name.trim().toLowerCase(Locale.ROOT);
+        for (ChecksumAlgorithm algorithm : values()) {
+            if (algorithm.name.equals(lowerCaseName)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import com.abhishekjain.filedownloader.model.Checksum;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the checksum of a downloaded file differs from the expected one. It is an {@link IOException}, hence
+ * retried like any other failed transfer.
+ */
+public class ChecksumMismatchException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ChecksumMismatchException(String source, Checksum expected, Checksum actual) {
+        super("Checksum mismatch for source: " + source + ". Expected: " + expected + ", actual: " + actual);
+    }
+}
@@ -0,0 +1,143 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.utils.DownloadOptions;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+
+/**
+ * Resolves the checksum a download is expected to have and the algorithm its content is digested with while it is
+ * transferred.
+ * <p>
+ * The expected checksum is given in the download options of the source, e.g.
+ * <b>http://localhost:8000/app.jar#sha256=&lt;hex&gt;</b> (also <b>sha1</b> and <b>crc32c</b>), or, with
+ * {@link #sidecarEnabled}, read from the <b>.sha256</b> sidecar published next to an HTTP(S) source in the
+ * <i>sha256sum</i> format. It applies to the file as saved, i.e. after the transform stages of the download.
+ * </p>
+ * Downloads without an expected checksum are digested with {@link #algorithmName}, unless it is <b>none</b>.
+ */
+@Component
+public class ChecksumVerifier {
+    private static final Logger log = LoggerFactory.getLogger(ChecksumVerifier.class);
+
+    private static final String SIDECAR_EXTENSION = "." + ChecksumAlgorithm.SHA256.getName();
+    private static final int SIDECAR_MAX_LENGTH = 4096;
+
+    @Autowired
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    @Value("${download.checksum.algorithm}")
+    private String algorithmName;
+
+    @Value("${download.checksum.sidecar.enabled}")
+    private boolean sidecarEnabled;
+
+    private ChecksumAlgorithm algorithm;
+
+    @PostConstruct
+    protected void init() {
+
+        algorithm = ChecksumAlgorithm.of(algorithmName);
+        if (algorithm == null && StringUtils.isNotBlank(algorithmName) && !"none".equalsIgnoreCase(algorithmName)) {
+            throw new IllegalStateException("Unknown checksum algorithm: " + algorithmName);
+        }
+    }
+
+    /**
+     * @param sourceUrl Source url of the download
+     * @param options   Download options of #sourceUrl
+     * @return The checksum the downloaded file must have, null if there is none to verify
+     * @throws IOException If the sidecar can not be read
+     */
+    public Checksum expected(URL sourceUrl, DownloadOptions options) throws IOException {
+
+        for (ChecksumAlgorithm checksumAlgorithm : ChecksumAlgorithm.values()) {
+            final String value = options.get(checksumAlgorithm.getName());
+            if (StringUtils.isNotBlank(value)) {
+                return new Checksum(checksumAlgorithm.getName(), value);
+            }
+        }
+
+        final String protocol = sourceUrl.getProtocol();
+        if (sidecarEnabled && ("http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol))) {
+            return sidecar(sourceUrl);
+        }
+        return null;
+    }
+
+    /**
+     * @param expected The expected checksum, possibly null
+     * @return Algorithm to digest the download with, null if it is not to be digested
+     */
+    public ChecksumAlgorithm algorithmFor(Checksum expected) {
+        return expected != null ? ChecksumAlgorithm.of(expected.getAlgorithm()) : algorithm;
+    }
+
+    /**
+     * @param source   Source url of the download
+     * @param expected The expected checksum, possibly null
+     * @param actual   The checksum of the downloaded file
+     * @throws ChecksumMismatchException If the checksums differ
+     */
+    public void verify(String source, Checksum expected, Checksum actual) throws ChecksumMismatchException {
+
+        if (expected != null && !expected.equals(actual)) {
+            throw new ChecksumMismatchException(source, expected, actual);
+        }
+    }
+
+    /**
+     * @return The checksum of the content fed into #digest, resetting it
+     */
+    public static Checksum checksumOf(ChecksumAlgorithm algorithm, MessageDigest digest) {
+        return new Checksum(algorithm.getName(), Hex.encodeHexString(digest.digest()));
+    }
+
+    /**
+     * @return The checksum of the content of #file
+     * @throws IOException If the file can not be read
+     */
+    public static Checksum checksumOf(ChecksumAlgorithm algorithm, File file) throws IOException {
+
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            return checksumOf(algorithm, DigestUtils.updateDigest(algorithm.newDigest(), inputStream));
+        }
+    }
+
+    private Checksum sidecar(URL sourceUrl) throws IOException {
+
+        final URL sidecarUrl = new URL(sourceUrl.getProtocol(), sourceUrl.getHost(), sourceUrl.getPort(),
+                                       sourceUrl.getFile() + SIDECAR_EXTENSION);
+        try (InputStream inputStream = fileDownloaderUtils.openStream(sidecarUrl)) {
+            final byte[] content = new byte[SIDECAR_MAX_LENGTH];
+            final int read = IOUtils.read(inputStream, content);
+            final String[] tokens = StringUtils.split(new String(content, 0, read, StandardCharsets.US_ASCII));
+            if (tokens.length == 0 || !tokens[0].matches("[0-9a-fA-F]{64}")) {
+                log.warn("Ignoring sidecar: {} not in the sha256sum format", sidecarUrl);
+                return null;
+            }
+            return new Checksum(ChecksumAlgorithm.SHA256.getName(), tokens[0]);
+        } catch (FileNotFoundException e) {
+            log.debug("No checksum sidecar: {}", sidecarUrl);
+            return null;
+        }
+    }
+}
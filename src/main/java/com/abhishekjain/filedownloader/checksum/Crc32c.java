@@ -0,0 +1,61 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import java.security.MessageDigest;
+
+/**
+ * CRC-32C (Castagnoli) as a {@link MessageDigest}, as {@code java.util.zip.CRC32C} is only available from Java 9.
+ * The digest is the 4 byte big endian value of the CRC.
+ */
+class Crc32c extends MessageDigest {
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? crc >>> 1 ^ 0x82F63B78 : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    Crc32c() {
+        super("CRC32C");
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        crc = crc >>> 8 ^ TABLE[(crc ^ input) & 0xFF];
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+
+        int value = crc;
+        for (int i = offset; i < offset + len; i++) {
+            value = value >>> 8 ^ TABLE[(value ^ input[i]) & 0xFF];
+        }
+        crc = value;
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+
+        final int value = ~crc;
+        engineReset();
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    @Override
+    protected void engineReset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 4;
+    }
+}
@@ -0,0 +1,48 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * Channel feeding every byte read through it into a {@link MessageDigest}, so that the checksum of a download is
+ * known once its transfer ends, without reading the file again.
+ */
+public class DigestingChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel channel;
+    private final MessageDigest digest;
+
+    public DigestingChannel(ReadableByteChannel channel, MessageDigest digest) {
+        this.channel = channel;
+        this.digest = digest;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        final int position = dst.position();
+        final int read = channel.read(dst);
+        if (read > 0) {
+            final ByteBuffer readBytes = dst.duplicate();
+            readBytes.position(position).limit(position + read);
+            digest.update(readBytes);
+        }
+        return read;
+    }
+
+    public MessageDigest getDigest() {
+        return digest;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
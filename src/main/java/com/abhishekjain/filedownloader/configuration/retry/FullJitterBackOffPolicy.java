@@ -0,0 +1,52 @@
+package com.abhishekjain.filedownloader.configuration.retry;
+
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+
+/**
+ * Backoff policy of the {@link org.springframework.retry.support.RetryTemplate} waiting as long as
+ * {@link RetryScheduler#delay(int, Throwable)}: exponential with full jitter, or the delay asked by the server.
+ * <p>
+ * It sleeps on the calling thread, hence only serves the blocking downloads. The downloads submitted through the
+ * download service are rescheduled by the {@link RetryScheduler} instead.
+ * </p>
+ */
+public class FullJitterBackOffPolicy implements BackOffPolicy {
+
+    private final RetryScheduler retryScheduler;
+
+    public FullJitterBackOffPolicy(RetryScheduler retryScheduler) {
+        this.retryScheduler = retryScheduler;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new RetryBackOffContext(context);
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+
+        final RetryContext context = ((RetryBackOffContext) backOffContext).context;
+        try {
+            Thread.sleep(retryScheduler.delay(context.getRetryCount(), context.getLastThrowable()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    private static class RetryBackOffContext implements BackOffContext {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RetryContext context;
+
+        RetryBackOffContext(RetryContext context) {
+            this.context = context;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.abhishekjain.filedownloader.configuration.retry;
 
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.retry.RetryCallback;
@@ -7,18 +8,32 @@ import org.springframework.retry.RetryContext;
 import org.springframework.retry.listener.RetryListenerSupport;
 
 /**
- * Cross cutting class to log the retry attempts for downloading the file
+ * Cross cutting class to log the retry attempts for downloading the file, and count them by exception type in
+ * {@link DownloadMetrics}
  */
 public class RetryDownloadListener extends RetryListenerSupport {
 
     private static final Logger log = LoggerFactory.getLogger(RetryDownloadListener.class);
 
+    private final DownloadMetrics downloadMetrics;
+
+    public RetryDownloadListener() {
+        this(null);
+    }
+
+    public RetryDownloadListener(DownloadMetrics downloadMetrics) {
+        this.downloadMetrics = downloadMetrics;
+    }
+
     @Override
     public <T, E extends Throwable> void onError(RetryContext context,
                                                  RetryCallback<T, E> callback, Throwable throwable) {
 
         log.info("Error occurred while downloading from source. Hence retrying to download. Exception: {}", throwable
                 .getMessage());
+        if (downloadMetrics != null) {
+            downloadMetrics.retried(throwable);
+        }
         super.onError(context, callback, throwable);
     }
 }
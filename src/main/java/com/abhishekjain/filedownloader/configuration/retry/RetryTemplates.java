@@ -0,0 +1,57 @@
+package com.abhishekjain.filedownloader.configuration.retry;
+
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.retry.CircuitOpenException;
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Factory of the {@link RetryTemplate} of the blocking downloads, shared by {@link RetryConfig} and the fast start
+ * of the launcher, which wires the downloader without any configuration class.
+ */
+public final class RetryTemplates {
+
+    private RetryTemplates() {
+    }
+
+    /**
+     * @param downloadMetrics  Metrics recording the retries
+     * @param retryScheduler   Scheduler giving the delay before each retry
+     * @param maxRetryAttempts Attempts of a download, the first one included
+     * @return Retry template retrying the {@link IOException}s, but not the {@link CircuitOpenException}s nor a
+     * Retry-After longer than the max interval of #retryScheduler
+     */
+    public static RetryTemplate create(DownloadMetrics downloadMetrics, RetryScheduler retryScheduler,
+                                       int maxRetryAttempts) {
+        final RetryTemplate retryTemplate = new RetryTemplate();
+
+        retryTemplate.registerListener(new RetryDownloadListener(downloadMetrics));
+
+        /* Exponential backoff with full jitter, so that retries do not get into lock step, or the delay asked by
+        the server through Retry-After. Same policy as the non blocking retries of the download service */
+        retryTemplate.setBackOffPolicy(new FullJitterBackOffPolicy(retryScheduler));
+
+        Map<Class<? extends Throwable>, Boolean> exceptionClassifier = new HashMap<>();
+        exceptionClassifier.put(IOException.class, true);
+        exceptionClassifier.put(CircuitOpenException.class, false);
+
+        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy(maxRetryAttempts, exceptionClassifier) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean canRetry(RetryContext context) {
+                return super.canRetry(context) && !retryScheduler.exceedsMaxInterval(context.getLastThrowable());
+            }
+        };
+
+        retryTemplate.setRetryPolicy(retryPolicy);
+
+        return retryTemplate;
+    }
+}
@@ -0,0 +1,37 @@
+package com.abhishekjain.filedownloader.custom;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Opens channels over the streams of the custom protocols.
+ */
+public final class CryptChannels {
+
+    private CryptChannels() {
+    }
+
+    /**
+     * Opens a channel over the stream. Streams of the custom protocols get a channel decoding a whole buffer at a
+     * time, instead of {@link Channels#newChannel(InputStream)} reading them through a temporary array.
+     *
+     * @param inputStream Stream of the source
+     * @return Channel reading from the stream
+     */
+    public static ReadableByteChannel newChannel(InputStream inputStream) {
+
+        if (inputStream instanceof CryptInputStream) {
+            return ((CryptInputStream) inputStream).channel();
+        }
+        return Channels.newChannel(inputStream);
+    }
+
+    /**
+     * @param channel Channel of rot13 encoded content
+     * @return Channel decoding #channel in place
+     */
+    public static ReadableByteChannel rot13(ReadableByteChannel channel) {
+        return new rot13Channel(channel);
+    }
+}
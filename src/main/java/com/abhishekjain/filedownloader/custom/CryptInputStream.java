@@ -3,6 +3,7 @@ package com.abhishekjain.filedownloader.custom;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * The {@link InputStream} sub class to encapsulate the logic
@@ -14,15 +15,28 @@ abstract class CryptInputStream extends InputStream {
     OutputStream out;
 
     abstract public void set(InputStream in, OutputStream out);
-}
 
-class rot13CryptInputStream extends CryptInputStream {
+    /**
+     * @param source Channel of the encoded content
+     */
+    abstract void set(ReadableByteChannel source);
+
+    /**
+     * @return Channel decoding the same source a whole buffer at a time, to be used instead of this stream
+     */
+    abstract ReadableByteChannel channel();
 
-    public void set(InputStream in, OutputStream out) {
-        this.in = new rot13InputStream(in);
+    public int read(byte[] b, int off, int len) throws IOException {
+        return in.read(b, off, len);
     }
 
-    public int read() throws IOException {
-        return in.read();
+    public int available() throws IOException {
+        return in.available();
     }
-}
\ No newline at end of file
+
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
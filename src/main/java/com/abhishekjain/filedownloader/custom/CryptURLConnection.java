@@ -1,52 +1,106 @@
 package com.abhishekjain.filedownloader.custom;
 
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
 /**
  * Class extending {@link URLConnection} for the custom rot13 protocol.
  * It opens the input stream @{@link CryptInputStream}
  * from the URL and process the streams
+ * <p>
+ * The exchange with the server goes over a {@link TimedSocketChannel}, within the connect and read timeouts of the
+ * connection:
+ * </p>
+ * <pre>
+ * request  : GET &lt;path&gt;\n
+ * response : &lt;status&gt; &lt;content length, -1 if unknown&gt;\n&lt;rot13 encoded content&gt;
+ * </pre>
+ * The statuses are the HTTP ones, failing the same way: <b>404</b> with a {@link FileNotFoundException}, <b>503</b>
+ * with a {@link RetryAfterException} and any other than <b>200</b> with an {@link IOException}. Content of a known
+ * length ends there, a connection closed before failing the read with an {@link EOFException}, so that a truncated
+ * transfer is not taken for a complete one. Content of unknown length ends when the server closes the connection.
  */
 class CryptURLConnection extends URLConnection {
     static int defaultPort = 80;
+
+    static final String REQUEST_METHOD = "GET";
+    static final int MAX_RESPONSE_LINE = 256;
+
+    private static final Pattern SPACES = Pattern.compile(" +");
+
     CryptInputStream cis;
+    private long contentLength = -1;
 
-    CryptURLConnection(URL url, String cryptype) {
+    /**
+     * @param url Url of the source
+     * @param cis Stream decoding the content of the source, given by the {@link Handler} of its protocol
+     */
+    CryptURLConnection(URL url, CryptInputStream cis) {
         super(url);
-        try {
-            String name = "com.abhishekjain.filedownloader.custom." + cryptype
-                    + "CryptInputStream";
-            cis = (CryptInputStream) Class.forName(name).newInstance();
-        } catch (Exception e) {
-        }
+        this.cis = cis;
     }
 
     synchronized public void connect() throws IOException {
+        if (connected)
+            return;
         int port;
-        if (cis == null)
-            throw new IOException("Crypt Class Not Found");
         if ((port = url.getPort()) == -1)
             port = defaultPort;
-        Socket s = new Socket(url.getHost(), port);
 
-        // Send the filename in plaintext
-        OutputStream server = s.getOutputStream();
-        PrintWriter pw = new PrintWriter(
-                new OutputStreamWriter(server, "UTF-8"),
-                true);
+        final TimedSocketChannel channel = new TimedSocketChannel(getReadTimeout());
+        try {
+            channel.connect(new InetSocketAddress(url.getHost(), port), getConnectTimeout());
+            channel.write(StandardCharsets.UTF_8.encode(REQUEST_METHOD + " " + path() + "\n"));
+            readResponse(channel.readLine(MAX_RESPONSE_LINE));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
 
         // Initialize the CryptInputStream
-        cis.set(s.getInputStream(), server);
+        cis.set(contentLength >= 0 ? new ContentChannel(channel, contentLength) : channel);
         connected = true;
     }
 
+    private String path() {
+        return url.getPath().isEmpty() ? "/" : url.getPath();
+    }
+
+    private void readResponse(String line) throws IOException {
+
+        final String[] fields = SPACES.split(line.trim());
+        final int status;
+        try {
+            status = Integer.parseInt(fields[0]);
+            contentLength = fields.length > 1 ? Long.parseLong(fields[1]) : -1;
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed response: " + line + " for URL: " + url);
+        }
+
+        switch (status) {
+            case HttpURLConnection.HTTP_OK:
+                return;
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                throw new FileNotFoundException(url.toString());
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+                throw new RetryAfterException("Server returned response code: " + status + " for URL: " + url, -1);
+            default:
+                throw new IOException("Server returned response code: " + status + " for URL: " + url);
+        }
+    }
+
     synchronized public InputStream getInputStream()
             throws IOException {
         if (!connected)
@@ -54,8 +108,61 @@ class CryptURLConnection extends URLConnection {
         return (cis);
     }
 
+    public long getContentLengthLong() {
+        return contentLength;
+    }
+
     public String getContentType() {
         return guessContentTypeFromName(url.getFile());
     }
-}
 
+    /**
+     * Content of the announced length, read from the channel of the connection.
+     */
+    private static class ContentChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel channel;
+        private final long length;
+        private long remaining;
+
+        ContentChannel(ReadableByteChannel channel, long length) {
+            this.channel = channel;
+            this.length = length;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+
+            if (remaining == 0) {
+                return -1;
+            }
+            final int limit = dst.limit();
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + (int) remaining);
+            }
+            final int read;
+            try {
+                read = channel.read(dst);
+            } finally {
+                dst.limit(limit);
+            }
+            if (read < 0) {
+                throw new EOFException("Connection closed after " + (length - remaining) + " of " + length
+                                               + " bytes");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.function.Supplier;
 
 /**
  * Custom Handler called to parseUrl
@@ -11,6 +12,19 @@ import java.net.URLStreamHandler;
  */
 public class Handler extends URLStreamHandler {
 
+    private final Supplier<? extends CryptInputStream> cryptInputStreams;
+
+    public Handler() {
+        this(rot13CryptInputStream::new);
+    }
+
+    /**
+     * @param cryptInputStreams Creates the decoding stream of every connection
+     */
+    Handler(Supplier<? extends CryptInputStream> cryptInputStreams) {
+        this.cryptInputStreams = cryptInputStreams;
+    }
+
     protected void parseURL(URL url, String spec,
                             int start, int end) {
         int slash = spec.indexOf('/');
@@ -22,7 +36,6 @@ public class Handler extends URLStreamHandler {
 
     protected URLConnection openConnection(URL url)
             throws IOException {
-        String crypType = url.getProtocol();
-        return new CryptURLConnection(url, crypType);
+        return new CryptURLConnection(url, cryptInputStreams.get());
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,21 @@
 package com.abhishekjain.filedownloader.custom;
 
+import com.abhishekjain.filedownloader.engine.DownloadEngines;
+
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
 
 /**
  * Register {@link OurURLStreamHandlerFactory} during application's startup via URL#setURLStreamHandlerFactory()
  * <p>
- *      Note that the Javadoc explicitly says that you can set it at most once. So if you intend to support multiple
- *      custom protocols in the same application, you'd need to generify the custom URLStreamHandlerFactory implementation
- *      to cover them all inside the createURLStreamHandler() method.
+ *      Note that the Javadoc explicitly says that you can set it at most once. Hence the factory covers all the
+ *      custom protocols: it hands out the cached handlers of the {@link DownloadEngines}, so that a protocol is
+ *      added by registering its engine rather than by editing the factory. {@link DownloadEngines#install()} sets
+ *      them up as the factory directly.
  * </p>
  */
 public class OurURLStreamHandlerFactory implements URLStreamHandlerFactory {
     public URLStreamHandler createURLStreamHandler(String protocol) {
-        if (protocol.equalsIgnoreCase("rot13"))
-            return new Handler();
-        else
-            return null;
+        return DownloadEngines.get().createURLStreamHandler(protocol);
     }
 }
\ No newline at end of file
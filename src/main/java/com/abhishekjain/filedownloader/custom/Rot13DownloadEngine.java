@@ -0,0 +1,33 @@
+package com.abhishekjain.filedownloader.custom;
+
+import com.abhishekjain.filedownloader.engine.DownloadEngine;
+
+import java.io.InputStream;
+import java.net.URLStreamHandler;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * {@link DownloadEngine} of the custom rot13 protocol: connections of {@link CryptURLConnection}, read through the
+ * channel of {@link CryptChannels} decoding a whole buffer at a time.
+ */
+public class Rot13DownloadEngine implements DownloadEngine {
+
+    static final String SCHEME = "rot13";
+
+    @Override
+    public Set<String> getSchemes() {
+        return Collections.singleton(SCHEME);
+    }
+
+    @Override
+    public URLStreamHandler createURLStreamHandler(String scheme) {
+        return new Handler(rot13CryptInputStream::new);
+    }
+
+    @Override
+    public ReadableByteChannel newChannel(InputStream inputStream) {
+        return CryptChannels.newChannel(inputStream);
+    }
+}
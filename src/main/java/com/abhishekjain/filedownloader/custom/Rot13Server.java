@@ -0,0 +1,129 @@
+package com.abhishekjain.filedownloader.custom;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reference server of the rot13 protocol of {@link CryptURLConnection}, serving the files of a directory rot13
+ * encoded on localhost, for tests and benchmarks. Each connection is served on its own daemon thread.
+ */
+public class Rot13Server implements AutoCloseable {
+
+    private static final String HOST = "127.0.0.1";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService executor;
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @param root Directory of the files to serve, a path of a request being resolved against it
+     * @throws IOException If the server can not be started
+     */
+    public Rot13Server(Path root) throws IOException {
+
+        this.root = root.toAbsolutePath().normalize();
+        this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, 0));
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "rot13-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::accept);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @param path Path of a file, relative to the served directory
+     * @return The rot13 url of the file
+     */
+    public String url(String path) {
+        return "rot13://" + HOST + ":" + getPort() + path;
+    }
+
+    private void accept() {
+
+        try {
+            while (serverChannel.isOpen()) {
+                final SocketChannel channel = serverChannel.accept();
+                executor.execute(() -> serve(channel));
+            }
+        } catch (IOException ignored) {
+            // Closed
+        }
+    }
+
+    private void serve(SocketChannel socketChannel) {
+
+        try (SocketChannel channel = socketChannel) {
+            final String request = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                                                                            StandardCharsets.UTF_8)).readLine();
+            final String prefix = CryptURLConnection.REQUEST_METHOD + " /";
+            if (request == null || !request.startsWith(prefix)) {
+                respond(channel, HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                return;
+            }
+
+            final Path file = root.resolve(request.substring(prefix.length())).normalize();
+            if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+                respond(channel, HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+
+            try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                respond(channel, HttpURLConnection.HTTP_OK, fileChannel.size());
+                final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                final byte[] array = buffer.array();
+                while (fileChannel.read(buffer) >= 0) {
+                    for (int i = 0; i < buffer.position(); i++) {
+                        array[i] = rot13InputStream.TABLE[array[i] & 0xFF];
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+        } catch (IOException ignored) {
+            // Client gone
+        }
+    }
+
+    private static void respond(SocketChannel channel, int status, long contentLength) throws IOException {
+
+        final ByteBuffer response = StandardCharsets.UTF_8.encode(status + " " + contentLength + "\n");
+        while (response.hasRemaining()) {
+            channel.write(response);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            serverChannel.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
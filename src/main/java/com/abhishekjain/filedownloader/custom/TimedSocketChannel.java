@@ -0,0 +1,173 @@
+package com.abhishekjain.filedownloader.custom;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking view of a non-blocking {@link SocketChannel}, the connect, reads and writes of which fail with a
+ * {@link SocketTimeoutException} once their timeout is over, as the ones of {@link java.net.Socket} do. A timeout of
+ * <b>0</b> waits forever.
+ * <p>
+ * Reads go straight from the socket into the buffer of the caller, a whole buffer at a time.
+ * </p>
+ */
+class TimedSocketChannel implements ReadableByteChannel {
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final int readTimeout;
+
+    // Bytes of the content read along with the response line
+    private ByteBuffer pending;
+
+    /**
+     * @param readTimeout Milliseconds to wait for a read or a write
+     * @throws IOException If the channel can not be opened
+     */
+    TimedSocketChannel(int readTimeout) throws IOException {
+
+        this.readTimeout = readTimeout;
+        this.channel = SocketChannel.open();
+        Selector opened = null;
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            opened = Selector.open();
+            this.key = channel.register(opened, 0);
+            this.selector = opened;
+        } catch (IOException | RuntimeException e) {
+            if (opened != null) {
+                opened.close();
+            }
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param address        Address of the server
+     * @param connectTimeout Milliseconds to wait for the connection
+     * @throws IOException If the server can not be reached in time
+     */
+    void connect(InetSocketAddress address, int connectTimeout) throws IOException {
+
+        if (address.isUnresolved()) {
+            throw new UnknownHostException(address.getHostString());
+        }
+        if (!channel.connect(address)) {
+            while (!channel.finishConnect()) {
+                await(SelectionKey.OP_CONNECT, connectTimeout, "connect timed out");
+            }
+        }
+    }
+
+    /**
+     * Writes the whole of #src.
+     */
+    void write(ByteBuffer src) throws IOException {
+
+        while (src.hasRemaining()) {
+            if (channel.write(src) == 0) {
+                await(SelectionKey.OP_WRITE, readTimeout, "Write timed out");
+            }
+        }
+    }
+
+    /**
+     * Reads a line ended by <i>\n</i>, the bytes read after it being kept for {@link #read(ByteBuffer)}.
+     *
+     * @param maxLength Maximum length of the line
+     * @return The line, without its end
+     * @throws IOException If the line is longer than #maxLength, or the connection is closed before its end
+     */
+    String readLine(int maxLength) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(maxLength);
+        int scanned = 0;
+        while (true) {
+            for (; scanned < buffer.position(); scanned++) {
+                if (buffer.get(scanned) == '\n') {
+                    final String line = new String(buffer.array(), 0, scanned, StandardCharsets.UTF_8);
+                    buffer.flip().position(scanned + 1);
+                    pending = buffer.slice();
+                    return line;
+                }
+            }
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Line longer than " + maxLength + " bytes");
+            }
+            if (read(buffer) < 0) {
+                throw new EOFException("Connection closed before the end of the line");
+            }
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        if (pending != null && pending.hasRemaining()) {
+            final int count = Math.min(pending.remaining(), dst.remaining());
+            final ByteBuffer chunk = pending.duplicate();
+            chunk.limit(chunk.position() + count);
+            dst.put(chunk);
+            pending.position(pending.position() + count);
+            return count;
+        }
+
+        int read;
+        while ((read = channel.read(dst)) == 0 && dst.hasRemaining()) {
+            await(SelectionKey.OP_READ, readTimeout, "Read timed out");
+        }
+        return read;
+    }
+
+    private void await(int operation, int timeout, String timeoutMessage) throws IOException {
+
+        key.interestOps(operation);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            long wait = 0;
+            if (timeout > 0) {
+                wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0) {
+                    throw new SocketTimeoutException(timeoutMessage);
+                }
+            }
+            if (selector.select(wait) > 0) {
+                selector.selectedKeys().clear();
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting on the socket");
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            selector.close();
+        } finally {
+            channel.close();
+        }
+    }
+}
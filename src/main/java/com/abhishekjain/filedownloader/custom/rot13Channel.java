@@ -0,0 +1,68 @@
+package com.abhishekjain.filedownloader.custom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Channel variant of {@link rot13InputStream}, rotating the bytes read in place in the destination buffer through
+ * the lookup table of {@link rot13InputStream#TABLE}.
+ */
+class rot13Channel implements ReadableByteChannel {
+
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private byte[] scratch;
+
+    rot13Channel(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        final int start = dst.position();
+        final int read = channel.read(dst);
+        if (read <= 0) {
+            return read;
+        }
+
+        final byte[] table = rot13InputStream.TABLE;
+        if (dst.hasArray()) {
+            final byte[] array = dst.array();
+            final int end = dst.arrayOffset() + start + read;
+            for (int i = dst.arrayOffset() + start; i < end; i++) {
+                array[i] = table[array[i] & 0xFF];
+            }
+        } else {
+            // Direct buffers are rotated through a heap copy, bulk copies being far cheaper than indexed access
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            final ByteBuffer window = dst.duplicate();
+            window.position(start).limit(start + read);
+            while (window.hasRemaining()) {
+                final int chunk = Math.min(scratch.length, window.remaining());
+                final int chunkStart = window.position();
+                window.get(scratch, 0, chunk);
+                for (int i = 0; i < chunk; i++) {
+                    scratch[i] = table[scratch[i] & 0xFF];
+                }
+                window.position(chunkStart);
+                window.put(scratch, 0, chunk);
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.abhishekjain.filedownloader.custom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link CryptInputStream} decoding the rot13 content of a {@link CryptURLConnection}, through a
+ * {@link rot13InputStream} or a {@link rot13Channel}.
+ */
+class rot13CryptInputStream extends CryptInputStream {
+
+    private InputStream source;
+    private ReadableByteChannel sourceChannel;
+
+    public void set(InputStream in, OutputStream out) {
+        this.source = in;
+        this.sourceChannel = null;
+        this.in = new rot13InputStream(in);
+    }
+
+    void set(ReadableByteChannel source) {
+        this.sourceChannel = source;
+        this.source = Channels.newInputStream(source);
+        this.in = new rot13InputStream(this.source);
+    }
+
+    public int read() throws IOException {
+        return in.read();
+    }
+
+    ReadableByteChannel channel() {
+        return new rot13Channel(sourceChannel != null ? sourceChannel : Channels.newChannel(source));
+    }
+}
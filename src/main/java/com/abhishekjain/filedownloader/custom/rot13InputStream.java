@@ -6,15 +6,40 @@ import java.io.InputStream;
 
 /**
  * Class encapsulating the encoding logic for custom rot13 protocol.
+ * <p>
+ * Bytes are rotated through the 256 entry {@link #TABLE}, in place and a whole buffer at a time for bulk reads.
+ * </p>
  */
 public class rot13InputStream extends FilterInputStream {
 
+    /**
+     * Rotated value of every byte, letters being rotated by 13 modulo 26 and any other byte left as is
+     */
+    static final byte[] TABLE = new byte[256];
+
+    static {
+        for (int c = 0; c < TABLE.length; c++) {
+            TABLE[c] = (byte) rot13(c);
+        }
+    }
+
     public rot13InputStream(InputStream i) {
         super(i);
     }
 
     public int read() throws IOException {
-        return rot13(in.read());
+
+        final int c = in.read();
+        return c < 0 ? c : TABLE[c] & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        final int read = in.read(b, off, len);
+        for (int i = off; i < off + read; i++) {
+            b[i] = TABLE[b[i] & 0xFF];
+        }
+        return read;
     }
 
     /**
@@ -23,7 +48,7 @@ public class rot13InputStream extends FilterInputStream {
      * @param c int to be transformed
      * @return the rotated int by 13 modulo 26
      */
-    private int rot13(int c) {
+    private static int rot13(int c) {
         if ((c >= 'A') && (c <= 'Z')) c = (((c - 'A') + 13) % 26) + 'A';
         if ((c >= 'a') && (c <= 'z'))
             c = (((c - 'a') + 13) % 26) + 'a';
@@ -0,0 +1,362 @@
+package com.abhishekjain.filedownloader.daemon;
+
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.utils.JsonStrings;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP endpoint of the download daemon (<b>--daemon</b>), on localhost only:
+ * <ul>
+ * <li><b>POST /jobs?directory=..</b> : submits a job of the sources of the body, one or more urls per line, lines
+ * starting with <b>#</b> being ignored. The directory is resolved under the default one of the jobs, see
+ * {@link DownloadJobRegistry#submit(List, String)}. Answers <b>202</b> with the job, and its location.</li>
+ * <li><b>GET /jobs</b> : status of the jobs of the {@link DownloadJobRegistry}</li>
+ * <li><b>GET /jobs/&lt;id&gt;</b> : status of a job, with the results of its sources finished so far</li>
+ * <li><b>POST /shutdown</b> : stops the daemon. Running downloads are stopped, to be resumed by a later run.</li>
+ * </ul>
+ * Answers are JSON documents. The port is {@link #port}, <b>0</b> for any free one.
+ * <p>
+ * Every request has to carry the token of the daemon as <b>Authorization: Bearer &lt;token&gt;</b>. A new token is
+ * drawn at every start and written to {@link #tokenFile}, readable by its owner only. Requests for another host than
+ * <b>127.0.0.1:&lt;port&gt;</b> or <b>localhost:&lt;port&gt;</b>, as sent through DNS rebinding, and requests with an
+ * <b>Origin</b> header, as sent by browsers on behalf of web pages, are rejected as well.
+ * </p>
+ */
+@Component
+public class DaemonServer {
+    private static final Logger log = LoggerFactory.getLogger(DaemonServer.class);
+
+    static final String JOBS_PATH = "/jobs";
+    static final String SHUTDOWN_PATH = "/shutdown";
+
+    private static final String HOST = "127.0.0.1";
+    private static final String LOCALHOST = "localhost";
+    private static final String BEARER = "Bearer ";
+    private static final int TOKEN_BYTES = 32;
+    private static final String DIRECTORY_PARAMETER = "directory=";
+    private static final String WHITESPACE_REGEX = "\\s+";
+    private static final String COMMENT = "#";
+    private static final int MAX_REQUEST_BYTES = 16 * 1024 * 1024;
+    private static final int HANDLER_THREADS = 2;
+
+    @Autowired
+    private DownloadJobRegistry jobRegistry;
+
+    @Value("${download.daemon.port}")
+    private int port;
+
+    @Value("${download.daemon.token.file}")
+    private String tokenFile;
+
+    private final CountDownLatch shutdown = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private byte[] token;
+    private Set<String> hosts;
+
+    /**
+     * Starts answering requests, unless already started.
+     *
+     * @throws IOException If the port can not be bound
+     */
+    public synchronized void start() throws IOException {
+
+        if (server != null) {
+            return;
+        }
+        token = writeToken(Paths.get(tokenFile));
+        server = HttpServer.create(new InetSocketAddress(HOST, port), 0);
+        final int boundPort = server.getAddress().getPort();
+        hosts = new HashSet<>(Arrays.asList(HOST + ":" + boundPort, LOCALHOST + ":" + boundPort));
+        executor = Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "download-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext(JOBS_PATH, this::jobs).getFilters().add(new RequestFilter());
+        server.createContext(SHUTDOWN_PATH, this::shutdown).getFilters().add(new RequestFilter());
+        server.setExecutor(executor);
+        server.start();
+        log.info("Download daemon listening on http://{}:{}{}, token written to {}", HOST, getPort(), JOBS_PATH,
+                 tokenFile);
+    }
+
+    public synchronized int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    /**
+     * Waits for a request to {@link #SHUTDOWN_PATH}, or for the daemon to be closed.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        shutdown.await();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+
+        shutdown.countDown();
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            try {
+                Files.deleteIfExists(Paths.get(tokenFile));
+            } catch (IOException e) {
+                log.warn("Unable to delete the token file: {}. Exception: {}", tokenFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a new random token to #file, creating it readable and writable by its owner only.
+     *
+     * @return The token
+     */
+    private static byte[] writeToken(Path file) throws IOException {
+
+        final byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        final byte[] token = Hex.encodeHexString(random).getBytes(StandardCharsets.US_ASCII);
+
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(file);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            final File created = Files.createFile(file).toFile();
+            if (!(created.setReadable(false, false) && created.setReadable(true, true)
+                    && created.setWritable(false, false) && created.setWritable(true, true))) {
+                Files.delete(file);
+                throw new IOException("Unable to restrict the token file to its owner: " + file);
+            }
+        }
+        Files.write(file, token);
+        return token;
+    }
+
+    /**
+     * Rejects the requests for another host, from a web page or without the token, before they are handled.
+     */
+    private class RequestFilter extends Filter {
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+
+            final Headers headers = exchange.getRequestHeaders();
+            final String host = StringUtils.lowerCase(headers.getFirst("Host"));
+            final String authorization = headers.getFirst("Authorization");
+
+            if (host == null || !hosts.contains(host)) {
+                reject(exchange, HttpURLConnection.HTTP_FORBIDDEN, "Host not allowed: " + host);
+            } else if (headers.containsKey("Origin")) {
+                reject(exchange, HttpURLConnection.HTTP_FORBIDDEN, "Cross origin requests not allowed");
+            } else if (authorization == null || !authorization.startsWith(BEARER) || !MessageDigest.isEqual(
+                    token, authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.US_ASCII))) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                reject(exchange, HttpURLConnection.HTTP_UNAUTHORIZED, "Missing or invalid token, see " + tokenFile);
+            } else {
+                chain.doFilter(exchange);
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Host, Origin and token check of the download daemon";
+        }
+
+        private void reject(HttpExchange exchange, int status, String message) throws IOException {
+
+            log.warn("Rejected {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), message);
+            try {
+                respond(exchange, status, error(message));
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private void jobs(HttpExchange exchange) throws IOException {
+
+        try {
+            final String path = StringUtils.removeEnd(exchange.getRequestURI().getPath(), "/");
+            final String method = exchange.getRequestMethod();
+
+            if (JOBS_PATH.equals(path) && "POST".equals(method)) {
+                submit(exchange);
+            } else if (JOBS_PATH.equals(path) && "GET".equals(method)) {
+                respond(exchange, HttpURLConnection.HTTP_OK, "{\"jobs\":[" + jobRegistry.getJobs().stream()
+                        .map(job -> json(job, false))
+                        .collect(Collectors.joining(",")) + "]}");
+            } else if (JOBS_PATH.equals(path)) {
+                respond(exchange, HttpURLConnection.HTTP_BAD_METHOD, error("Method not allowed: " + method));
+            } else {
+                final DownloadJob job = job(StringUtils.removeStart(path, JOBS_PATH + "/"));
+                if (job == null) {
+                    respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, error("No job at " + path));
+                } else if (!"GET".equals(method)) {
+                    respond(exchange, HttpURLConnection.HTTP_BAD_METHOD, error("Method not allowed: " + method));
+                } else {
+                    respond(exchange, HttpURLConnection.HTTP_OK, json(job, true));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            log.warn("Unable to answer {} {}. Exception: {}", exchange.getRequestMethod(), exchange.getRequestURI(),
+                     e.getMessage());
+            respond(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+
+        final byte[] body;
+        try (InputStream inputStream = new BoundedInputStream(exchange.getRequestBody(), MAX_REQUEST_BYTES + 1)) {
+            body = IOUtils.toByteArray(inputStream);
+        }
+        if (body.length > MAX_REQUEST_BYTES) {
+            respond(exchange, HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                    error("Sources longer than " + MAX_REQUEST_BYTES + " bytes"));
+            return;
+        }
+
+        final List<String> sources = Arrays.stream(new String(body, StandardCharsets.UTF_8).split("\n"))
+                                           .filter(line -> !StringUtils.startsWith(line.trim(), COMMENT))
+                                           .flatMap(line -> Arrays.stream(line.split(WHITESPACE_REGEX)))
+                                           .filter(StringUtils::isNotBlank)
+                                           .collect(Collectors.toList());
+        if (sources.isEmpty()) {
+            respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, error("No source to download"));
+            return;
+        }
+
+        final DownloadJob job = jobRegistry.submit(sources, directory(exchange.getRequestURI().getRawQuery()));
+        exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + job.getId());
+        respond(exchange, HttpURLConnection.HTTP_ACCEPTED, json(job, false));
+    }
+
+    private void shutdown(HttpExchange exchange) throws IOException {
+
+        try {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, HttpURLConnection.HTTP_ACCEPTED, "{\"status\":\"SHUTTING_DOWN\"}");
+                log.info("Shutdown of the download daemon requested");
+                shutdown.countDown();
+            } else {
+                respond(exchange, HttpURLConnection.HTTP_BAD_METHOD,
+                        error("Method not allowed: " + exchange.getRequestMethod()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private DownloadJob job(String id) {
+
+        try {
+            return jobRegistry.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String directory(String query) throws UnsupportedEncodingException {
+
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(DIRECTORY_PARAMETER)) {
+                    return URLDecoder.decode(parameter.substring(DIRECTORY_PARAMETER.length()),
+                                             StandardCharsets.UTF_8.name());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + JsonStrings.quote(message) + "}";
+    }
+
+    static String json(DownloadJob job, boolean withResults) {
+
+        final List<FileDownloadResult> results = job.getResults();
+        final StringBuilder json = new StringBuilder(256 + (withResults ? results.size() * 192 : 0));
+        json.append("{\"id\":").append(job.getId())
+            .append(",\"status\":\"").append(job.getStatus()).append('"')
+            .append(",\"directory\":").append(JsonStrings.quote(job.getDirectory()))
+            .append(",\"submitted\":").append(job.getSubmittedMillis())
+            .append(",\"total\":").append(job.getTotal())
+            .append(",\"finished\":").append(results.size());
+        if (withResults) {
+            json.append(",\"results\":[")
+                .append(results.stream().map(DaemonServer::json).collect(Collectors.joining(",")))
+                .append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String json(FileDownloadResult result) {
+
+        return "{\"source\":" + JsonStrings.quote(result.getSource())
+                + ",\"status\":\"" + result.getDownloadStatusStatus() + "\""
+                + ",\"path\":" + JsonStrings.quote(result.getPath())
+                + ",\"bytes\":" + result.getBytes()
+                + ",\"durationMillis\":" + result.getDurationMillis()
+                + ",\"message\":" + JsonStrings.quote(result.getMessage()) + "}";
+    }
+}
@@ -0,0 +1,86 @@
+package com.abhishekjain.filedownloader.daemon;
+
+import com.abhishekjain.filedownloader.model.DownloadBatch;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A batch of sources submitted to the download daemon, with its results as its downloads finish.
+ */
+public class DownloadJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final long id;
+    private final String directory;
+    private final long submittedMillis = System.currentTimeMillis();
+    private final DownloadBatch batch;
+
+    /**
+     * @param id        Id of the job, unique in the daemon
+     * @param directory Directory the files are saved to
+     * @param batch     Batch of the sources of the job, submitted to the download service
+     */
+    public DownloadJob(long id, String directory, DownloadBatch batch) {
+
+        this.id = id;
+        this.directory = directory;
+        this.batch = batch;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public long getSubmittedMillis() {
+        return submittedMillis;
+    }
+
+    /**
+     * @return Number of distinct sources of the job
+     */
+    public int getTotal() {
+        return batch.getResults().size();
+    }
+
+    public boolean isFinished() {
+        return batch.getCompletion().isDone();
+    }
+
+    /**
+     * @return {@link Status#FAILED} once finished if any source failed
+     */
+    public Status getStatus() {
+
+        if (!isFinished()) {
+            return Status.RUNNING;
+        }
+        return getResults().stream().anyMatch(result -> DownloadStatus.ERROR.equals(result.getDownloadStatusStatus()))
+                ? Status.FAILED : Status.COMPLETED;
+    }
+
+    /**
+     * @return Results of the sources finished so far, in the order they were submitted
+     */
+    public List<FileDownloadResult> getResults() {
+
+        return batch.getResults().values().stream()
+                    .filter(result -> result.isDone() && !result.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+    }
+
+    public DownloadBatch getBatch() {
+        return batch;
+    }
+}
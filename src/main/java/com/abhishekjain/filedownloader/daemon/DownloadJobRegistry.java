@@ -0,0 +1,131 @@
+package com.abhishekjain.filedownloader.daemon;
+
+import com.abhishekjain.filedownloader.configuration.FileDownloaderConfig;
+import com.abhishekjain.filedownloader.model.DownloadBatch;
+import com.abhishekjain.filedownloader.service.FileDownloadService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Jobs of the download daemon. Each job is a batch of the {@link FileDownloadService}, its downloads sharing the
+ * executor, connection pools and caches of the application with the ones of every other job.
+ * Only the last {@link #retainFinished} finished jobs are kept, along with all the running ones.
+ */
+@Component
+public class DownloadJobRegistry {
+    private static final Logger log = LoggerFactory.getLogger(DownloadJobRegistry.class);
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private FileDownloaderConfig downloaderConfig;
+
+    @Value("${download.daemon.retain.finished}")
+    private int retainFinished;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, DownloadJob> jobs = new ConcurrentSkipListMap<>();
+
+    /**
+     * Submits the downloads of a job, without waiting for them.
+     *
+     * @param sources   Urls of the sources
+     * @param directory Directory to save the files to, relative to the default directory of
+     *                  {@link FileDownloaderConfig}, the default directory itself if blank
+     * @return The job
+     * @throws IllegalArgumentException If #directory is outside of the default directory
+     */
+    public DownloadJob submit(List<String> sources, String directory) {
+
+        final String saveDirectory = saveDirectory(directory);
+        final long id = ids.incrementAndGet();
+
+        final DownloadBatch batch = fileDownloadService.downloadFilesFromSources(sources, saveDirectory);
+        final DownloadJob job = new DownloadJob(id, saveDirectory, batch);
+        jobs.put(id, job);
+        log.info("Job {} submitted: {} sources to download to {}", id, job.getTotal(), saveDirectory);
+
+        batch.onResult(result -> log.info("Job {}: source {} finished with status: {}, {} bytes in {} ms", id,
+                                          result.getSource(), result.getDownloadStatusStatus(), result.getBytes(),
+                                          result.getDurationMillis()))
+             .getCompletion()
+             .thenRun(() -> {
+                 log.info("Job {} finished with status: {}", id, job.getStatus());
+                 evictFinished();
+             });
+        return job;
+    }
+
+    /**
+     * @return The job, null if there is none of that id, or it has been evicted
+     */
+    public DownloadJob get(long id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return The jobs kept, in the order they were submitted
+     */
+    public List<DownloadJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Resolves #directory under the default directory, following the symbolic links of the part of it that exists.
+     */
+    private String saveDirectory(String directory) {
+
+        final String defaultDirectory = downloaderConfig.getDefaultDirectory();
+        if (StringUtils.isBlank(directory)) {
+            return defaultDirectory;
+        }
+        try {
+            final Path base = Paths.get(defaultDirectory).toAbsolutePath().normalize();
+            final Path resolved = base.resolve(directory).normalize();
+            if (!resolved.startsWith(base) || !realPath(resolved).startsWith(realPath(base))) {
+                throw new IllegalArgumentException("Directory outside of " + defaultDirectory + ": " + directory);
+            }
+            return Paths.get(defaultDirectory).resolve(base.relativize(resolved)).toString();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid directory: " + directory, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path realPath(Path path) throws IOException {
+
+        Path existing = path;
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        return existing == null ? path : existing.toRealPath().resolve(existing.relativize(path));
+    }
+
+    private void evictFinished() {
+
+        final List<Long> finished = jobs.values().stream()
+                                        .filter(DownloadJob::isFinished)
+                                        .map(DownloadJob::getId)
+                                        .collect(Collectors.toList());
+        finished.stream().limit(Math.max(0, finished.size() - retainFinished)).forEach(jobs::remove);
+    }
+}
@@ -0,0 +1,40 @@
+package com.abhishekjain.filedownloader.engine;
+
+import java.io.InputStream;
+import java.net.URLStreamHandler;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Set;
+
+/**
+ * Service provider of the download of custom protocols, registered in
+ * <i>META-INF/services/com.abhishekjain.filedownloader.engine.DownloadEngine</i> of its module and loaded once by
+ * {@link DownloadEngines}.
+ * <p>
+ * An engine opens the connections of the urls of its schemes through its {@link URLStreamHandler}, and may read the
+ * streams it opened through a faster channel than {@link Channels#newChannel(InputStream)}.
+ * </p>
+ */
+public interface DownloadEngine {
+
+    /**
+     * @return Schemes handled by the engine, in lower case
+     */
+    Set<String> getSchemes();
+
+    /**
+     * Called once per scheme, the handler being cached by {@link DownloadEngines}.
+     *
+     * @param scheme One of {@link #getSchemes()}
+     * @return Handler of the urls of #scheme
+     */
+    URLStreamHandler createURLStreamHandler(String scheme);
+
+    /**
+     * @param inputStream Stream opened by a connection of the handler of the engine
+     * @return Channel reading from the stream
+     */
+    default ReadableByteChannel newChannel(InputStream inputStream) {
+        return Channels.newChannel(inputStream);
+    }
+}
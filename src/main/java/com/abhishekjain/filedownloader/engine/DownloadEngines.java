@@ -0,0 +1,112 @@
+package com.abhishekjain.filedownloader.engine;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLStreamHandler;
+import java.net.URLStreamHandlerFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Registry of the {@link DownloadEngine}s found by the {@link ServiceLoader}, loaded once on first use, with the
+ * engine and the {@link URLStreamHandler} of every scheme cached, so that resolving them takes no reflection.
+ * <p>
+ * It is the {@link URLStreamHandlerFactory} of the JVM once {@link #install()} is called: a new protocol only needs
+ * its engine registered.
+ * </p>
+ */
+public final class DownloadEngines implements URLStreamHandlerFactory {
+    private static final DownloadEngines INSTANCE = new DownloadEngines(
+            ServiceLoader.load(DownloadEngine.class, DownloadEngines.class.getClassLoader()));
+
+    private static boolean installed;
+
+    private final Map<String, DownloadEngine> engines;
+    private final Map<String, URLStreamHandler> handlers;
+
+    /**
+     * @param loaded Engines to register
+     * @throws IllegalStateException If two engines handle the same scheme
+     */
+    DownloadEngines(Iterable<DownloadEngine> loaded) {
+
+        final Map<String, DownloadEngine> schemeEngines = new HashMap<>();
+        final Map<String, URLStreamHandler> schemeHandlers = new HashMap<>();
+        for (DownloadEngine engine : loaded) {
+            for (String scheme : engine.getSchemes()) {
+                final String key = scheme.toLowerCase(Locale.ROOT);
+                final DownloadEngine existing = schemeEngines.put(key, engine);
+                if (existing != null) {
+                    throw new IllegalStateException("Download engines " + existing.getClass().getName() + " and "
+                                                            + engine.getClass().getName() + " share the scheme: "
+                                                            + key);
+                }
+                schemeHandlers.put(key, engine.createURLStreamHandler(key));
+            }
+        }
+        this.engines = Collections.unmodifiableMap(schemeEngines);
+        this.handlers = Collections.unmodifiableMap(schemeHandlers);
+    }
+
+    /**
+     * @return The registry of the engines found by the {@link ServiceLoader}
+     */
+    public static DownloadEngines get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the registry as the {@link URLStreamHandlerFactory} of the JVM, which can be set only once: later calls
+     * are ignored.
+     */
+    public static synchronized void install() {
+
+        if (!installed) {
+            URL.setURLStreamHandlerFactory(INSTANCE);
+            installed = true;
+        }
+    }
+
+    /**
+     * @param protocol Scheme of a url
+     * @return Cached handler of the engine of #protocol, null to leave it to the JVM
+     */
+    @Override
+    public URLStreamHandler createURLStreamHandler(String protocol) {
+        return handlers.get(protocol.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param url Url of a source
+     * @return The engine of its scheme, null if there is none
+     */
+    public DownloadEngine engineFor(URL url) {
+        return engines.get(url.getProtocol().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Opens a channel over a stream of #url, through its engine if it has one.
+     *
+     * @param url         Url of the source
+     * @param inputStream Stream opened for #url
+     * @return Channel reading from the stream
+     */
+    public ReadableByteChannel newChannel(URL url, InputStream inputStream) {
+
+        final DownloadEngine engine = engineFor(url);
+        return engine != null ? engine.newChannel(inputStream) : Channels.newChannel(inputStream);
+    }
+
+    /**
+     * @return Schemes handled by the engines
+     */
+    public Set<String> getSchemes() {
+        return engines.keySet();
+    }
+}
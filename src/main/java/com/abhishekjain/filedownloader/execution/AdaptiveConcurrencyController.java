@@ -0,0 +1,200 @@
+package com.abhishekjain.filedownloader.execution;
+
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.metrics.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the number of downloads a {@link DownloadExecutor} runs at once, between {@link #min} and {@link #max},
+ * from the {@link DownloadMetrics} of the last {@link #interval} milliseconds (additive increase, multiplicative
+ * decrease):
+ * <ul>
+ * <li>The limit is multiplied by {@link #decreaseFactor} when there is congestion: a timeout, more than
+ * {@link #maxErrorRate} of the attempts failing because of the transport (see {@link DownloadMetrics#failed}), or
+ * the mean time to first byte going over {@link #latencyTolerance} times its baseline, the lowest mean seen
+ * lately.</li>
+ * <li>Otherwise it grows by one while downloads are waiting for a slot, unless the throughput dropped after the
+ * previous increase, in which case it is held for an interval.</li>
+ * </ul>
+ * The current limit is reported by the <b>download_executor_limit</b> gauge.
+ */
+@Component
+public class AdaptiveConcurrencyController {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    private static final double THROUGHPUT_TOLERANCE = 0.05;
+    private static final double BASELINE_DRIFT = 1.1;
+
+    @Autowired
+    private DownloadMetrics downloadMetrics;
+
+    @Value("${download.concurrency.adaptive}")
+    private boolean enabled;
+
+    @Value("${download.concurrency.min}")
+    private int min;
+
+    @Value("${download.concurrency.max}")
+    private int max;
+
+    @Value("${download.concurrency.interval}")
+    private long interval;
+
+    @Value("${download.concurrency.decrease.factor}")
+    private double decreaseFactor;
+
+    @Value("${download.concurrency.max.error.rate}")
+    private double maxErrorRate;
+
+    @Value("${download.concurrency.latency.tolerance}")
+    private double latencyTolerance;
+
+    private DownloadExecutor executor;
+    private ScheduledExecutorService scheduler;
+
+    private long lastBytes;
+    private long lastAttempts;
+    private long lastErrors;
+    private long lastTimeouts;
+    private long lastLatencyCount;
+    private double lastLatencySeconds;
+    private double lastThroughput;
+    private double latencyBaseline;
+    private boolean increased;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param initial The limit to start from
+     * @return #initial within the bounds of the controller
+     */
+    public int bounded(int initial) {
+        return Math.max(Math.max(1, min), Math.min(max, initial));
+    }
+
+    public int getMax() {
+        return Math.max(Math.max(1, min), max);
+    }
+
+    /**
+     * Starts adjusting the limit of #downloadExecutor every {@link #interval} milliseconds.
+     *
+     * @param downloadExecutor The executor to control
+     */
+    public synchronized void start(DownloadExecutor downloadExecutor) {
+
+        executor = downloadExecutor;
+        executor.setLimit(bounded(executor.getLimit()));
+        snapshot();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "download-concurrency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+
+        log.info("Adapting the number of concurrent downloads between {} and {} every {} ms, starting at {}",
+                 Math.max(1, min), getMax(), interval, executor.getLimit());
+    }
+
+    /**
+     * Adjusts the limit from the metrics since the previous adjustment.
+     */
+    synchronized void adjust() {
+
+        try {
+            final long bytes = downloadMetrics.getBytesTotal();
+            final long attempts = attempts();
+            final long errors = errors();
+            final long timeouts = timeouts();
+            final Histogram timeToFirstByte = downloadMetrics.getTimeToFirstByte();
+            final long latencyCount = timeToFirstByte.getCount() - lastLatencyCount;
+            final double latencyMillis = latencyCount == 0 ? 0
+                    : (timeToFirstByte.getSumSeconds() - lastLatencySeconds) * 1000 / latencyCount;
+            final double throughput = (bytes - lastBytes) * 1000.0 / interval;
+
+            final int limit = executor.getLimit();
+            final int next = nextLimit(limit, attempts - lastAttempts, errors - lastErrors, timeouts - lastTimeouts,
+                                       latencyMillis, throughput);
+            if (next != limit) {
+                log.info("Concurrent downloads {} from {} to {}", next > limit ? "increased" : "decreased", limit,
+                         next);
+                executor.setLimit(next);
+            }
+            increased = next > limit;
+            if (throughput > 0) {
+                lastThroughput = throughput;
+            }
+            snapshot();
+        } catch (RuntimeException e) {
+            log.warn("Unable to adjust the number of concurrent downloads. Exception: {}", e.getMessage());
+        }
+    }
+
+    private int nextLimit(int limit, long attempts, long errors, long timeouts, double latencyMillis,
+                          double throughput) {
+
+        final boolean latencyHigh = latencyBaseline > 0 && latencyMillis > latencyBaseline * latencyTolerance;
+        if (latencyMillis > 0) {
+            latencyBaseline = latencyBaseline == 0 ? latencyMillis
+                    : Math.min(latencyMillis, latencyBaseline * BASELINE_DRIFT);
+        }
+
+        if (timeouts > 0 || (attempts > 0 && (double) errors / attempts > maxErrorRate) || latencyHigh) {
+            log.debug("Congestion: {} timeouts, {} errors out of {} attempts, {} ms to first byte (baseline {} ms)",
+                      timeouts, errors, attempts, latencyMillis, latencyBaseline);
+            return bounded((int) Math.floor(limit * decreaseFactor));
+        }
+
+        final boolean waiting = executor.getQueuedCount() > 0;
+        final boolean throughputDropped = increased && throughput < lastThroughput * (1 - THROUGHPUT_TOLERANCE);
+        return waiting && !throughputDropped ? bounded(limit + 1) : limit;
+    }
+
+    private long attempts() {
+        return sum(downloadMetrics.getResults()) + sum(downloadMetrics.getRetries());
+    }
+
+    private long errors() {
+        return downloadMetrics.getTransportFailures();
+    }
+
+    private long timeouts() {
+        return downloadMetrics.getTimeouts();
+    }
+
+    private void snapshot() {
+
+        lastBytes = downloadMetrics.getBytesTotal();
+        lastAttempts = attempts();
+        lastErrors = errors();
+        lastTimeouts = timeouts();
+        lastLatencyCount = downloadMetrics.getTimeToFirstByte().getCount();
+        lastLatencySeconds = downloadMetrics.getTimeToFirstByte().getSumSeconds();
+    }
+
+    private static long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.abhishekjain.filedownloader.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor for the download tasks that runs at most {@link #limit} of them at once on an underlying engine, and at
+ * most {@link #maxPerHost} of them against the same host.
+ * <p>
+ * Tasks over the limits wait in a queue per host and are dispatched as running ones complete, so submitting never
+ * blocks and never runs a download on the submitting thread. Hosts are served round-robin: a batch dominated by one
+ * host neither hammers it nor holds the downloads of every other host behind it.
+ * </p>
+ * <p>
+ * Once the engine is shut down, the tasks taken or left in the queues are dropped, and the {@link RejectableTask}s
+ * among them are told so, instead of failing the thread that happens to dispatch them.
+ * </p>
+ * <p>
+ * Two engines are supported:
+ * <ul>
+ * <li><b>pool</b> : a fixed pool of platform threads, the limit being capped at the pool size.</li>
+ * <li><b>virtual</b> : a new virtual thread per download (JDK 21+). Thousands of slow, latency bound downloads can
+ * then be in flight at once without a platform thread each. Falls back to <b>pool</b> on older JDKs.</li>
+ * </ul>
+ * </p>
+ */
+public class DownloadExecutor implements Executor {
+    private static final Logger log = LoggerFactory.getLogger(DownloadExecutor.class);
+
+    public static final String POOL_MODE = "pool";
+    public static final String VIRTUAL_MODE = "virtual";
+
+    private static final String NO_HOST = "";
+
+    private final ExecutorService engine;
+    private final int maxPerHost;
+    private final Map<String, Queue<Runnable>> queues = new HashMap<>();
+    private final Map<String, Integer> activePerHost = new HashMap<>();
+    private final Queue<String> hostRotation = new ArrayDeque<>();
+    private int active;
+    private int queued;
+    private volatile int limit;
+
+    public DownloadExecutor(ExecutorService engine, int limit) {
+        this(engine, limit, 0);
+    }
+
+    /**
+     * @param engine     The engine running the tasks
+     * @param limit      Maximum number of tasks running at once
+     * @param maxPerHost Maximum number of tasks running at once against the same host, not capped if not positive
+     */
+    public DownloadExecutor(ExecutorService engine, int limit, int maxPerHost) {
+        this.engine = engine;
+        this.limit = Math.max(1, limit);
+        this.maxPerHost = maxPerHost > 0 ? maxPerHost : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates the executor for the configured mode.
+     *
+     * @param mode          {@link #POOL_MODE} or {@link #VIRTUAL_MODE}
+     * @param poolSize      Number of platform threads of the pool mode
+     * @param maxConcurrent Global cap on concurrently running downloads, not capped if not positive
+     * @param maxPerHost    Cap on concurrently running downloads per host, not capped if not positive
+     * @return The executor
+     */
+    public static DownloadExecutor create(String mode, int poolSize, int maxConcurrent, int maxPerHost) {
+
+        final int cap = maxConcurrent > 0 ? maxConcurrent : Integer.MAX_VALUE;
+
+        if (VIRTUAL_MODE.equalsIgnoreCase(mode)) {
+            try {
+                final ExecutorService virtualThreads = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+                log.info("Initialized virtual thread per download executor capped at :{}, per host :{}", cap,
+                         maxPerHost);
+                return new DownloadExecutor(virtualThreads, cap, maxPerHost);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                log.warn("Virtual threads are not available on this JDK. Falling back to a pool of {} threads",
+                         poolSize);
+            }
+        }
+
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 1000, TimeUnit.MILLISECONDS,
+                                                               new LinkedBlockingQueue<>());
+        log.info("Initialized task pool [for parallel download] of size :{}, per host :{}", poolSize, maxPerHost);
+        return new DownloadExecutor(pool, Math.min(poolSize, cap), maxPerHost);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(NO_HOST, task);
+    }
+
+    /**
+     * Queues the task behind the other tasks of the same host.
+     *
+     * @param host The host the task downloads from
+     * @param task The download task
+     */
+    public void execute(String host, Runnable task) {
+
+        if (engine.isShutdown()) {
+            throw new RejectedExecutionException("Download executor has been shut down");
+        }
+        final String key = host == null ? NO_HOST : host;
+        synchronized (this) {
+            queues.computeIfAbsent(key, k -> {
+                hostRotation.add(k);
+                return new ArrayDeque<>();
+            }).add(task);
+            queued++;
+        }
+        dispatch();
+    }
+
+    /**
+     * @param host The host the tasks download from
+     * @return View of this executor queueing every task for #host
+     */
+    public Executor forHost(String host) {
+        return task -> execute(host, task);
+    }
+
+    /**
+     * Changes the number of downloads allowed to run at once. Queued tasks are dispatched right away if the limit
+     * grows, running ones are never interrupted if it shrinks.
+     *
+     * @param limit The new limit, at least 1
+     */
+    public void setLimit(int limit) {
+
+        this.limit = Math.max(1, limit);
+        dispatch();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public boolean isShutdown() {
+        return engine.isShutdown();
+    }
+
+    /**
+     * Drops the queued tasks and interrupts the running ones. The {@link RejectableTask}s that never started are told
+     * they are dropped.
+     *
+     * @return The tasks that never started
+     */
+    public List<Runnable> shutdownNow() {
+
+        // Drained first, so that running tasks interrupted below find nothing left to dispatch
+        final List<Runnable> dropped = drainQueues();
+        for (Runnable task : engine.shutdownNow()) {
+            if (task instanceof Dispatched) {
+                finished(((Dispatched) task).host);
+                dropped.add(((Dispatched) task).task);
+            } else {
+                dropped.add(task);
+            }
+        }
+        reject(dropped, new RejectedExecutionException("Download executor has been shut down"));
+        return dropped;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return engine.awaitTermination(timeout, unit);
+    }
+
+    private void dispatch() {
+
+        while (true) {
+            final String host;
+            final Runnable next;
+            synchronized (this) {
+                host = nextHost();
+                if (host == null) {
+                    return;
+                }
+                final Queue<Runnable> queue = queues.get(host);
+                next = queue.poll();
+                if (queue.isEmpty()) {
+                    queues.remove(host);
+                } else {
+                    hostRotation.add(host);
+                }
+                queued--;
+                active++;
+                activePerHost.merge(host, 1, Integer::sum);
+            }
+
+            try {
+                engine.execute(new Dispatched(host, next));
+            } catch (RejectedExecutionException e) {
+                // Engine shut down: neither this task nor the queued ones will ever run
+                finished(host);
+                final List<Runnable> dropped = new ArrayList<>();
+                dropped.add(next);
+                dropped.addAll(drainQueues());
+                reject(dropped, e);
+                return;
+            }
+        }
+    }
+
+    private synchronized List<Runnable> drainQueues() {
+
+        final List<Runnable> drained = new ArrayList<>(queued);
+        queues.values().forEach(drained::addAll);
+        queues.clear();
+        hostRotation.clear();
+        queued = 0;
+        return drained;
+    }
+
+    private static void reject(List<Runnable> dropped, RejectedExecutionException e) {
+
+        if (!dropped.isEmpty()) {
+            log.warn("Dropping {} download tasks. {}", dropped.size(), e.getMessage());
+        }
+        dropped.forEach(task -> RejectableTask.reject(task, e));
+    }
+
+    /**
+     * Takes the next host in rotation with a queued task and room for one more running task.
+     * Hosts at their cap are moved to the back of the rotation.
+     *
+     * @return The host to dispatch a task of, null if there is none or the global limit is reached
+     */
+    private String nextHost() {
+
+        if (active >= limit) {
+            return null;
+        }
+        for (int i = hostRotation.size(); i > 0; i--) {
+            final String host = hostRotation.poll();
+            if (activePerHost.getOrDefault(host, 0) < maxPerHost) {
+                return host;
+            }
+            hostRotation.add(host);
+        }
+        return null;
+    }
+
+    private void release(String host) {
+
+        finished(host);
+        dispatch();
+    }
+
+    private synchronized void finished(String host) {
+
+        active--;
+        activePerHost.computeIfPresent(host, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Task handed over to the engine, releasing its slot once over.
+     */
+    private final class Dispatched implements Runnable {
+
+        private final String host;
+        private final Runnable task;
+
+        Dispatched(String host, Runnable task) {
+            this.host = host;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                task.run();
+            } finally {
+                release(host);
+            }
+        }
+    }
+}
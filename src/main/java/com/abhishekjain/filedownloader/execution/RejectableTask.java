@@ -0,0 +1,51 @@
+package com.abhishekjain.filedownloader.execution;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Task of a {@link DownloadExecutor} told when it is dropped without ever running, once the executor is shut down,
+ * so that the future waiting for it can be completed. A plain {@link Runnable} is dropped silently.
+ */
+public interface RejectableTask extends Runnable {
+
+    /**
+     * Called instead of {@link #run()} when the task is dropped.
+     *
+     * @param e The rejection of the task
+     */
+    void rejected(RejectedExecutionException e);
+
+    /**
+     * @param task       The task to run
+     * @param onRejected Called instead of #task when it is dropped
+     * @return Task running #task
+     */
+    static RejectableTask of(Runnable task, Consumer<RejectedExecutionException> onRejected) {
+
+        return new RejectableTask() {
+            @Override
+            public void run() {
+                task.run();
+            }
+
+            @Override
+            public void rejected(RejectedExecutionException e) {
+                onRejected.accept(e);
+            }
+        };
+    }
+
+    /**
+     * Tells #task it is dropped, if it is a {@link RejectableTask}.
+     *
+     * @param task The task dropped
+     * @param e    The rejection of the task
+     */
+    static void reject(Runnable task, RejectedExecutionException e) {
+
+        if (task instanceof RejectableTask) {
+            ((RejectableTask) task).rejected(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.abhishekjain.filedownloader.http;
+
+/**
+ * Snapshot of the statistics of the {@link PooledHttpClient} connection pool.
+ */
+public class HttpPoolStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final int leased;
+    private final int available;
+
+    public HttpPoolStatistics(long hits, long misses, int leased, int available) {
+        this.hits = hits;
+        this.misses = misses;
+        this.leased = leased;
+        this.available = available;
+    }
+
+    /**
+     * @return Number of requests served over an already open connection
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of requests that had to open a new connection
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Number of connections currently in use
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return Number of idle connections kept alive in the pool
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpPoolStatistics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", leased=" + leased +
+                ", available=" + available +
+                '}';
+    }
+}
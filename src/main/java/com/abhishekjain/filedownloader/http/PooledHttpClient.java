@@ -0,0 +1,129 @@
+package com.abhishekjain.filedownloader.http;
+
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP client keeping a bounded pool of keep-alive connections per host, reused across the downloads.
+ * <p>
+ * Connections idle for longer than {@link #idleTimeout} milliseconds are evicted. Every request served over an
+ * already open connection counts as a pool hit, every request that had to open a new connection as a miss.
+ * </p>
+ */
+@Component
+public class PooledHttpClient {
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpClient.class);
+
+    @Value("${download.http.pool.enabled}")
+    private boolean enabled;
+
+    @Value("${download.http.pool.max.per.host}")
+    private int maxPerHost;
+
+    @Value("${download.http.pool.max.total}")
+    private int maxTotal;
+
+    @Value("${download.http.pool.idle.timeout}")
+    private long idleTimeout;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    @PostConstruct
+    protected void init() {
+
+        if (!enabled) {
+            log.info("HTTP connection pooling is disabled");
+            return;
+        }
+
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory = (route, config) -> {
+            connectionsOpened.increment();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        };
+        connectionManager = new PoolingHttpClientConnectionManager(connectionFactory);
+        connectionManager.setDefaultMaxPerRoute(maxPerHost);
+        connectionManager.setMaxTotal(maxTotal);
+
+        httpClient = HttpClients.custom()
+                                .setConnectionManager(connectionManager)
+                                .addInterceptorFirst((HttpRequestInterceptor) (request, context) ->
+                                        requests.increment())
+                                // Files are saved as served, never transparently decompressed
+                                .disableContentCompression()
+                                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+                                .evictExpiredConnections()
+                                .build();
+
+        log.info("Initialized HTTP connection pool of {} connections per host, {} in total", maxPerHost, maxTotal);
+    }
+
+    /**
+     * @param url Url to download from
+     * @return true if the url is fetched through the pool
+     */
+    public boolean handles(URL url) {
+
+        return httpClient != null
+                && ("http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol()));
+    }
+
+    /**
+     * Opens a connection to the url served by the pool. Like any {@link URLConnection} it is not yet connected, so
+     * that the caller can still set the request method, request properties and timeouts on it.
+     *
+     * @param url Url to which connection is to be opened
+     * @return @{@link URLConnection} to the url provided
+     */
+    public URLConnection openConnection(URL url) {
+        return new PooledHttpURLConnection(url, httpClient);
+    }
+
+    /**
+     * @return Snapshot of the pool hit/miss statistics
+     */
+    public HttpPoolStatistics getStatistics() {
+
+        final long total = requests.sum();
+        final long misses = connectionsOpened.sum();
+        final PoolStats stats = connectionManager == null ? new PoolStats(0, 0, 0, 0)
+                : connectionManager.getTotalStats();
+        return new HttpPoolStatistics(Math.max(0, total - misses), misses, stats.getLeased(), stats.getAvailable());
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (httpClient == null) {
+            return;
+        }
+        log.info("Closing HTTP connection pool. {}", getStatistics());
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Unable to close HTTP connection pool. Exception: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.abhishekjain.filedownloader.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HttpURLConnection} executing its request on the {@link PooledHttpClient}, so that the code written against
+ * {@link java.net.URLConnection} (range requests, validators, HEAD probes) reuses the pooled connections as is.
+ * <p>
+ * Closing the input stream once fully read hands the connection back to the pool. Closing it early, as an aborted
+ * download does, or {@link #disconnect() disconnecting} aborts the request and closes the connection, rather than
+ * reading the rest of the content to keep the connection.
+ * </p>
+ */
+class PooledHttpURLConnection extends HttpURLConnection {
+
+    private final CloseableHttpClient httpClient;
+    private HttpRequestBase request;
+    private CloseableHttpResponse response;
+
+    PooledHttpURLConnection(URL url, CloseableHttpClient httpClient) {
+        super(url);
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public void connect() throws IOException {
+
+        if (connected) {
+            return;
+        }
+
+        try {
+            request = "HEAD".equals(method) ? new HttpHead(url.toURI()) : new HttpGet(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid url: " + url, e);
+        }
+        getRequestProperties().forEach((name, values) -> values.forEach(value -> request.addHeader(name, value)));
+        request.setConfig(RequestConfig.custom()
+                                       .setConnectTimeout(getConnectTimeout())
+                                       .setConnectionRequestTimeout(getConnectTimeout())
+                                       .setSocketTimeout(getReadTimeout())
+                                       .setRedirectsEnabled(getInstanceFollowRedirects())
+                                       .build());
+
+        response = httpClient.execute(request);
+        responseCode = response.getStatusLine().getStatusCode();
+        responseMessage = response.getStatusLine().getReasonPhrase();
+        connected = true;
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+
+        connect();
+        return responseCode;
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+
+        connect();
+        return responseMessage;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+
+        connect();
+        if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+            response.close();
+            throw new FileNotFoundException(url.toString());
+        }
+        if (responseCode >= HTTP_BAD_REQUEST) {
+            response.close();
+            throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+        }
+        return content();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+
+        if (!connected || responseCode < HTTP_BAD_REQUEST) {
+            return null;
+        }
+        try {
+            return content();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+
+        if (!connectQuietly()) {
+            return null;
+        }
+        // Like HttpURLConnection, the last value wins for headers sent more than once
+        final Header header = response.getLastHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    @Override
+    public String getHeaderFieldKey(int n) {
+
+        if (!connectQuietly() || n <= 0 || n > response.getAllHeaders().length) {
+            return null;
+        }
+        return response.getAllHeaders()[n - 1].getName();
+    }
+
+    @Override
+    public String getHeaderField(int n) {
+
+        if (!connectQuietly() || n < 0 || n > response.getAllHeaders().length) {
+            return null;
+        }
+        return n == 0 ? response.getStatusLine().toString() : response.getAllHeaders()[n - 1].getValue();
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+
+        if (!connectQuietly()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, List<String>> fields = new LinkedHashMap<>();
+        fields.put(null, Collections.singletonList(response.getStatusLine().toString()));
+        for (Header header : response.getAllHeaders()) {
+            fields.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    @Override
+    public void disconnect() {
+
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (IOException ignored) {
+            // Connection is discarded anyway
+        }
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+    private InputStream content() throws IOException {
+
+        final HttpEntity entity = response.getEntity();
+        return entity == null ? new ByteArrayInputStream(new byte[0])
+                : new AbortableInputStream(entity.getContent(), entity.getContentLength());
+    }
+
+    /**
+     * Content stream aborting the request when closed before the whole content is read.
+     */
+    private class AbortableInputStream extends FilterInputStream {
+
+        private final long length;
+        private long count;
+        private boolean eof;
+
+        /**
+         * @param length Length of the content, negative if unknown
+         */
+        AbortableInputStream(InputStream inputStream, long length) {
+            super(inputStream);
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            final int read = super.read();
+            if (read == -1) {
+                eof = true;
+            } else {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            final int read = super.read(b, off, len);
+            if (read == -1) {
+                eof = true;
+            } else {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (eof || (length >= 0 && count >= length)) {
+                super.close();
+                return;
+            }
+            request.abort();
+            response.close();
+        }
+    }
+
+    private boolean connectQuietly() {
+
+        try {
+            connect();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.abhishekjain.filedownloader.journal;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of the download state of every source of a batch, kept in the output directory.
+ * <p>
+ * Every state change is appended as one line:
+ * <pre>
+ *   &lt;state&gt;\t&lt;sha1hex of source&gt;\t&lt;bytes&gt;\t&lt;checksum&gt;
+ * </pre>
+ * where bytes is the file size for {@link State#COMPLETED}, and 0 for the other states. The journal only drives the
+ * skipping of the completed sources: a source in progress is resumed from the length of its <i>.part</i> file, which
+ * holds only the bytes written (see {@link com.abhishekjain.filedownloader.manager.PartialDownloadResumer}).
+ * The last line of a source wins. Lines are forced to disk in batches of {@link #syncBatch} records, the
+ * {@link DownloadJournalRegistry} forces the rest periodically. A torn last line of a crashed process is skipped
+ * while loading, and the journal is rewritten compacted when it holds mostly superseded lines.
+ * </p>
+ * <p>
+ * Only the sources of the running batches are kept in memory: they are {@link #load(Collection) loaded} by streaming
+ * the journal file, and {@link #release(Collection) released} once over.
+ * </p>
+ */
+public class DownloadJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DownloadJournal.class);
+
+    static final String FILE_NAME = ".download-journal";
+
+    private static final String SEPARATOR = "\t";
+    private static final String NO_CHECKSUM = "-";
+    // State of a loaded source that has no record yet
+    private static final Entry UNRECORDED = new Entry(null, -1, null);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Path file;
+    private final FileChannel channel;
+    private final int syncBatch;
+    private int unsynced;
+
+    private DownloadJournal(Path file, FileChannel channel, int syncBatch) {
+        this.file = file;
+        this.channel = channel;
+        this.syncBatch = syncBatch;
+    }
+
+    /**
+     * Opens the journal of the directory, creating it if missing. No source is loaded yet.
+     *
+     * @param directory Output directory of the batch
+     * @param syncBatch Number of records after which the journal is forced to disk
+     * @return The journal ready to append to
+     * @throws IOException If journal can not be read or opened for append
+     */
+    static DownloadJournal open(Path directory, int syncBatch) throws IOException {
+
+        Files.createDirectories(directory);
+        final Path journalFile = directory.resolve(FILE_NAME);
+        if (Files.exists(journalFile)) {
+            compactIfSuperseded(journalFile);
+        }
+
+        log.info("Opened download journal: {}", journalFile);
+        return new DownloadJournal(journalFile, FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                                                                 StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                                   syncBatch);
+    }
+
+    /**
+     * @return Journal that keeps no record, used when journaling is disabled
+     */
+    public static DownloadJournal disabled() {
+        return new DownloadJournal(null, null, 0);
+    }
+
+    /**
+     * Loads the last recorded state of the sources, streaming the journal file once. Sources already loaded keep
+     * their state. Only the loaded sources have their new state kept in memory as well.
+     *
+     * @param sources Source urls about to be downloaded
+     */
+    public synchronized void load(Collection<String> sources) {
+
+        if (channel == null) {
+            return;
+        }
+        final Set<String> keys = sources.stream()
+                                        .map(DownloadJournal::key)
+                                        .filter(key -> !entries.containsKey(key))
+                                        .collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        final Map<String, Entry> loaded = new HashMap<>();
+        keys.forEach(key -> loaded.put(key, UNRECORDED));
+        try (Stream<String> records = Files.lines(file, StandardCharsets.UTF_8)) {
+            records.forEach(record -> {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                if (fields.length == 4 && keys.contains(fields[1])) {
+                    final Entry entry = parse(record, fields);
+                    if (entry != null) {
+                        loaded.put(fields[1], entry);
+                    }
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // Sources that are not loaded are only downloaded again
+            log.warn("Unable to load download journal: {}. Exception: {}", file, e.getMessage());
+        }
+        entries.putAll(loaded);
+        log.debug("Loaded {} sources from download journal: {}", keys.size(), file);
+    }
+
+    /**
+     * Forgets the state of the sources, which is still recorded in the journal file.
+     *
+     * @param sources Source urls whose downloads are over
+     */
+    public void release(Collection<String> sources) {
+        sources.forEach(source -> entries.remove(key(source)));
+    }
+
+    /**
+     * @param source         Source url of the download
+     * @param downloadedSize Size of the file currently saved for the source, -1 if there is none
+     * @return true if the source completed in an earlier run and its file is still there in full
+     */
+    public boolean isCompleted(String source, long downloadedSize) {
+
+        final Entry entry = entry(source);
+        return downloadedSize >= 0 && entry != null && entry.getState() == State.COMPLETED
+                && entry.getBytes() == downloadedSize;
+    }
+
+    /**
+     * @param source Source url of the download
+     * @return The last recorded state of the source, null if it has none or is not loaded
+     */
+    public Entry entry(String source) {
+
+        final Entry entry = entries.get(key(source));
+        return entry == UNRECORDED ? null : entry;
+    }
+
+    public void pending(String source) {
+        record(source, new Entry(State.PENDING, 0, null));
+    }
+
+    public void inProgress(String source) {
+        record(source, new Entry(State.IN_PROGRESS, 0, null));
+    }
+
+    /**
+     * @param source   Source url of the download
+     * @param size     Size of the downloaded file
+     * @param checksum Checksum of the downloaded file as <b>algorithm=value</b>, null if none was computed
+     */
+    public void completed(String source, long size, String checksum) {
+        record(source, new Entry(State.COMPLETED, size, checksum));
+    }
+
+    /**
+     * Forces the appended records to disk.
+     */
+    public synchronized void sync() {
+
+        if (channel == null || unsynced == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            log.warn("Unable to sync download journal. Exception: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (channel != null) {
+            sync();
+            channel.close();
+        }
+    }
+
+    private synchronized void record(String source, Entry entry) {
+
+        final String key = key(source);
+        if (channel == null) {
+            entries.put(key, entry);
+            return;
+        }
+        entries.replace(key, entry);
+
+        try {
+            final ByteBuffer line = ByteBuffer.wrap(line(key, entry).getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (++unsynced >= syncBatch) {
+                sync();
+            }
+        } catch (IOException e) {
+            // Journal is best effort. A lost record only means the source is downloaded again in the next run
+            log.warn("Unable to append to download journal for source: {}. Exception: {}", source, e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the journal with the last line of each source, when it holds more than twice as many lines as
+     * sources. The sources are counted by the first 64 bits of their key, so that only 8 bytes per line are held
+     * to decide, the rewrite itself holding the last line of every source.
+     */
+    private static void compactIfSuperseded(Path journalFile) throws IOException {
+
+        long[] keys = new long[1024];
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            for (String record = reader.readLine(); record != null; record = reader.readLine()) {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                if (fields.length != 4 || fields[1].length() < 16) {
+                    continue;
+                }
+                if (lines == keys.length) {
+                    keys = Arrays.copyOf(keys, lines * 2);
+                }
+                keys[lines++] = Long.parseUnsignedLong(fields[1].substring(0, 16), 16);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Not compacting download journal: {} holding an unreadable key", journalFile);
+            return;
+        }
+
+        Arrays.sort(keys, 0, lines);
+        int sources = lines == 0 ? 0 : 1;
+        for (int i = 1; i < lines; i++) {
+            if (keys[i] != keys[i - 1]) {
+                sources++;
+            }
+        }
+        if (lines > 2 * sources) {
+            compact(journalFile);
+        }
+    }
+
+    private static void compact(Path journalFile) throws IOException {
+
+        final Map<String, Entry> latest = new LinkedHashMap<>();
+        try (Stream<String> records = Files.lines(journalFile, StandardCharsets.UTF_8)) {
+            records.forEach(record -> {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                final Entry entry = fields.length == 4 ? parse(record, fields) : null;
+                if (entry != null) {
+                    latest.put(fields[1], entry);
+                }
+            });
+        }
+
+        final Path compacted = journalFile.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : latest.entrySet()) {
+                writer.write(line(entry.getKey(), entry.getValue()));
+            }
+        }
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            out.force(false);
+        }
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted download journal: {} to {} sources", journalFile, latest.size());
+    }
+
+    private static Entry parse(String record, String[] fields) {
+
+        try {
+            return new Entry(State.valueOf(fields[0]), Long.parseLong(fields[2]),
+                             NO_CHECKSUM.equals(fields[3]) ? null : fields[3]);
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping unreadable journal record: {}", record);
+            return null;
+        }
+    }
+
+    private static String line(String key, Entry entry) {
+
+        return entry.getState() + SEPARATOR + key + SEPARATOR + entry.getBytes() + SEPARATOR
+                + StringUtils.defaultString(entry.getChecksum(), NO_CHECKSUM) + "\n";
+    }
+
+    private static String key(String source) {
+        return DigestUtils.sha1Hex(source);
+    }
+
+    /**
+     * State of a source in the journal
+     */
+    public enum State {
+        PENDING, IN_PROGRESS, COMPLETED
+    }
+
+    /**
+     * Last recorded state of a source
+     */
+    public static class Entry {
+
+        private final State state;
+        private final long bytes;
+        private final String checksum;
+
+        Entry(State state, long bytes, String checksum) {
+            this.state = state;
+            this.bytes = bytes;
+            this.checksum = checksum;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public String getChecksum() {
+            return checksum;
+        }
+    }
+}
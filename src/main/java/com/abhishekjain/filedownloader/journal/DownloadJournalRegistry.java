@@ -0,0 +1,102 @@
+package com.abhishekjain.filedownloader.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link DownloadJournal} open per output directory and forces their appended records to disk
+ * every {@link #syncInterval} milliseconds.
+ */
+@Component
+public class DownloadJournalRegistry {
+    private static final Logger log = LoggerFactory.getLogger(DownloadJournalRegistry.class);
+
+    @Value("${download.journal.enabled}")
+    private boolean enabled;
+
+    @Value("${download.journal.sync.interval}")
+    private long syncInterval;
+
+    @Value("${download.journal.sync.batch}")
+    private int syncBatch;
+
+    private final Map<Path, DownloadJournal> journals = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    protected void init() {
+
+        if (!enabled) {
+            log.info("Download journal is disabled");
+            return;
+        }
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("journal-sync-");
+        threadFactory.setDaemon(true);
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        syncExecutor.scheduleWithFixedDelay(() -> journals.values().forEach(DownloadJournal::sync), syncInterval,
+                                            syncInterval, TimeUnit.MILLISECONDS);
+
+        log.info("Initialized download journal syncing every {} ms or {} records", syncInterval, syncBatch);
+    }
+
+    /**
+     * Opens the journal of the directory. Falls back to a journal keeping no record if it is disabled or
+     * can not be opened, so that downloads never fail because of the journal.
+     *
+     * @param outputDirectory The directory where the downloaded files are saved
+     * @return The journal of the directory
+     */
+    public DownloadJournal open(String outputDirectory) {
+
+        if (!enabled) {
+            return DownloadJournal.disabled();
+        }
+
+        final Path directory = Paths.get(outputDirectory).toAbsolutePath().normalize();
+        try {
+            return journals.computeIfAbsent(directory, path -> {
+                try {
+                    return DownloadJournal.open(path, syncBatch);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            log.warn("Unable to open download journal in directory: {}. Exception: {}", directory,
+                     e.getCause().getMessage());
+            return DownloadJournal.disabled();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        journals.values().forEach(journal -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Unable to close download journal. Exception: {}", e.getMessage());
+            }
+        });
+        journals.clear();
+    }
+}
@@ -0,0 +1,164 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.checksum.ChecksumAlgorithm;
+import com.abhishekjain.filedownloader.checksum.ChecksumVerifier;
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataRegistry;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataStore;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Skips the download of sources that did not change since the file saved for them was downloaded.
+ * <p>
+ * The {@link SourceMetadata} of every completed download is kept in the {@link SourceMetadataStore} of the output
+ * directory. When the file saved for a source still has the recorded size, the source is requested with
+ * <pre>
+ *   If-None-Match: &lt;etag&gt;
+ *   If-Modified-Since: &lt;last modified&gt;
+ * </pre>
+ * and the server either answers 304 without a body, or the full changed body (200) which is then used as is.
+ * </p>
+ * A source with an expected checksum is only revalidated when the file saved for it has that checksum: a file that
+ * was altered since keeps its size and validators, and a 304 would have it reported as not modified.
+ */
+@Component
+public class ConditionalDownloader {
+    private static final Logger log = LoggerFactory.getLogger(ConditionalDownloader.class);
+
+    @Autowired
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    @Autowired
+    private SourceMetadataRegistry sourceMetadataRegistry;
+
+    @Value("${download.conditional.enabled}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Revalidates the file saved for the source. The recorded metadata is dropped once the source answered with its
+     * changed body, as the file is about to be downloaded again. It is kept when the conditional request fails.
+     *
+     * @param source           Source url to download the file from
+     * @param sourceUrl        Parsed #source
+     * @param downloadFile     The file saved for the source
+     * @param outputDirectory  The directory where the downloaded files are saved
+     * @param expectedChecksum The checksum the file must have, null if there is none to verify
+     * @return The outcome of the revalidation
+     * @throws IOException If the conditional request fails
+     */
+    public Revalidation revalidate(String source, URL sourceUrl, File downloadFile, String outputDirectory,
+                                   Checksum expectedChecksum) throws IOException {
+
+        final SourceMetadataStore store = sourceMetadataRegistry.open(outputDirectory);
+        final SourceMetadata cached = store.get(source);
+        if (cached == null) {
+            return Revalidation.NONE;
+        }
+        if (cached.getSize() != downloadFile.length()) {
+            return Revalidation.NONE;
+        }
+        if (expectedChecksum != null && !expectedChecksum.equals(ChecksumVerifier.checksumOf(
+                ChecksumAlgorithm.of(expectedChecksum.getAlgorithm()), downloadFile))) {
+            log.info("File: {} saved for source: {} does not have its expected checksum", downloadFile, sourceUrl);
+            return Revalidation.NONE;
+        }
+
+        final URLConnection connection = fileDownloaderUtils.openConnection(sourceUrl);
+        if (!(connection instanceof HttpURLConnection)) {
+            return Revalidation.NONE;
+        }
+
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        if (cached.getEtag() != null) {
+            httpConnection.setRequestProperty("If-None-Match", cached.getEtag());
+        }
+        if (cached.getLastModified() != null) {
+            httpConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+        }
+
+        if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            httpConnection.disconnect();
+            return Revalidation.NOT_MODIFIED;
+        }
+
+        final InputStream inputStream = fileDownloaderUtils.inputStream(httpConnection);
+        store.remove(source);
+        log.info("Source: {} changed since its last download", sourceUrl);
+        return new Revalidation(inputStream, httpConnection.getContentLengthLong(), SourceMetadata.of(httpConnection));
+    }
+
+    /**
+     * Records the metadata of a completed download.
+     *
+     * @param source          Source url of the download
+     * @param outputDirectory The directory where the downloaded files are saved
+     * @param metadata        Validators the source was served with, null if there were none
+     * @param downloadFile    The downloaded file
+     */
+    public void completed(String source, String outputDirectory, SourceMetadata metadata, File downloadFile) {
+
+        if (metadata == null || !metadata.hasValidator()) {
+            return;
+        }
+        sourceMetadataRegistry.open(outputDirectory).put(source, metadata.withSize(downloadFile.length()));
+    }
+
+    /**
+     * Outcome of a revalidation: the source is either not modified, changed with its body already on the way, or
+     * could not be revalidated.
+     */
+    public static class Revalidation {
+
+        static final Revalidation NONE = new Revalidation(null, -1, null);
+        static final Revalidation NOT_MODIFIED = new Revalidation(null, -1, null);
+
+        private final InputStream inputStream;
+        private final long contentLength;
+        private final SourceMetadata metadata;
+
+        Revalidation(InputStream inputStream, long contentLength, SourceMetadata metadata) {
+            this.inputStream = inputStream;
+            this.contentLength = contentLength;
+            this.metadata = metadata;
+        }
+
+        public boolean isNotModified() {
+            return this == NOT_MODIFIED;
+        }
+
+        /**
+         * @return Stream of the changed source, null if it is not modified or could not be revalidated
+         */
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        /**
+         * @return Length of the changed source, -1 if it is not known
+         */
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public SourceMetadata getMetadata() {
+            return metadata;
+        }
+    }
+}
@@ -2,11 +2,33 @@ package com.abhishekjain.filedownloader.manager;
 
 import com.abhishekjain.filedownloader.model.FileDownloadResult;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 /**
- * The interface defining single method : {@link #downloadFromSource(String, String)}
+ * The interface defining the method : {@link #downloadFromSource(String, String)}
  * The implementations would do the core heavyweight task of opening the stream
  * and creating Channels and perform the IO.
  */
 public interface DownloadManager {
     FileDownloadResult downloadFromSource(String source, String outputDirectory);
+
+    /**
+     * Downloads the source on #executor. By default a single task runs {@link #downloadFromSource(String, String)};
+     * implementations may split the download into several tasks, e.g. to retry it later without holding a thread.
+     *
+     * @param source          Source url to download the file from
+     * @param outputDirectory The final directory to save the downloaded file
+     * @param executor        Executor of the download tasks
+     * @return Future of the final result of downloading the file, its duration included
+     */
+    default CompletableFuture<FileDownloadResult> downloadFromSourceAsync(String source, String outputDirectory,
+                                                                          Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            final long start = System.nanoTime();
+            final FileDownloadResult result = downloadFromSource(source, outputDirectory);
+            return result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }, executor);
+    }
 }
@@ -0,0 +1,182 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Opens the source stream so that an already partially downloaded file is continued instead of restarted.
+ * <p>
+ * The validator of the response, its ETag unless weak, else its Last-Modified date, is kept in a <i>.validator</i>
+ * sidecar next to the partial file, weak ETags being unusable with <i>If-Range</i>. A later attempt, in the same run or in a later one, sends
+ * <pre>
+ *   Range: bytes=&lt;partial length&gt;-
+ *   If-Range: &lt;validator&gt;
+ * </pre>
+ * so that the server either returns the missing bytes (206) or, if the source changed meanwhile, the full body (200).
+ * A 206 whose <i>Content-Range</i> does not start right after the partial bytes fails the attempt, and the next
+ * one starts over.
+ * </p>
+ * Partial files without a validator are never continued, as there is no way to know they still match the source.
+ */
+@Component
+public class PartialDownloadResumer {
+    private static final Logger log = LoggerFactory.getLogger(PartialDownloadResumer.class);
+
+    private static final String VALIDATOR_SUFFIX = ".validator";
+
+    @Autowired
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    /**
+     * Opens the source stream continuing after the bytes already present in #partialFile.
+     *
+     * @param sourceUrl   Source url to download the file from
+     * @param partialFile The file being downloaded, possibly holding the bytes of an earlier attempt
+     * @return The opened stream along with the position in file its first byte is to be written at
+     * @throws IOException If stream can not be obtained
+     */
+    public ResumedStream open(URL sourceUrl, File partialFile) throws IOException {
+
+        final URLConnection connection = fileDownloaderUtils.openConnection(sourceUrl);
+        if (!(connection instanceof HttpURLConnection)) {
+            return new ResumedStream(connection.getInputStream(), 0, connection.getContentLengthLong(), null);
+        }
+
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        final File validatorFile = validatorFile(partialFile);
+        final String validator = validatorFile.exists() ? FileUtils.readFileToString(validatorFile,
+                                                                                     StandardCharsets.UTF_8) : null;
+        final long partialLength = partialFile.length();
+        final boolean ranged = partialLength > 0 && StringUtils.isNotBlank(validator);
+
+        if (ranged) {
+            httpConnection.setRequestProperty("Range", "bytes=" + partialLength + "-");
+            httpConnection.setRequestProperty("If-Range", validator);
+        }
+
+        final int responseCode = httpConnection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+            final long start = rangeStart(httpConnection.getHeaderField("Content-Range"));
+            if (!ranged || start != partialLength) {
+                // Bytes that do not follow the partial file. Restart without range on the next attempt
+                httpConnection.disconnect();
+                FileUtils.deleteQuietly(validatorFile);
+                throw new IOException("Range starting at byte: " + start + " instead of byte: "
+                                              + (ranged ? partialLength : 0) + " for source: " + sourceUrl);
+            }
+            log.info("Resuming download for source: {} from byte: {}", sourceUrl, partialLength);
+            final long remaining = httpConnection.getContentLengthLong();
+            return new ResumedStream(httpConnection.getInputStream(), partialLength,
+                                     remaining < 0 ? remaining : partialLength + remaining,
+                                     SourceMetadata.of(httpConnection));
+        }
+
+        if (responseCode == 416) {
+            // Partial file does not fit the source anymore. Restart without range on the next attempt
+            httpConnection.disconnect();
+            FileUtils.deleteQuietly(validatorFile);
+            throw new IOException("Range not satisfiable for source: " + sourceUrl + " from byte: " + partialLength);
+        }
+
+        final InputStream inputStream = fileDownloaderUtils.inputStream(httpConnection);
+        saveValidator(httpConnection, validatorFile);
+        return new ResumedStream(inputStream, 0, httpConnection.getContentLengthLong(),
+                                 SourceMetadata.of(httpConnection));
+    }
+
+    /**
+     * Removes the sidecar once the download has completed and there is nothing left to resume.
+     *
+     * @param downloadedFile The downloaded file
+     */
+    public void completed(File downloadedFile) {
+
+        FileUtils.deleteQuietly(validatorFile(downloadedFile));
+    }
+
+    private void saveValidator(HttpURLConnection connection, File validatorFile) throws IOException {
+
+        final String etag = connection.getHeaderField("ETag");
+        // Weak ETags can not be used with If-Range
+        final String validator = StringUtils.isBlank(etag) || etag.startsWith("W/")
+                ? connection.getHeaderField("Last-Modified") : etag;
+        if (StringUtils.isBlank(validator)) {
+            FileUtils.deleteQuietly(validatorFile);
+            return;
+        }
+        FileUtils.writeStringToFile(validatorFile, validator, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param contentRange Content-Range header of a 206, e.g. <b>bytes 8-19/20</b>
+     * @return First byte of the range, -1 if the header is missing or malformed
+     */
+    private static long rangeStart(String contentRange) {
+
+        final String range = StringUtils.substringBetween(StringUtils.trim(contentRange), "bytes ", "-");
+        try {
+            return range == null ? -1 : Long.parseLong(range.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private File validatorFile(File partialFile) {
+        return new File(partialFile.getPath() + VALIDATOR_SUFFIX);
+    }
+
+    /**
+     * Stream of the source along with the position in file its first byte belongs at, the length the file will have
+     * and the validators it is served with.
+     */
+    public static class ResumedStream {
+
+        private final InputStream inputStream;
+        private final long position;
+        private final long length;
+        private final SourceMetadata metadata;
+
+        ResumedStream(InputStream inputStream, long position, long length, SourceMetadata metadata) {
+            this.inputStream = inputStream;
+            this.position = position;
+            this.length = length;
+            this.metadata = metadata;
+        }
+
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return Length of the file once the stream is transferred, -1 if the source did not tell its size
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return Validators of the source, null if it was served without any
+         */
+        public SourceMetadata getMetadata() {
+            return metadata;
+        }
+    }
+}
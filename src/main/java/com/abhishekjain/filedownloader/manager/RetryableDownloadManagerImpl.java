@@ -1,23 +1,52 @@
 package com.abhishekjain.filedownloader.manager;
 
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.buffer.PartialTransferException;
+import com.abhishekjain.filedownloader.checksum.ChecksumAlgorithm;
+import com.abhishekjain.filedownloader.checksum.ChecksumMismatchException;
+import com.abhishekjain.filedownloader.checksum.ChecksumVerifier;
+import com.abhishekjain.filedownloader.checksum.DigestingChannel;
+import com.abhishekjain.filedownloader.engine.DownloadEngines;
+import com.abhishekjain.filedownloader.execution.RejectableTask;
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.model.Checksum;
 import com.abhishekjain.filedownloader.model.DownloadStatus;
 import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.progress.DownloadProgress;
+import com.abhishekjain.filedownloader.progress.ProgressRegistry;
+import com.abhishekjain.filedownloader.retry.CircuitOpenException;
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
+import com.abhishekjain.filedownloader.transform.TransformPipeline;
+import com.abhishekjain.filedownloader.utils.DownloadOptions;
 import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The implementation class that performs core IO for downloading tasks
@@ -27,16 +56,53 @@ import java.nio.channels.ReadableByteChannel;
 public class RetryableDownloadManagerImpl implements DownloadManager {
     private static final Logger log = LoggerFactory.getLogger(RetryableDownloadManagerImpl.class);
 
+    private static final int PREFIX_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private RetryTemplate retryTemplate;
 
     @Autowired
     private FileDownloaderUtils fileDownloaderUtils;
 
+    @Autowired
+    private SegmentedDownloader segmentedDownloader;
+
+    @Autowired
+    private PartialDownloadResumer partialDownloadResumer;
+
+    @Autowired
+    private ConditionalDownloader conditionalDownloader;
+
+    @Autowired
+    private BandwidthThrottle bandwidthThrottle;
+
+    @Autowired
+    private TransformPipeline transformPipeline;
+
+    @Autowired
+    private ChecksumVerifier checksumVerifier;
+
+    @Autowired
+    private DownloadMetrics downloadMetrics;
+
+    @Autowired
+    private ProgressRegistry progressRegistry;
+
+    @Autowired
+    private RetryScheduler retryScheduler;
+
+    @Autowired
+    private ChunkedTransfer chunkedTransfer;
+
+    @Value("${download.resume.enabled}")
+    private boolean resumeEnabled;
+
     /**
      * The method wraps the downloading IO logic with Spring-Retry template.
      * This allows for retrying over the specified time in case of execeptions like
      * {@code {@link java.net.ConnectException}, {@link} {@link IOException}}
+     * The download, all its attempts included, is recorded in {@link DownloadMetrics} and its progress tracked in
+     * {@link ProgressRegistry}.
      *
      * @param source          Source url to download the file from
      * @param outputDirectory The final directory to save the downloaded file
@@ -45,56 +111,185 @@ public class RetryableDownloadManagerImpl implements DownloadManager {
     @Override
     public FileDownloadResult downloadFromSource(String source, String outputDirectory) {
 
+        final DownloadMetrics.Recording recording = downloadMetrics.start(progressRegistry.start(source));
+        final FileDownloadResult result = download(source, outputDirectory, recording);
+        recording.finished(result.getDownloadStatusStatus());
+        return result;
+    }
+
+    /**
+     * Non blocking counterpart of {@link #downloadFromSource(String, String)}: every attempt runs on #executor, and a
+     * failed one is handed over to the {@link RetryScheduler}, which submits the next attempt to #executor once its
+     * backoff is over, instead of sleeping on the download thread.
+     * <p>
+     * Failures are handled as by the blocking download: an attempt failing with any throwable that is not retried
+     * ends the download as its last attempt, and a failure to hand the download over to #executor or to the
+     * {@link RetryScheduler}, once either is shut down, ends it as non recoverable, as does an attempt dropped by
+     * #executor without running, when it is told so through {@link RejectableTask}. The future is always completed.
+     * </p>
+     *
+     * @param source          Source url to download the file from
+     * @param outputDirectory The final directory to save the downloaded file
+     * @param executor        Executor of the download attempts
+     * @return Future of the final result of downloading the file
+     */
+    @Override
+    public CompletableFuture<FileDownloadResult> downloadFromSourceAsync(String source, String outputDirectory,
+                                                                         Executor executor) {
+
+        final DownloadMetrics.Recording recording = downloadMetrics.start(progressRegistry.start(source));
+        final CompletableFuture<FileDownloadResult> result = new CompletableFuture<>();
+        attempt(source, outputDirectory, recording, executor, 1, 0, result);
+        return result.thenApply(downloadResult -> {
+            recording.finished(downloadResult.getDownloadStatusStatus());
+            return downloadResult;
+        });
+    }
+
+    private void attempt(String source, String outputDirectory, DownloadMetrics.Recording recording,
+                         Executor executor, int attempt, long startNanos,
+                         CompletableFuture<FileDownloadResult> result) {
+
+        try {
+            executor.execute(RejectableTask.of(() -> {
+                final long start = attempt == 1 ? System.nanoTime() : startNanos;
+                FileDownloadResult downloadResult;
+                try {
+                    downloadResult = attemptOrRetry(source, outputDirectory, recording, executor, attempt, start,
+                                                    result);
+                } catch (Throwable e) {
+                    downloadResult = nonRecoverable(source, outputDirectory, e);
+                }
+                if (downloadResult != null) {
+                    result.complete(downloadResult.setDurationMillis(
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+                }
+            }, e -> result.complete(nonRecoverable(source, outputDirectory, e))));
+        } catch (RejectedExecutionException e) {
+            result.complete(nonRecoverable(source, outputDirectory, e));
+        }
+    }
+
+    /**
+     * @return Result of the download, null if another attempt was scheduled
+     * @throws RejectedExecutionException If the next attempt cannot be scheduled
+     */
+    private FileDownloadResult attemptOrRetry(String source, String outputDirectory,
+                                              DownloadMetrics.Recording recording, Executor executor, int attempt,
+                                              long start, CompletableFuture<FileDownloadResult> result) {
+
+        try {
+            return downloadAndSave(source, outputDirectory, recording);
+        } catch (Throwable e) {
+            if (!retryScheduler.isRetryable(attempt, e)) {
+                downloadMetrics.failed(e);
+                return exhausted(source, outputDirectory, e);
+            }
+            final long delay = retryScheduler.delay(attempt, e);
+            log.info("Error occurred while downloading from source: {}. Hence retrying to download in " +
+                             "{} ms. Exception: {}", source, delay, e.getMessage());
+            downloadMetrics.retried(e);
+            retryScheduler.schedule(() -> attempt(source, outputDirectory, recording, executor,
+                                                  attempt + 1, start, result), delay);
+            return null;
+        }
+    }
+
+    private FileDownloadResult download(String source, String outputDirectory, DownloadMetrics.Recording recording) {
+
         try {
             return retryTemplate.execute(
-                    arg -> downloadAndSave(source, outputDirectory),
-                    arg -> {
-
-                        fileDownloaderUtils.deleteFileQuietly(source, outputDirectory);
-                        log.error(
-                                "Retry attempts exhausted to " +
-                                        "download from sources: {}." +
-                                        "Hence deleting the temp/partially downloaded file and returning as ERROR",
-                                source);
-
-                        return new FileDownloadResult()
-                                .setDownloadStatusStatus(DownloadStatus
-                                                                 .ERROR)
-                                .setMessage("RetryAttemptsExhausted");
-
-                    });
+                    arg -> downloadAndSave(source, outputDirectory, recording),
+                    arg -> exhausted(source, outputDirectory, arg.getLastThrowable()));
         } catch (Exception e) {
-            log.error("Non recoverable Exception occurred while downloading from source: {}. Exception: {}", source,
-                      e.getMessage());
+            return nonRecoverable(source, outputDirectory, e);
+        }
 
-            fileDownloaderUtils.deleteFileQuietly(source, outputDirectory);
+    }
+
+    private FileDownloadResult exhausted(String source, String outputDirectory, Throwable lastThrowable) {
+
+        if (lastThrowable instanceof CircuitOpenException) {
+            log.error("Not downloading from source: {}. {}", source, lastThrowable.getMessage());
             return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.ERROR)
-                                           .setMessage
-                                                   (e.getMessage());
+                                           .setMessage(lastThrowable.getMessage());
         }
 
+        if (resumeEnabled) {
+            log.error(
+                    "Retry attempts exhausted to " +
+                            "download from sources: {}." +
+                            "Keeping the partially downloaded file to resume from and returning as " +
+                            "ERROR",
+                    source);
+        } else {
+            fileDownloaderUtils.deletePartFileQuietly(source, outputDirectory);
+            log.error(
+                    "Retry attempts exhausted to " +
+                            "download from sources: {}." +
+                            "Hence deleting the temp/partially downloaded file and returning as ERROR",
+                    source);
+        }
+
+        return new FileDownloadResult()
+                .setDownloadStatusStatus(DownloadStatus
+                                                 .ERROR)
+                .setMessage("RetryAttemptsExhausted");
+    }
+
+    private FileDownloadResult nonRecoverable(String source, String outputDirectory, Throwable e) {
+
+        log.error("Non recoverable Exception occurred while downloading from source: {}. Exception: {}", source,
+                  e.getMessage());
+
+        fileDownloaderUtils.deletePartFileQuietly(source, outputDirectory);
+        return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.ERROR)
+                                       .setMessage
+                                               (e.getMessage());
     }
 
     /**
      * The method employs the java NIO package for downloading the files.
      * <p>
-     * The Java NIO package offers the possibility to transfer bytes between 2 Channels without buffering them into
-     * the application memory.
+     * The content is copied into the file by {@link ChunkedTransfer}, a large chunk at a time through pooled direct
+     * buffers. {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} is zero-copy only between file
+     * channels: from the channel of a network stream it goes through a small heap buffer allocated on every call and
+     * writes to the file after every read.
+     * </p>
+     * Large HTTP sources supporting byte ranges are handed over to {@link SegmentedDownloader} instead and
+     * fetched over several connections.
      * <p>
-     * The transferTo() and transferFrom() methods are more efficient than simply reading from a stream using a
-     * buffer. Depending on the underlying operating system, the data can be transferred directly from the filesystem
-     * cache to our file without copying any bytes into the application memory.
+     * With {@link #resumeEnabled} the bytes left by an earlier attempt are kept and only the remaining ones are
+     * requested through {@link PartialDownloadResumer}, or the missing segments through {@link SegmentedDownloader}.
+     * </p>
+     * With {@link ConditionalDownloader} enabled, a source that did not change since its file was saved is not
+     * downloaded again and reported as {@link DownloadStatus#NOT_MODIFIED}.
+     * <p>
+     * The transfer is kept within the bandwidth budgets of {@link BandwidthThrottle}, and the content goes through
+     * the {@link TransformPipeline} stages of the {@link DownloadOptions} of the source. Transformed content no longer
+     * maps to byte ranges of the source, hence it is neither segmented nor resumed.
+     * </p>
+     * The saved content is digested as it streams by, with the algorithm given by {@link ChecksumVerifier}, and
+     * checked against the expected checksum if there is one. A mismatch fails the attempt with a
+     * {@link ChecksumMismatchException}, retried from scratch. Downloads with an expected checksum are not segmented,
+     * as their content has to be digested in order.
      * <p>
-     * On Linux and UNIX systems, these methods use the zero-copy technique that reduces the number of context
-     * switches between the kernel mode and user mode.
+     * The content is written to a <i>.part</i> file next to the final one, and renamed atomically to the final name
+     * once complete and verified: a file at the final name is always a whole download, and the one of an earlier run
+     * is kept until it is replaced. The <i>.part</i> file only ever holds the bytes written so far, so that its length
+     * is the offset a later attempt or run resumes from.
      * </p>
      *
      * @param source          Source url to download the file from
      * @param outputDirectory The final directory to save the downloaded file
+     * @param recording       Metrics of the download
      * @return @{@link FileDownloadResult} Final result od downloading the file
      * @throws IOException
      */
-    private FileDownloadResult downloadAndSave(String source, String outputDirectory) throws IOException {
+    private FileDownloadResult downloadAndSave(String source, String outputDirectory,
+                                               DownloadMetrics.Recording recording) throws IOException {
+
+        recording.attemptStarted();
 
         URL sourceUrl;
 
@@ -110,23 +305,196 @@ public class RetryableDownloadManagerImpl implements DownloadManager {
 
         }
 
+        retryScheduler.acquire(sourceUrl);
+        try {
+            final FileDownloadResult result = save(source, sourceUrl, outputDirectory, recording);
+            retryScheduler.completed(sourceUrl, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            retryScheduler.completed(sourceUrl, e);
+            throw e;
+        }
+    }
+
+    private FileDownloadResult save(String source, URL sourceUrl, String outputDirectory,
+                                    DownloadMetrics.Recording recording) throws IOException {
+
+        final DownloadOptions options = DownloadOptions.of(sourceUrl);
+        if (options.hasTransforms()) {
+            transformPipeline.validate(options.getTransforms());
+        }
+        final Checksum expectedChecksum = checksumVerifier.expected(sourceUrl, options);
+        final ChecksumAlgorithm checksumAlgorithm = checksumVerifier.algorithmFor(expectedChecksum);
+
         String downloadFileName = fileDownloaderUtils.uniqueFileSaveLocation(sourceUrl, outputDirectory);
+        File downloadFile = new File(downloadFileName);
+        File partFile = fileDownloaderUtils.partFile(downloadFile);
+
+        ConditionalDownloader.Revalidation revalidation = null;
+        if (conditionalDownloader.isEnabled()) {
+            revalidation = conditionalDownloader.revalidate(source, sourceUrl, downloadFile, outputDirectory,
+                                                            expectedChecksum);
+            if (revalidation.isNotModified()) {
+                log.info("Source: {} not modified since its download at path: {}", source, downloadFile.getPath());
+                return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.NOT_MODIFIED)
+                                               .setMessage("Not modified source: " + source)
+                                               .setPath(downloadFile.getPath());
+            }
+        }
+
+        // Only created once the source is known to be downloaded, a revalidated source leaving none behind
+        FileUtils.touch(partFile);
+
+        if (revalidation != null && revalidation.getInputStream() != null) {
+            recording.getProgress().attempt(0, revalidation.getContentLength());
+            final Checksum checksum = transfer(
+                    openChannel(sourceUrl, options, revalidation.getInputStream(), recording),
+                    checksumAlgorithm, partFile, 0);
+            verify(source, expectedChecksum, checksum, partFile);
+            return completed(source, outputDirectory, partFile, downloadFile, revalidation.getMetadata())
+                    .setChecksum(checksum);
+        }
+
+        if (options.hasTransforms()) {
+            Files.write(partFile.toPath(), new byte[0]);
+        } else if (expectedChecksum == null && segmentedDownloader.isEnabled()
+                && (partFile.length() == 0 || segmentedDownloader.hasSegments(partFile))) {
+            final SegmentedDownloader.Probe probe = segmentedDownloader.probe(sourceUrl);
+            if (probe.getSegmentableLength() > 0) {
+                if (resumeEnabled) {
+                    partialDownloadResumer.completed(partFile);
+                }
+                segmentedDownloader.download(sourceUrl, probe.getSegmentableLength(), probe.getMetadata(), partFile,
+                                             recording);
+                return completed(source, outputDirectory, partFile, downloadFile, probe.getMetadata());
+            }
+        }
+        if (segmentedDownloader.hasSegments(partFile)) {
+            // Segments kept by an earlier attempt have holes between them, a single stream can not continue them
+            segmentedDownloader.discard(partFile);
+        }
+
+        final InputStream inputStream;
+        final long position;
+        final long length;
+        final SourceMetadata metadata;
+        if (resumeEnabled) {
+            final PartialDownloadResumer.ResumedStream resumedStream = partialDownloadResumer.open(sourceUrl,
+                                                                                                   partFile);
+            inputStream = resumedStream.getInputStream();
+            position = resumedStream.getPosition();
+            length = resumedStream.getLength();
+            metadata = resumedStream.getMetadata();
+        } else {
+            inputStream = fileDownloaderUtils.openStream(sourceUrl);
+            position = 0;
+            length = DownloadProgress.UNKNOWN_SIZE;
+            metadata = null;
+        }
+        recording.getProgress().attempt(position, length);
+
+        final Checksum checksum = transfer(openChannel(sourceUrl, options, inputStream, recording),
+                                           checksumAlgorithm, partFile, position);
+        verify(source, expectedChecksum, checksum, partFile);
+
+        return completed(source, outputDirectory, partFile, downloadFile, metadata).setChecksum(checksum);
+    }
 
-        FileUtils.touch(new File(downloadFileName));
-        FileOutputStream fileOutputStream = new FileOutputStream(downloadFileName);
+    /**
+     * Transfers the content of #channel to #partFile from #position on, digesting it with #checksumAlgorithm.
+     * The bytes already present before #position, left by an earlier attempt, are digested first.
+     * When the transfer fails, the file is truncated back to the bytes actually written, so that the next attempt
+     * resumes right after them.
+     *
+     * @return Checksum of the whole file, null without #checksumAlgorithm
+     */
+    private Checksum transfer(ReadableByteChannel channel, ChecksumAlgorithm checksumAlgorithm, File partFile,
+                              long position) throws IOException {
 
-        try (ReadableByteChannel readableByteChannel = Channels.newChannel(fileDownloaderUtils.openStream(sourceUrl))
-             ; FileChannel fileChannel = fileOutputStream.getChannel()) {
+        final MessageDigest digest = checksumAlgorithm != null ? checksumAlgorithm.newDigest() : null;
+        try (ReadableByteChannel readableByteChannel = digest != null ? new DigestingChannel(channel, digest) : channel
+             ; FileChannel fileChannel = FileChannel.open(partFile.toPath(), StandardOpenOption.READ,
+                                                          StandardOpenOption.WRITE)) {
+
+            fileChannel.truncate(position);
+            if (digest != null && position > 0) {
+                digestPrefix(fileChannel, position, digest);
+            }
+            try {
+                chunkedTransfer.transfer(readableByteChannel, fileChannel, position, Long.MAX_VALUE);
+            } catch (PartialTransferException e) {
+                // Only the bytes actually written are kept for the next attempt
+                fileChannel.truncate(position + e.getTransferred());
+                throw e.failure();
+            }
+
+        }
+        return digest != null ? ChecksumVerifier.checksumOf(checksumAlgorithm, digest) : null;
+    }
 
-            fileChannel
-                    .transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+    private static void digestPrefix(FileChannel fileChannel, long length, MessageDigest digest) throws IOException {
 
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, PREFIX_BUFFER_SIZE));
+        long position = 0;
+        while (position < length) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+            final int read = fileChannel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Partial file shorter than: " + length);
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
         }
+    }
 
-        log.info("Download for source: {} completed successfully at path: {}", source, downloadFileName);
+    /**
+     * Discards the file on a checksum mismatch so that the retry downloads it from scratch.
+     */
+    private void verify(String source, Checksum expected, Checksum actual, File partFile) throws IOException {
+
+        try {
+            checksumVerifier.verify(source, expected, actual);
+        } catch (ChecksumMismatchException e) {
+            log.warn("{}. Discarding the file at path: {}", e.getMessage(), partFile.getPath());
+            if (resumeEnabled) {
+                partialDownloadResumer.completed(partFile);
+            }
+            Files.write(partFile.toPath(), new byte[0]);
+            throw e;
+        }
+    }
+
+    private ReadableByteChannel openChannel(URL sourceUrl, DownloadOptions options, InputStream inputStream,
+                                            DownloadMetrics.Recording recording) {
+
+        final ReadableByteChannel channel = recording.meter(
+                bandwidthThrottle.throttle(sourceUrl, DownloadEngines.get().newChannel(sourceUrl, inputStream)));
+        return options.hasTransforms() ? transformPipeline.apply(options.getTransforms(), channel) : channel;
+    }
+
+    /**
+     * Renames the complete #partFile to #downloadFile, replacing the file of an earlier download if any.
+     */
+    private FileDownloadResult completed(String source, String outputDirectory, File partFile, File downloadFile,
+                                         SourceMetadata metadata) throws IOException {
+
+        if (resumeEnabled) {
+            partialDownloadResumer.completed(partFile);
+        }
+        try {
+            Files.move(partFile.toPath(), downloadFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile.toPath(), downloadFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (conditionalDownloader.isEnabled()) {
+            conditionalDownloader.completed(source, outputDirectory, metadata, downloadFile);
+        }
+        log.info("Download for source: {} completed successfully at path: {}", source, downloadFile.getPath());
         return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED)
                                        .setMessage("Download " +
-                                                           "completed for source: " + source);
+                                                           "completed for source: " + source)
+                                       .setPath(downloadFile.getPath());
     }
-
 }
@@ -0,0 +1,435 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.buffer.PartialTransferException;
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads a single HTTP source over several connections at once.
+ * <p>
+ * The source is probed with a HEAD request for <i>Accept-Ranges</i> and <i>Content-Length</i>. When the server
+ * supports byte ranges and the file is large enough, it is split into {@link #segmentCount} ranges that are fetched
+ * concurrently and written at their own position into the same output file.
+ * </p>
+ * Sources that can not be split are left to the single stream path of {@link RetryableDownloadManagerImpl}.
+ * <p>
+ * The completed segments of a failed download are kept to be resumed, see
+ * {@link #download(URL, long, SourceMetadata, File, DownloadMetrics.Recording)}.
+ * </p>
+ */
+@Component
+public class SegmentedDownloader {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedDownloader.class);
+
+    private static final String SEGMENTS_SUFFIX = ".segments";
+    private static final String SEPARATOR = "\t";
+
+    @Autowired
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    @Autowired
+    private BandwidthThrottle bandwidthThrottle;
+
+    @Autowired
+    private ChunkedTransfer chunkedTransfer;
+
+    @Value("${download.segment.count}")
+    private int segmentCount;
+
+    @Value("${download.segment.min.size}")
+    private long minSegmentSize;
+
+    @Value("${download.pool.threads}")
+    private int poolSize;
+
+    @Value("${download.resume.enabled}")
+    private boolean resumeEnabled;
+
+    private ThreadPoolExecutor segmentExecutor;
+
+    /**
+     * Initialises the pool fetching the additional segments. The downloading thread fetches the first segment
+     * itself, hence the pool is sized for the remaining segments of every download running in parallel.
+     */
+    @PostConstruct
+    protected void init() {
+
+        if (!isEnabled()) {
+            log.info("Segmented download is disabled. Segment count: {}", segmentCount);
+            return;
+        }
+
+        final int threads = Math.max(1, poolSize) * (segmentCount - 1);
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("segment-");
+        threadFactory.setDaemon(true);
+
+        segmentExecutor = new ThreadPoolExecutor(threads, threads, 1000, TimeUnit.MILLISECONDS,
+                                                 new LinkedBlockingQueue<>(), threadFactory);
+
+        log.info("Initialized segment pool of size :{} for {} segments per download", threads, segmentCount);
+    }
+
+    public boolean isEnabled() {
+        return segmentCount > 1;
+    }
+
+    /**
+     * Probes the source with a HEAD request.
+     *
+     * @param sourceUrl Source url to probe
+     * @return Content length of the source if it can be downloaded in segments, -1 otherwise
+     */
+    public long segmentableLength(URL sourceUrl) {
+        return probe(sourceUrl).getSegmentableLength();
+    }
+
+    /**
+     * Probes the source with a HEAD request.
+     *
+     * @param sourceUrl Source url to probe
+     * @return Content length of the source if it can be downloaded in segments along with its validators
+     */
+    public Probe probe(URL sourceUrl) {
+
+        try {
+            final URLConnection connection = fileDownloaderUtils.openConnection(sourceUrl);
+            if (!(connection instanceof HttpURLConnection)) {
+                return Probe.NOT_SEGMENTABLE;
+            }
+
+            final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            httpConnection.setRequestMethod("HEAD");
+            try {
+                if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK
+                        || !"bytes".equalsIgnoreCase(httpConnection.getHeaderField("Accept-Ranges"))) {
+                    return Probe.NOT_SEGMENTABLE;
+                }
+
+                final long contentLength = httpConnection.getContentLengthLong();
+                return new Probe(segmentsFor(contentLength) > 1 ? contentLength : -1,
+                                 SourceMetadata.of(httpConnection));
+            } finally {
+                httpConnection.disconnect();
+            }
+        } catch (IOException e) {
+            log.info("Unable to probe source: {} for range support. Exception: {}", sourceUrl, e.getMessage());
+            return Probe.NOT_SEGMENTABLE;
+        }
+    }
+
+    /**
+     * Downloads the source in segments into #target file, see
+     * {@link #download(URL, long, SourceMetadata, File, DownloadMetrics.Recording)}, without any validator to resume
+     * from.
+     */
+    public void download(URL sourceUrl, long contentLength, File target, DownloadMetrics.Recording recording)
+            throws IOException {
+        download(sourceUrl, contentLength, null, target, recording);
+    }
+
+    /**
+     * Downloads the source in segments into #target file. Each segment is written at its own position of the file,
+     * so segments can complete in any order.
+     * <p>
+     * Every segment is requested with <i>If-Range: &lt;validator&gt;</i>, the strong ETag or else the Last-Modified
+     * date of the probe, so that a source changing during the download answers the whole content to the segments
+     * requested afterwards. The download then fails rather than saving a file mixing both versions.
+     * </p>
+     * <p>
+     * With {@link #resumeEnabled} and a strong validator of the source, each completed segment is recorded in a
+     * <i>.segments</i> sidecar next to #target, along with the validator. When a segment fails, the completed ones
+     * are kept, and the next download of the source only requests the missing segments, with
+     * <i>If-Range: &lt;validator&gt;</i>. A source that changed meanwhile answers the whole content instead, and the
+     * segments kept are discarded. Without a validator, a failed segment discards the whole file.
+     * </p>
+     *
+     * @param sourceUrl     Source url to download the file from
+     * @param contentLength Content length returned by {@link #probe(URL)}
+     * @param metadata      Validators returned by {@link #probe(URL)}, null if there are none
+     * @param target        File to save the download at
+     * @param recording     Metrics of the download
+     * @throws IOException If any of the segments fails
+     */
+    public void download(URL sourceUrl, long contentLength, SourceMetadata metadata, File target,
+                         DownloadMetrics.Recording recording) throws IOException {
+
+        final int segments = segmentsFor(contentLength);
+        final long segmentSize = (contentLength + segments - 1) / segments;
+        final String validator = validatorOf(metadata);
+        final boolean resumable = resumeEnabled && validator != null;
+        final File segmentsFile = segmentsFile(target);
+        final String header = contentLength + SEPARATOR + segmentSize + SEPARATOR + validator;
+
+        final Set<Long> completed = !resumable ? Collections.emptySet()
+                : completedSegments(segmentsFile, header, target, contentLength);
+        if (!resumable) {
+            FileUtils.deleteQuietly(segmentsFile);
+        } else if (completed.isEmpty()) {
+            FileUtils.writeStringToFile(segmentsFile, header + "\n", StandardCharsets.UTF_8);
+        } else {
+            log.info("Resuming segmented download of source: {} with {} of {} segments already completed",
+                     sourceUrl, completed.size(), segments);
+        }
+        final long completedBytes = completed.stream()
+                                             .mapToLong(start -> Math.min(contentLength, start + segmentSize) - start)
+                                             .sum();
+        recording.getProgress().attempt(completedBytes, contentLength);
+
+        try (FileChannel fileChannel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE)) {
+
+            // Truncate never grows the file, which must have its full length whichever segment fails
+            if (fileChannel.size() > contentLength) {
+                fileChannel.truncate(contentLength);
+            } else if (fileChannel.size() < contentLength) {
+                fileChannel.write(ByteBuffer.allocate(1), contentLength - 1);
+            }
+
+            final List<Runnable> downloads = new ArrayList<>();
+            for (int segment = 0; segment < segments; segment++) {
+                final long start = segment * segmentSize;
+                if (start >= contentLength) {
+                    break;
+                }
+                if (completed.contains(start)) {
+                    continue;
+                }
+                final long end = Math.min(contentLength, start + segmentSize) - 1;
+                downloads.add(() -> {
+                    try {
+                        downloadSegment(sourceUrl, start, end, validator, fileChannel, recording);
+                        if (resumable) {
+                            recordSegment(segmentsFile, start);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            // The downloading thread fetches the first missing segment itself, once the others are submitted
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Runnable download : downloads.subList(Math.min(1, downloads.size()), downloads.size())) {
+                futures.add(CompletableFuture.runAsync(download, segmentExecutor));
+            }
+            if (!downloads.isEmpty()) {
+                futures.add(0, CompletableFuture.runAsync(downloads.get(0), Runnable::run));
+            }
+
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause()
+                        : e.getCause();
+                if (!resumable || futures.stream().anyMatch(SegmentedDownloader::rangeNotHonoured)) {
+                    // Failed segments leave holes behind, and nothing tells which ones
+                    FileUtils.deleteQuietly(segmentsFile);
+                    fileChannel.truncate(0);
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw e;
+            }
+        }
+
+        FileUtils.deleteQuietly(segmentsFile);
+        log.info("Downloaded source: {} in {} segments of {} bytes", sourceUrl, segments, segmentSize);
+    }
+
+    /**
+     * @param partFile File a segmented download is saved at
+     * @return Whether segments of an earlier attempt are kept in #partFile, to be resumed by a segmented download
+     * only
+     */
+    public boolean hasSegments(File partFile) {
+        return segmentsFile(partFile).exists();
+    }
+
+    /**
+     * Discards the segments kept in #partFile, which has holes between them.
+     */
+    public void discard(File partFile) throws IOException {
+
+        FileUtils.deleteQuietly(segmentsFile(partFile));
+        if (partFile.exists()) {
+            Files.write(partFile.toPath(), new byte[0]);
+        }
+    }
+
+    private static Set<Long> completedSegments(File segmentsFile, String header, File target, long contentLength)
+            throws IOException {
+
+        if (!segmentsFile.exists() || target.length() != contentLength) {
+            return Collections.emptySet();
+        }
+        final List<String> lines = FileUtils.readLines(segmentsFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !header.equals(lines.get(0))) {
+            return Collections.emptySet();
+        }
+        final Set<Long> completed = new HashSet<>();
+        for (String line : lines.subList(1, lines.size())) {
+            try {
+                completed.add(Long.parseLong(line.trim()));
+            } catch (NumberFormatException ignored) {
+                // Line cut short by a crash, its segment is downloaded again
+            }
+        }
+        return completed;
+    }
+
+    private static boolean rangeNotHonoured(CompletableFuture<Void> future) {
+
+        try {
+            future.join();
+            return false;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof UncheckedIOException
+                    && e.getCause().getCause() instanceof RangeNotHonouredException;
+        }
+    }
+
+    private synchronized void recordSegment(File segmentsFile, long start) throws IOException {
+        FileUtils.writeStringToFile(segmentsFile, start + "\n", StandardCharsets.UTF_8, true);
+    }
+
+    private static String validatorOf(SourceMetadata metadata) {
+
+        if (metadata == null) {
+            return null;
+        }
+        // Weak validators can not be used with If-Range
+        return metadata.getEtag() != null && !metadata.getEtag().startsWith("W/") ? metadata.getEtag()
+                : metadata.getLastModified();
+    }
+
+    private static File segmentsFile(File partFile) {
+        return new File(partFile.getPath() + SEGMENTS_SUFFIX);
+    }
+
+    private int segmentsFor(long contentLength) {
+
+        if (contentLength <= 0 || minSegmentSize <= 0) {
+            return 1;
+        }
+        return (int) Math.min(segmentCount, contentLength / minSegmentSize);
+    }
+
+    private void downloadSegment(URL sourceUrl, long start, long end, String validator, FileChannel fileChannel,
+                                 DownloadMetrics.Recording recording) throws IOException {
+
+        final HttpURLConnection connection = (HttpURLConnection) fileDownloaderUtils.openConnection(sourceUrl);
+        connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+        if (validator != null) {
+            connection.setRequestProperty("If-Range", validator);
+        }
+        fileDownloaderUtils.checkRetryAfter(connection);
+
+        final int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new RangeNotHonouredException("Range request not honoured for source: " + sourceUrl);
+        }
+        if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            throw new IOException("Segment [" + start + "-" + end + "] of source: " + sourceUrl
+                                          + " failed. Response code: " + responseCode);
+        }
+
+        try (ReadableByteChannel readableByteChannel = recording.meter(bandwidthThrottle.throttle(
+                sourceUrl, Channels.newChannel(connection.getInputStream())))) {
+
+            final long length = end - start + 1;
+            final long transferred;
+            try {
+                transferred = chunkedTransfer.transfer(readableByteChannel, fileChannel, start, length);
+            } catch (PartialTransferException e) {
+                // The segment is downloaded again as a whole
+                throw e.failure();
+            }
+            if (transferred < length) {
+                throw new EOFException("Segment [" + start + "-" + end + "] of source: " + sourceUrl
+                                               + " ended at byte " + (start + transferred));
+            }
+        }
+    }
+
+    /**
+     * A segment answered with the whole content instead of its range: the source no longer supports ranges, or
+     * changed since it was probed or since the segments kept were downloaded.
+     */
+    private static class RangeNotHonouredException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RangeNotHonouredException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Outcome of probing a source for range support.
+     */
+    public static class Probe {
+
+        static final Probe NOT_SEGMENTABLE = new Probe(-1, null);
+
+        private final long segmentableLength;
+        private final SourceMetadata metadata;
+
+        Probe(long segmentableLength, SourceMetadata metadata) {
+            this.segmentableLength = segmentableLength;
+            this.metadata = metadata;
+        }
+
+        /**
+         * @return Content length of the source if it can be downloaded in segments, -1 otherwise
+         */
+        public long getSegmentableLength() {
+            return segmentableLength;
+        }
+
+        /**
+         * @return Validators of the source, null if it was served without any
+         */
+        public SourceMetadata getMetadata() {
+            return metadata;
+        }
+    }
+}
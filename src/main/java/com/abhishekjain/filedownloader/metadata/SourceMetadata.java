@@ -0,0 +1,55 @@
+package com.abhishekjain.filedownloader.metadata;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URLConnection;
+
+/**
+ * Validators (ETag, Last-Modified) a source was served with, along with the size of the file saved for it.
+ */
+public class SourceMetadata {
+
+    private final String etag;
+    private final String lastModified;
+    private final long size;
+
+    public SourceMetadata(String etag, String lastModified, long size) {
+        this.etag = StringUtils.trimToNull(etag);
+        this.lastModified = StringUtils.trimToNull(lastModified);
+        this.size = size;
+    }
+
+    /**
+     * @param connection Connection to the source, already connected
+     * @return Validators of the response, null if it has none
+     */
+    public static SourceMetadata of(URLConnection connection) {
+
+        final SourceMetadata metadata = new SourceMetadata(connection.getHeaderField("ETag"),
+                                                           connection.getHeaderField("Last-Modified"), -1);
+        return metadata.hasValidator() ? metadata : null;
+    }
+
+    public SourceMetadata withSize(long size) {
+        return new SourceMetadata(etag, lastModified, size);
+    }
+
+    public boolean hasValidator() {
+        return etag != null || lastModified != null;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return Size of the file saved for the source
+     */
+    public long getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,60 @@
+package com.abhishekjain.filedownloader.metadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one {@link SourceMetadataStore} open per output directory.
+ */
+@Component
+public class SourceMetadataRegistry {
+    private static final Logger log = LoggerFactory.getLogger(SourceMetadataRegistry.class);
+
+    private final Map<Path, SourceMetadataStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the store of the directory. Falls back to a store keeping no record if it can not be opened, so that
+     * downloads never fail because of it.
+     *
+     * @param outputDirectory The directory where the downloaded files are saved
+     * @return The store of the directory
+     */
+    public SourceMetadataStore open(String outputDirectory) {
+
+        final Path directory = Paths.get(outputDirectory).toAbsolutePath().normalize();
+        try {
+            return stores.computeIfAbsent(directory, path -> {
+                try {
+                    return SourceMetadataStore.open(path);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            log.warn("Unable to open source metadata in directory: {}. Exception: {}", directory,
+                     e.getCause().getMessage());
+            return SourceMetadataStore.disabled();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+
+        stores.values().forEach(store -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                log.warn("Unable to close source metadata. Exception: {}", e.getMessage());
+            }
+        });
+        stores.clear();
+    }
+}
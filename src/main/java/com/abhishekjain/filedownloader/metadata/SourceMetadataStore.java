@@ -0,0 +1,304 @@
+package com.abhishekjain.filedownloader.metadata;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sidecar store of the {@link SourceMetadata} of every source downloaded into an output directory.
+ * <p>
+ * Like the download journal, it is an append-only file where the last line of a source wins:
+ * <pre>
+ *   &lt;sha1hex of source&gt;\t&lt;size&gt;\t&lt;etag&gt;\t&lt;last modified&gt;
+ * </pre>
+ * A size of -1 removes the source. The file is rewritten compacted when it holds mostly superseded lines.
+ * Records are not forced to disk: a lost one only costs a full download of the source in the next run.
+ * </p>
+ * <p>
+ * Only the sources of the running batches are kept in memory: they are {@link #load(Collection) loaded} by streaming
+ * the file along with the download journal, and {@link #release(Collection) released} once over. The metadata of a
+ * source that is not loaded is looked up in the file on its own.
+ * </p>
+ */
+public class SourceMetadataStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SourceMetadataStore.class);
+
+    static final String FILE_NAME = ".download-metadata";
+
+    private static final String SEPARATOR = "\t";
+    private static final String NONE = "-";
+
+    // Metadata of a loaded source that has none recorded
+    private static final SourceMetadata UNRECORDED = new SourceMetadata(null, null, -1);
+
+    private final Map<String, SourceMetadata> entries = new ConcurrentHashMap<>();
+    private final Path file;
+    private final FileChannel channel;
+
+    private SourceMetadataStore(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the store of the directory, creating it if missing. No source is loaded yet.
+     *
+     * @param directory Output directory of the downloads
+     * @return The store ready to append to
+     * @throws IOException If store can not be read or opened for append
+     */
+    static SourceMetadataStore open(Path directory) throws IOException {
+
+        Files.createDirectories(directory);
+        final Path storeFile = directory.resolve(FILE_NAME);
+        if (Files.exists(storeFile)) {
+            compactIfSuperseded(storeFile);
+        }
+
+        log.info("Opened source metadata: {}", storeFile);
+        return new SourceMetadataStore(storeFile, FileChannel.open(storeFile, StandardOpenOption.CREATE,
+                                                                   StandardOpenOption.WRITE,
+                                                                   StandardOpenOption.APPEND));
+    }
+
+    /**
+     * @return Store that keeps no record, used when it is disabled or can not be opened
+     */
+    public static SourceMetadataStore disabled() {
+        return new SourceMetadataStore(null, null);
+    }
+
+    /**
+     * Loads the last recorded metadata of the sources, streaming the file once. Sources already loaded keep theirs.
+     *
+     * @param sources Source urls about to be downloaded
+     */
+    public synchronized void load(Collection<String> sources) {
+
+        if (channel == null) {
+            return;
+        }
+        final Set<String> keys = sources.stream()
+                                        .map(SourceMetadataStore::key)
+                                        .filter(key -> !entries.containsKey(key))
+                                        .collect(Collectors.toSet());
+        if (!keys.isEmpty()) {
+            entries.putAll(read(keys));
+        }
+    }
+
+    /**
+     * Forgets the metadata of the sources, which is still recorded in the file.
+     *
+     * @param sources Source urls whose downloads are over
+     */
+    public void release(Collection<String> sources) {
+
+        if (channel != null) {
+            sources.forEach(source -> entries.remove(key(source)));
+        }
+    }
+
+    /**
+     * @param source Source url of the download
+     * @return The last recorded metadata of the source, looked up in the file if it is not loaded, null if it has
+     * none
+     */
+    public SourceMetadata get(String source) {
+
+        final String key = key(source);
+        SourceMetadata metadata = entries.get(key);
+        if (metadata == null && channel != null) {
+            metadata = read(Collections.singleton(key)).get(key);
+        }
+        return metadata == UNRECORDED ? null : metadata;
+    }
+
+    public void put(String source, SourceMetadata metadata) {
+
+        final String key = key(source);
+        if (channel == null) {
+            entries.put(key, metadata);
+            return;
+        }
+        entries.replace(key, metadata);
+        append(line(key, metadata));
+    }
+
+    public void remove(String source) {
+
+        final String key = key(source);
+        if (channel == null) {
+            entries.remove(key);
+            return;
+        }
+        if (entries.replace(key, UNRECORDED) != UNRECORDED) {
+            append(line(key, UNRECORDED));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private synchronized void append(String line) {
+
+        if (channel == null) {
+            return;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to append to source metadata. Exception: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return The last recorded metadata of every key, {@link #UNRECORDED} if it has none
+     */
+    private Map<String, SourceMetadata> read(Set<String> keys) {
+
+        final Map<String, SourceMetadata> loaded = new HashMap<>();
+        keys.forEach(key -> loaded.put(key, UNRECORDED));
+        try (Stream<String> records = Files.lines(file, StandardCharsets.UTF_8)) {
+            records.forEach(record -> {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                if (fields.length == 4 && keys.contains(fields[0])) {
+                    final SourceMetadata metadata = parse(record, fields);
+                    if (metadata != null) {
+                        loaded.put(fields[0], metadata.getSize() < 0 ? UNRECORDED : metadata);
+                    }
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // Sources that are not loaded are only downloaded in full
+            log.warn("Unable to load source metadata: {}. Exception: {}", file, e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * Rewrites the store with the last line of each source still recorded, when it holds more than twice as many
+     * lines as sources. As for the download journal, the sources are counted by the first 64 bits of their key, the
+     * removed ones being estimated by the number of removal lines.
+     */
+    private static void compactIfSuperseded(Path storeFile) throws IOException {
+
+        long[] keys = new long[1024];
+        int lines = 0;
+        int removals = 0;
+        try (BufferedReader reader = Files.newBufferedReader(storeFile, StandardCharsets.UTF_8)) {
+            for (String record = reader.readLine(); record != null; record = reader.readLine()) {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                if (fields.length != 4 || fields[0].length() < 16) {
+                    continue;
+                }
+                if (lines == keys.length) {
+                    keys = Arrays.copyOf(keys, lines * 2);
+                }
+                keys[lines++] = Long.parseUnsignedLong(fields[0].substring(0, 16), 16);
+                if (fields[1].startsWith("-")) {
+                    removals++;
+                }
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Not compacting source metadata: {} holding an unreadable key", storeFile);
+            return;
+        }
+
+        Arrays.sort(keys, 0, lines);
+        int sources = lines == 0 ? 0 : 1;
+        for (int i = 1; i < lines; i++) {
+            if (keys[i] != keys[i - 1]) {
+                sources++;
+            }
+        }
+        if (lines > 2 * Math.max(0, sources - removals)) {
+            compact(storeFile);
+        }
+    }
+
+    private static void compact(Path storeFile) throws IOException {
+
+        final Map<String, SourceMetadata> latest = new LinkedHashMap<>();
+        try (Stream<String> records = Files.lines(storeFile, StandardCharsets.UTF_8)) {
+            records.forEach(record -> {
+                final String[] fields = StringUtils.splitPreserveAllTokens(record, SEPARATOR);
+                final SourceMetadata metadata = fields.length == 4 ? parse(record, fields) : null;
+                if (metadata == null) {
+                    return;
+                }
+                if (metadata.getSize() < 0) {
+                    latest.remove(fields[0]);
+                } else {
+                    latest.put(fields[0], metadata);
+                }
+            });
+        }
+
+        final Path compacted = storeFile.resolveSibling(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, SourceMetadata> entry : latest.entrySet()) {
+                writer.write(line(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(compacted, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compacted source metadata: {} to {} sources", storeFile, latest.size());
+    }
+
+    private static SourceMetadata parse(String record, String[] fields) {
+
+        try {
+            return new SourceMetadata(value(fields[2]), value(fields[3]), Long.parseLong(fields[1]));
+        } catch (NumberFormatException e) {
+            log.warn("Skipping unreadable metadata record: {}", record);
+            return null;
+        }
+    }
+
+    private static String line(String key, SourceMetadata metadata) {
+
+        return key + SEPARATOR + metadata.getSize() + SEPARATOR
+                + StringUtils.defaultString(metadata.getEtag(), NONE) + SEPARATOR
+                + StringUtils.defaultString(metadata.getLastModified(), NONE) + "\n";
+    }
+
+    private static String value(String field) {
+        return NONE.equals(field) ? null : field;
+    }
+
+    private static String key(String source) {
+        return DigestUtils.sha1Hex(source);
+    }
+}
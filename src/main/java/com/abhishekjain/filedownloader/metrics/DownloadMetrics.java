@@ -0,0 +1,396 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.http.PooledHttpClient;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.progress.DownloadProgress;
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live metrics of the downloads: bytes and throughput (overall and per host), time to first byte, download
+ * durations, retries by exception type, transport failures, results by status, and gauges such as the executor and connection pool
+ * occupancy.
+ * <p>
+ * Collection stays on under full load: the transfer path only increments {@link LongAdder}s, whose per host
+ * instance is looked up once per download, and the throughput is derived from the counters by {@link #sample()},
+ * called periodically by {@link MetricsReporter} rather than on every read.
+ * </p>
+ * The metrics are exported over JMX, with the same counter or gauge type as in the Prometheus dump, and dumped in the Prometheus text format by {@link MetricsReporter}.
+ */
+@Component
+@ManagedResource(objectName = "com.abhishekjain.filedownloader:type=DownloadMetrics",
+        description = "Live metrics of the downloads")
+public class DownloadMetrics {
+
+    static final double[] TIME_TO_FIRST_BYTE_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    static final double[] DURATION_BUCKETS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300, 600, 1800};
+
+    private static final String UNKNOWN_HOST = "unknown";
+
+    @Autowired(required = false)
+    private PooledHttpClient pooledHttpClient;
+
+    @Autowired(required = false)
+    private ChunkedTransfer chunkedTransfer;
+
+    private final LongAdder bytes = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> hostBytes = new ConcurrentHashMap<>();
+    private final LongAdder bytesInFlight = new LongAdder();
+    private final LongAdder downloadsInProgress = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> retries = new ConcurrentHashMap<>();
+    private final LongAdder transportFailures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> results = new ConcurrentHashMap<>();
+    private final Histogram timeToFirstByte = new Histogram(TIME_TO_FIRST_BYTE_BUCKETS);
+    private final Histogram duration = new Histogram(DURATION_BUCKETS);
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+    private long lastSampleNanos = System.nanoTime();
+    private long lastBytes;
+    private final Map<String, Long> lastHostBytes = new HashMap<>();
+    private volatile double bytesPerSecond;
+    private volatile Map<String, Double> hostBytesPerSecond = Collections.emptyMap();
+
+    @PostConstruct
+    protected void init() {
+
+        if (pooledHttpClient != null) {
+            gauge("download_http_pool_leased", "HTTP connections in use",
+                  () -> pooledHttpClient.getStatistics().getLeased());
+            gauge("download_http_pool_available", "Idle HTTP connections kept alive",
+                  () -> pooledHttpClient.getStatistics().getAvailable());
+            gauge("download_http_pool_hits", "Requests served over an already open HTTP connection",
+                  () -> pooledHttpClient.getStatistics().getHits());
+            gauge("download_http_pool_misses", "Requests that had to open a new HTTP connection",
+                  () -> pooledHttpClient.getStatistics().getMisses());
+        }
+        if (chunkedTransfer != null) {
+            gauge("download_transfer_buffers_acquired", "Transfer buffers in use",
+                  () -> chunkedTransfer.getBufferPool().getAcquiredCount());
+            gauge("download_transfer_chunks", "Chunks written by transfers",
+                  chunkedTransfer::getChunks);
+            gauge("download_transfer_chunk_bytes", "Bytes written by transfers, in chunks",
+                  chunkedTransfer::getChunkBytes);
+        }
+    }
+
+    /**
+     * Starts recording a download. {@link Recording#finished(DownloadStatus)} must be called once it ends.
+     *
+     * @param source Source url of the download
+     * @return The recording of the download
+     */
+    public Recording start(String source) {
+        return start(new DownloadProgress(source));
+    }
+
+    /**
+     * Starts recording a download, keeping #progress up to date with its transfers and status.
+     *
+     * @param progress Progress of the download
+     * @return The recording of the download
+     */
+    public Recording start(DownloadProgress progress) {
+
+        downloadsInProgress.increment();
+        return new Recording(progress);
+    }
+
+    /**
+     * Counts a failed attempt that is about to be retried.
+     *
+     * @param throwable The failure of the attempt
+     */
+    public void retried(Throwable throwable) {
+
+        counter(retries, throwable.getClass().getName()).increment();
+        failed(throwable);
+    }
+
+    /**
+     * Counts a failed attempt that is not retried. Only the failures of the transport are counted: timeouts,
+     * connections refused, reset or closed early, and servers answering 429 or 503. A missing source, an open
+     * circuit or a checksum mismatch says nothing of the load of the network or of the server.
+     *
+     * @param throwable The failure of the attempt
+     */
+    public void failed(Throwable throwable) {
+
+        if (isTimeout(throwable)) {
+            timeouts.increment();
+            transportFailures.increment();
+        } else if (isTransportFailure(throwable)) {
+            transportFailures.increment();
+        }
+    }
+
+    /**
+     * Registers a gauge, replacing any registered under the same name.
+     *
+     * @param name     Name of the gauge, in the Prometheus naming style
+     * @param help     Description of the gauge
+     * @param supplier Supplier of its current value, called on every report
+     */
+    public void gauge(String name, String help, LongSupplier supplier) {
+        gauges.put(name, new Gauge(help, supplier));
+    }
+
+    /**
+     * Derives the throughput from the bytes counted since the previous sample.
+     */
+    public synchronized void sample() {
+
+        final long now = System.nanoTime();
+        final long elapsed = now - lastSampleNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+
+        final long total = bytes.sum();
+        bytesPerSecond = (total - lastBytes) * 1e9 / elapsed;
+        lastBytes = total;
+
+        final Map<String, Double> rates = new TreeMap<>();
+        hostBytes.forEach((host, counter) -> {
+            final long hostTotal = counter.sum();
+            final Long previous = lastHostBytes.put(host, hostTotal);
+            rates.put(host, (hostTotal - (previous == null ? 0 : previous)) * 1e9 / elapsed);
+        });
+        hostBytesPerSecond = Collections.unmodifiableMap(rates);
+        lastSampleNanos = now;
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, unit = "bytes", description = "Bytes downloaded")
+    public long getBytesTotal() {
+        return bytes.sum();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, unit = "bytes", description = "Bytes downloaded per host")
+    public Map<String, Long> getHostBytesTotal() {
+        return sums(hostBytes);
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, unit = "bytes/s",
+            description = "Bytes per second downloaded over the last sample interval")
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, unit = "bytes/s",
+            description = "Bytes per second downloaded per host over the last sample interval")
+    public Map<String, Double> getHostBytesPerSecond() {
+        return hostBytesPerSecond;
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, unit = "bytes",
+            description = "Bytes downloaded so far by the downloads in progress")
+    public long getBytesInFlight() {
+        return bytesInFlight.sum();
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, description = "Downloads in progress")
+    public long getDownloadsInProgress() {
+        return downloadsInProgress.sum();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, description = "Retried attempts by exception type")
+    public Map<String, Long> getRetries() {
+        return sums(retries);
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, description = "Failed attempts because of the transport")
+    public long getTransportFailures() {
+        return transportFailures.sum();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, description = "Failed attempts because of a timeout")
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, description = "Finished downloads by status")
+    public Map<String, Long> getResults() {
+        return sums(results);
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, unit = "ms", description = "Mean time to first byte in milliseconds")
+    public double getTimeToFirstByteMeanMillis() {
+        return timeToFirstByte.getMeanMillis();
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, unit = "ms", description = "Mean download duration in milliseconds")
+    public double getDurationMeanMillis() {
+        return duration.getMeanMillis();
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, description = "Current values of the gauges")
+    public Map<String, Long> getGauges() {
+
+        final Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getValue()));
+        return values;
+    }
+
+    public Histogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public Histogram getDuration() {
+        return duration;
+    }
+
+    Map<String, Gauge> getGaugeDefinitions() {
+        return gauges;
+    }
+
+    private static boolean isTimeout(Throwable throwable) {
+
+        return ExceptionUtils.indexOfType(throwable, SocketTimeoutException.class) >= 0
+                || ExceptionUtils.indexOfType(throwable, ConnectTimeoutException.class) >= 0;
+    }
+
+    private static boolean isTransportFailure(Throwable throwable) {
+
+        return ExceptionUtils.indexOfType(throwable, SocketException.class) >= 0
+                || ExceptionUtils.indexOfType(throwable, NoHttpResponseException.class) >= 0
+                || ExceptionUtils.indexOfType(throwable, ConnectionClosedException.class) >= 0
+                || ExceptionUtils.indexOfType(throwable, RetryAfterException.class) >= 0;
+    }
+
+    private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String key) {
+
+        final LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+
+        final Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((key, counter) -> sums.put(key, counter.sum()));
+        return sums;
+    }
+
+    private static String hostOf(String source) {
+
+        try {
+            final String host = URI.create(source).getHost();
+            return StringUtils.isEmpty(host) ? UNKNOWN_HOST : host.toLowerCase();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return UNKNOWN_HOST;
+        }
+    }
+
+    /**
+     * Metrics of a single download, across all its attempts and connections.
+     */
+    public class Recording {
+
+        private final long startNanos = System.nanoTime();
+        private volatile long attemptStartNanos = startNanos;
+        private final DownloadProgress progress;
+        private final LongAdder hostCounter;
+        private final LongAdder transferred = new LongAdder();
+        private final AtomicBoolean firstByte = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Recording(DownloadProgress progress) {
+            this.progress = progress;
+            this.hostCounter = counter(hostBytes, hostOf(progress.getSource()));
+        }
+
+        public DownloadProgress getProgress() {
+            return progress;
+        }
+
+        /**
+         * Starts a new attempt of the download, the time to first byte being measured from there.
+         */
+        public void attemptStarted() {
+
+            attemptStartNanos = System.nanoTime();
+            firstByte.set(false);
+        }
+
+        /**
+         * @param channel Channel of the downloaded content
+         * @return Channel counting the bytes read through it towards this download
+         */
+        public ReadableByteChannel meter(ReadableByteChannel channel) {
+            return new MeteredChannel(channel, this);
+        }
+
+        void transferred(int count) {
+
+            if (!firstByte.get() && firstByte.compareAndSet(false, true)) {
+                timeToFirstByte.record(System.nanoTime() - attemptStartNanos);
+            }
+            bytes.add(count);
+            hostCounter.add(count);
+            bytesInFlight.add(count);
+            transferred.add(count);
+            progress.add(count);
+        }
+
+        /**
+         * Records the duration and the status of the download. Only the first call counts.
+         *
+         * @param status Final status of the download
+         */
+        public void finished(DownloadStatus status) {
+
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            duration.record(System.nanoTime() - startNanos);
+            bytesInFlight.add(-transferred.sum());
+            downloadsInProgress.decrement();
+            counter(results, String.valueOf(status)).increment();
+            progress.finished(status);
+        }
+    }
+
+    static class Gauge {
+
+        private final String help;
+        private final LongSupplier supplier;
+
+        Gauge(String help, LongSupplier supplier) {
+            this.help = help;
+            this.supplier = supplier;
+        }
+
+        String getHelp() {
+            return help;
+        }
+
+        long getValue() {
+            return supplier.getAsLong();
+        }
+    }
+}
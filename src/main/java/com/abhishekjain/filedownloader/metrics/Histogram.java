@@ -0,0 +1,80 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations over fixed buckets, in the cumulative form of the Prometheus histograms.
+ * <p>
+ * Recording is lock free: it only increments the {@link LongAdder} of the bucket, so that it stays cheap under
+ * contention.
+ * </p>
+ */
+public class Histogram {
+
+    private final double[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * @param bounds Upper bounds of the buckets in seconds, ascending
+     */
+    public Histogram(double... bounds) {
+
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+
+        final int index = Arrays.binarySearch(bounds, nanos / 1e9);
+        counts[index >= 0 ? index : -index - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return Upper bounds of the buckets in seconds, the implicit last one (+Inf) excluded
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * @return For every bucket, the number of durations at most its bound; the last element counts them all
+     */
+    public long[] getCumulativeCounts() {
+
+        final long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    public long getCount() {
+
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * @return Mean of the durations in milliseconds, 0 if none was recorded
+     */
+    public double getMeanMillis() {
+
+        final long count = getCount();
+        return count == 0 ? 0 : sumNanos.sum() / 1e6 / count;
+    }
+}
@@ -0,0 +1,39 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Channel reporting every byte read through it to the {@link DownloadMetrics.Recording} of its download.
+ */
+class MeteredChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel channel;
+    private final DownloadMetrics.Recording recording;
+
+    MeteredChannel(ReadableByteChannel channel, DownloadMetrics.Recording recording) {
+        this.channel = channel;
+        this.recording = recording;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        final int read = channel.read(dst);
+        if (read > 0) {
+            recording.transferred(read);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
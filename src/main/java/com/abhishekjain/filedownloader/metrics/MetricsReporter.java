@@ -0,0 +1,97 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the {@link DownloadMetrics} every {@link #sampleInterval} milliseconds and, if {@link #dumpFile} is set,
+ * rewrites it with the metrics in the Prometheus text format. The file is replaced atomically, so that readers
+ * never see a partial dump. A last report is made when the application shuts down.
+ */
+@Component
+public class MetricsReporter {
+    private static final Logger log = LoggerFactory.getLogger(MetricsReporter.class);
+
+    @Autowired
+    private DownloadMetrics downloadMetrics;
+
+    @Value("${download.metrics.sample.interval}")
+    private long sampleInterval;
+
+    @Value("${download.metrics.dump.file}")
+    private String dumpFile;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    protected void init() {
+
+        if (sampleInterval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "download-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, sampleInterval, sampleInterval, TimeUnit.MILLISECONDS);
+
+        log.info("Sampling download metrics every {} ms. Prometheus dump file: {}", sampleInterval,
+                 StringUtils.defaultIfBlank(dumpFile, "none"));
+    }
+
+    /**
+     * Samples the metrics and writes the dump file.
+     */
+    public void report() {
+
+        try {
+            downloadMetrics.sample();
+            if (StringUtils.isNotBlank(dumpFile)) {
+                dump(Paths.get(dumpFile));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to report download metrics. Exception: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format to #file, through a temporary file moved over it.
+     *
+     * @param file The dump file
+     * @throws IOException If the file can not be written
+     */
+    public void dump(Path file) throws IOException {
+
+        final Path absolute = file.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        final Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        Files.write(temporary, PrometheusTextFormat.format(downloadMetrics).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            report();
+        }
+    }
+}
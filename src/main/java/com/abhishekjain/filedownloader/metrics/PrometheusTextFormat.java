@@ -0,0 +1,99 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes {@link DownloadMetrics} in the Prometheus text exposition format (version 0.0.4), so that the dump file
+ * can be served as is to a Prometheus scraper or picked up by the node exporter textfile collector.
+ */
+final class PrometheusTextFormat {
+
+    private PrometheusTextFormat() {
+    }
+
+    static String format(DownloadMetrics metrics) {
+
+        final StringBuilder text = new StringBuilder(4096);
+
+        type(text, "download_bytes_total", "Bytes downloaded", "counter");
+        sample(text, "download_bytes_total", null, null, metrics.getBytesTotal());
+        type(text, "download_host_bytes_total", "Bytes downloaded per host", "counter");
+        metrics.getHostBytesTotal().forEach(
+                (host, value) -> sample(text, "download_host_bytes_total", "host", host, value));
+
+        type(text, "download_bytes_per_second", "Bytes per second downloaded over the last sample interval", "gauge");
+        sample(text, "download_bytes_per_second", null, null, metrics.getBytesPerSecond());
+        type(text, "download_host_bytes_per_second", "Bytes per second downloaded per host over the last sample "
+                + "interval", "gauge");
+        metrics.getHostBytesPerSecond().forEach(
+                (host, value) -> sample(text, "download_host_bytes_per_second", "host", host, value));
+
+        type(text, "download_bytes_in_flight", "Bytes downloaded so far by the downloads in progress", "gauge");
+        sample(text, "download_bytes_in_flight", null, null, metrics.getBytesInFlight());
+        type(text, "download_in_progress", "Downloads in progress", "gauge");
+        sample(text, "download_in_progress", null, null, metrics.getDownloadsInProgress());
+
+        histogram(text, "download_time_to_first_byte_seconds", "Time to first byte of the download attempts",
+                  metrics.getTimeToFirstByte());
+        histogram(text, "download_duration_seconds", "Duration of the downloads, retries included",
+                  metrics.getDuration());
+
+        type(text, "download_retries_total", "Retried attempts by exception type", "counter");
+        metrics.getRetries().forEach(
+                (exception, value) -> sample(text, "download_retries_total", "exception", exception, value));
+        type(text, "download_transport_failures_total", "Failed attempts because of the transport", "counter");
+        sample(text, "download_transport_failures_total", null, null, metrics.getTransportFailures());
+        type(text, "download_timeouts_total", "Failed attempts because of a timeout", "counter");
+        sample(text, "download_timeouts_total", null, null, metrics.getTimeouts());
+        type(text, "download_results_total", "Finished downloads by status", "counter");
+        metrics.getResults().forEach(
+                (status, value) -> sample(text, "download_results_total", "status", status, value));
+
+        for (Map.Entry<String, DownloadMetrics.Gauge> gauge : metrics.getGaugeDefinitions().entrySet()) {
+            type(text, gauge.getKey(), gauge.getValue().getHelp(), "gauge");
+            sample(text, gauge.getKey(), null, null, gauge.getValue().getValue());
+        }
+        return text.toString();
+    }
+
+    private static void histogram(StringBuilder text, String name, String help, Histogram histogram) {
+
+        type(text, name, help, "histogram");
+        final double[] bounds = histogram.getBounds();
+        final long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample(text, name + "_bucket", "le", number(bounds[i]), counts[i]);
+        }
+        sample(text, name + "_bucket", "le", "+Inf", counts[bounds.length]);
+        sample(text, name + "_sum", null, null, histogram.getSumSeconds());
+        sample(text, name + "_count", null, null, counts[bounds.length]);
+    }
+
+    private static void type(StringBuilder text, String name, String help, String type) {
+
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String label, String labelValue, Number value) {
+
+        text.append(name);
+        if (label != null) {
+            text.append('{').append(label).append("=\"").append(escape(labelValue)).append("\"}");
+        }
+        text.append(' ').append(value instanceof Double ? number(value.doubleValue()) : value.toString()).append('\n');
+    }
+
+    private static String number(double value) {
+
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%s", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
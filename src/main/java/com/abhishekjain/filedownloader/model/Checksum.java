@@ -0,0 +1,49 @@
+package com.abhishekjain.filedownloader.model;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Checksum of a downloaded file: the name of the algorithm (e.g. <b>sha256</b>) and the lowercase hex value.
+ */
+public class Checksum {
+
+    private final String algorithm;
+    private final String value;
+
+    public Checksum(String algorithm, String value) {
+        this.algorithm = algorithm.toLowerCase(Locale.ROOT);
+        this.value = value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Checksum checksum = (Checksum) o;
+        return algorithm.equals(checksum.algorithm) && value.equals(checksum.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(algorithm, value);
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + "=" + value;
+    }
+}
@@ -0,0 +1,63 @@
+package com.abhishekjain.filedownloader.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The sources submitted in a single call of the download service, each with the future of its
+ * {@link FileDownloadResult}.
+ * <p>
+ * The future of a source completes as soon as its download is over, so that each downloaded file can be processed
+ * while the others are still downloading, and {@link #getCompletion()} once all of them are. Sources that are the
+ * same resource share the future of its single download.
+ * </p>
+ */
+public class DownloadBatch {
+
+    private final Map<String, CompletableFuture<FileDownloadResult>> results;
+    private final CompletableFuture<List<FileDownloadResult>> completion;
+
+    /**
+     * @param results Future of the result of each source, in the order the sources were submitted
+     */
+    public DownloadBatch(Map<String, CompletableFuture<FileDownloadResult>> results) {
+
+        this.results = Collections.unmodifiableMap(results);
+        this.completion = CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                                           .thenApply(done -> {
+                                               final List<FileDownloadResult> completed = new ArrayList<>();
+                                               results.values().forEach(result -> completed.add(result.join()));
+                                               return Collections.unmodifiableList(completed);
+                                           });
+    }
+
+    /**
+     * @return Future of the result of each source, in the order the sources were submitted
+     */
+    public Map<String, CompletableFuture<FileDownloadResult>> getResults() {
+        return results;
+    }
+
+    /**
+     * @return Future of the results of all the sources, in the order they were submitted
+     */
+    public CompletableFuture<List<FileDownloadResult>> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Calls #action with the result of each source as soon as its download is over, on the thread that completed it.
+     *
+     * @param action Action on a result
+     * @return This batch
+     */
+    public DownloadBatch onResult(Consumer<FileDownloadResult> action) {
+
+        results.values().stream().distinct().forEach(result -> result.thenAccept(action));
+        return this;
+    }
+}
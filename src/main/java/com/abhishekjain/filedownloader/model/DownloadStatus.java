@@ -5,7 +5,7 @@ package com.abhishekjain.filedownloader.model;
  */
 public enum DownloadStatus {
 
-    COMPLETED("COMPLETED"), ERROR("ERROR"), IN_PROGRESS("IN_PROGRESS");
+    COMPLETED("COMPLETED"), ERROR("ERROR"), IN_PROGRESS("IN_PROGRESS"), NOT_MODIFIED("NOT_MODIFIED");
 
     private String status;
 
@@ -4,11 +4,21 @@ package com.abhishekjain.filedownloader.model;
  * The result/response class that contains:
  * 1) @{@link DownloadStatus} Status of the download task
  * 2) {@link #message} Message/Exception code
+ * 3) {@link #checksum} Checksum of the downloaded file, computed while it was transferred
+ * 4) {@link #source} Source url the result is for
+ * 5) {@link #path} Path of the downloaded file
+ * 6) {@link #bytes} Size of the downloaded file, -1 if there is none
+ * 7) {@link #durationMillis} Time the download took, from when it started running
  */
 public class FileDownloadResult {
 
     private DownloadStatus downloadStatusStatus;
     private String message;
+    private Checksum checksum;
+    private String source;
+    private String path;
+    private long bytes = -1;
+    private long durationMillis;
 
     public DownloadStatus getDownloadStatusStatus() {
         return downloadStatusStatus;
@@ -28,4 +38,49 @@ public class FileDownloadResult {
         return this;
     }
 
+    public Checksum getChecksum() {
+        return checksum;
+    }
+
+    public FileDownloadResult setChecksum(Checksum checksum) {
+        this.checksum = checksum;
+        return this;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public FileDownloadResult setSource(String source) {
+        this.source = source;
+        return this;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public FileDownloadResult setPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public FileDownloadResult setBytes(long bytes) {
+        this.bytes = bytes;
+        return this;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public FileDownloadResult setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+        return this;
+    }
+
 }
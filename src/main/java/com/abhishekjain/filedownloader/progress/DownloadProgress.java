@@ -0,0 +1,108 @@
+package com.abhishekjain.filedownloader.progress;
+
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a single download: the bytes of its file transferred so far against the expected size, and its
+ * status.
+ * <p>
+ * It is updated from the transfer loop of every connection of the download, so the transferred bytes are counted in
+ * a {@link LongAdder} and the other fields are volatile: updating never locks and reading is always safe.
+ * </p>
+ */
+public class DownloadProgress {
+
+    /**
+     * Value of {@link #getExpectedBytes()} while the size of the download is unknown
+     */
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final String source;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final LongAdder transferred = new LongAdder();
+    private volatile long position;
+    private volatile long expectedBytes = UNKNOWN_SIZE;
+    private volatile DownloadStatus status = DownloadStatus.IN_PROGRESS;
+    private volatile long elapsedNanos = -1;
+
+    public DownloadProgress(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Starts over the count for a new attempt.
+     *
+     * @param position      Bytes of the file already present, kept from an earlier attempt
+     * @param expectedBytes Expected size of the file, {@link #UNKNOWN_SIZE} if it is not known
+     */
+    public void attempt(long position, long expectedBytes) {
+
+        transferred.reset();
+        this.position = position;
+        this.expectedBytes = expectedBytes;
+    }
+
+    /**
+     * @param count Bytes just transferred
+     */
+    public void add(long count) {
+        transferred.add(count);
+    }
+
+    /**
+     * @param status Final status of the download
+     */
+    public void finished(DownloadStatus status) {
+
+        elapsedNanos = System.nanoTime() - startNanos;
+        this.status = status;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getTransferredBytes() {
+        return position + transferred.sum();
+    }
+
+    public long getExpectedBytes() {
+        return expectedBytes;
+    }
+
+    public DownloadStatus getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status != DownloadStatus.IN_PROGRESS;
+    }
+
+    /**
+     * @return Duration of the download so far, or in total once finished, in milliseconds
+     */
+    public long getElapsedMillis() {
+
+        final long elapsed = elapsedNanos;
+        return (elapsed >= 0 ? elapsed : System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return Transferred fraction of the expected size between 0 and 1, -1 if the size is unknown
+     */
+    public double getFraction() {
+
+        final long expected = expectedBytes;
+        if (expected < 0) {
+            return -1;
+        }
+        return expected == 0 ? 1 : Math.min(1, (double) getTransferredBytes() / expected);
+    }
+}
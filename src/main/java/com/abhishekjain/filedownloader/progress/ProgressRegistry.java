@@ -0,0 +1,81 @@
+package com.abhishekjain.filedownloader.progress;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the {@link DownloadProgress} of the downloads of the run, to be polled while a batch is running.
+ * <p>
+ * Finished downloads are kept with their final status until {@link #clearFinished()}, or until more than
+ * {@link #retainFinished} downloads are registered, so that the registry stays bounded over streamed batches of
+ * millions of sources. <b>0</b> keeps them all.
+ * </p>
+ */
+@Component
+public class ProgressRegistry {
+
+    @Value("${download.progress.retain.finished}")
+    private int retainFinished;
+
+    private final ConcurrentMap<String, DownloadProgress> downloads = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a new download of the source, replacing any earlier one.
+     *
+     * @param source Source url of the download
+     * @return The progress of the download, to be updated by the caller
+     */
+    public DownloadProgress start(String source) {
+
+        if (retainFinished > 0 && downloads.size() >= retainFinished) {
+            clearFinished();
+        }
+        final DownloadProgress progress = new DownloadProgress(source);
+        downloads.put(source, progress);
+        return progress;
+    }
+
+    /**
+     * @param source Source url of the download
+     * @return The progress of the latest download of the source, null if there is none
+     */
+    public DownloadProgress get(String source) {
+        return downloads.get(source);
+    }
+
+    /**
+     * @return Progress of all the downloads, ordered by start
+     */
+    public List<DownloadProgress> getDownloads() {
+
+        final List<DownloadProgress> progresses = new ArrayList<>(downloads.values());
+        progresses.sort(Comparator.comparingLong(DownloadProgress::getStartMillis));
+        return Collections.unmodifiableList(progresses);
+    }
+
+    /**
+     * @return Progress of the downloads still running
+     */
+    public List<DownloadProgress> getActive() {
+        return getDownloads().stream().filter(progress -> !progress.isFinished()).collect(Collectors.toList());
+    }
+
+    /**
+     * @return Aggregated progress of all the downloads
+     */
+    public ProgressSummary summary() {
+        return ProgressSummary.of(downloads.values());
+    }
+
+    public void clearFinished() {
+        downloads.values().removeIf(DownloadProgress::isFinished);
+    }
+}
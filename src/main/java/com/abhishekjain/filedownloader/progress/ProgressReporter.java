@@ -0,0 +1,164 @@
+package com.abhishekjain.filedownloader.progress;
+
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.utils.JsonStrings;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the progress of the downloads of the {@link ProgressRegistry} every {@link #interval} milliseconds.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li><b>console</b> : a summary line in the log, followed by the {@link #CONSOLE_DOWNLOADS} least advanced running
+ * downloads.</li>
+ * <li><b>json</b> : one JSON object per report on the standard output, with the summary and every running
+ * download, for tools to follow the batch.</li>
+ * </ul>
+ * </p>
+ * Reporting reads the lock free counters of the downloads once per interval, so its cost does not depend on the
+ * rate of the transfers. Nothing is reported while no download has run since the last report.
+ */
+@Component
+public class ProgressReporter {
+    private static final Logger log = LoggerFactory.getLogger(ProgressReporter.class);
+
+    public static final String CONSOLE_FORMAT = "console";
+    public static final String JSON_FORMAT = "json";
+
+    static final int CONSOLE_DOWNLOADS = 5;
+
+    @Autowired
+    private ProgressRegistry progressRegistry;
+
+    @Value("${download.progress.interval}")
+    private long interval;
+
+    @Value("${download.progress.format}")
+    private String format;
+
+    private PrintStream out = System.out;
+
+    private ScheduledExecutorService scheduler;
+
+    private long lastTransferredBytes;
+    private long lastReportNanos = System.nanoTime();
+    private boolean idle = true;
+
+    @PostConstruct
+    protected void init() {
+
+        if (interval <= 0 || !(CONSOLE_FORMAT.equalsIgnoreCase(format) || JSON_FORMAT.equalsIgnoreCase(format))) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "download-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reports the current progress, unless no download has been running since the last report.
+     */
+    public synchronized void report() {
+
+        try {
+            final List<DownloadProgress> active = progressRegistry.getActive();
+            if (active.isEmpty() && idle) {
+                return;
+            }
+            idle = active.isEmpty();
+
+            final ProgressSummary summary = progressRegistry.summary();
+            final long now = System.nanoTime();
+            final double bytesPerSecond = Math.max(0, summary.getTransferredBytes() - lastTransferredBytes) * 1e9
+                    / Math.max(1, now - lastReportNanos);
+            lastTransferredBytes = summary.getTransferredBytes();
+            lastReportNanos = now;
+
+            if (JSON_FORMAT.equalsIgnoreCase(format)) {
+                out.println(json(summary, bytesPerSecond, active));
+            } else {
+                console(summary, bytesPerSecond, active);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to report download progress. Exception: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            report();
+        }
+    }
+
+    private void console(ProgressSummary summary, double bytesPerSecond, List<DownloadProgress> active) {
+
+        log.info("Progress: {}/{} done ({} completed, {} not modified, {} failed), {} running. {} of {}{} at {}/s",
+                 summary.getTotal() - summary.getCount(DownloadStatus.IN_PROGRESS), summary.getTotal(),
+                 summary.getCount(DownloadStatus.COMPLETED), summary.getCount(DownloadStatus.NOT_MODIFIED),
+                 summary.getCount(DownloadStatus.ERROR), active.size(),
+                 FileUtils.byteCountToDisplaySize(summary.getTransferredBytes()),
+                 FileUtils.byteCountToDisplaySize(summary.getExpectedBytes()),
+                 summary.getUnknownSizes() > 0 ? " (+" + summary.getUnknownSizes() + " of unknown size)" : "",
+                 FileUtils.byteCountToDisplaySize((long) bytesPerSecond));
+
+        active.stream()
+              .sorted(Comparator.comparingDouble(DownloadProgress::getFraction))
+              .limit(CONSOLE_DOWNLOADS)
+              .forEach(progress -> log.info("  {} {} of {} after {} ms", progress.getSource(),
+                                            percent(progress.getFraction()),
+                                            progress.getExpectedBytes() < 0 ? "unknown size"
+                                                    : FileUtils.byteCountToDisplaySize(progress.getExpectedBytes()),
+                                            progress.getElapsedMillis()));
+    }
+
+    static String json(ProgressSummary summary, double bytesPerSecond, List<DownloadProgress> active) {
+
+        final StringBuilder json = new StringBuilder(256 + active.size() * 128);
+        json.append("{\"timestamp\":").append(System.currentTimeMillis())
+            .append(",\"total\":").append(summary.getTotal())
+            .append(",\"running\":").append(summary.getCount(DownloadStatus.IN_PROGRESS))
+            .append(",\"completed\":").append(summary.getCount(DownloadStatus.COMPLETED))
+            .append(",\"notModified\":").append(summary.getCount(DownloadStatus.NOT_MODIFIED))
+            .append(",\"failed\":").append(summary.getCount(DownloadStatus.ERROR))
+            .append(",\"transferredBytes\":").append(summary.getTransferredBytes())
+            .append(",\"expectedBytes\":").append(summary.getExpectedBytes())
+            .append(",\"bytesPerSecond\":").append((long) bytesPerSecond)
+            .append(",\"downloads\":[");
+        json.append(active.stream().map(ProgressReporter::json).collect(Collectors.joining(",")));
+        return json.append("]}").toString();
+    }
+
+    private static String json(DownloadProgress progress) {
+
+        return "{\"source\":" + JsonStrings.quote(progress.getSource())
+                + ",\"transferredBytes\":" + progress.getTransferredBytes()
+                + ",\"expectedBytes\":" + progress.getExpectedBytes()
+                + ",\"elapsedMillis\":" + progress.getElapsedMillis() + "}";
+    }
+
+    private static String percent(double fraction) {
+        return fraction < 0 ? "?" : String.format(Locale.ROOT, "%.1f%%", fraction * 100);
+    }
+}
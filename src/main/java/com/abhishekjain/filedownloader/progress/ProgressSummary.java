@@ -0,0 +1,78 @@
+package com.abhishekjain.filedownloader.progress;
+
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Aggregated progress of a set of downloads at one point in time.
+ */
+public class ProgressSummary {
+
+    private final Map<DownloadStatus, Integer> counts;
+    private final long transferredBytes;
+    private final long expectedBytes;
+    private final int unknownSizes;
+
+    private ProgressSummary(Map<DownloadStatus, Integer> counts, long transferredBytes, long expectedBytes,
+                            int unknownSizes) {
+        this.counts = Collections.unmodifiableMap(counts);
+        this.transferredBytes = transferredBytes;
+        this.expectedBytes = expectedBytes;
+        this.unknownSizes = unknownSizes;
+    }
+
+    static ProgressSummary of(Collection<DownloadProgress> downloads) {
+
+        final Map<DownloadStatus, Integer> counts = new EnumMap<>(DownloadStatus.class);
+        long transferred = 0;
+        long expected = 0;
+        int unknown = 0;
+        for (DownloadProgress progress : downloads) {
+            counts.merge(progress.getStatus(), 1, Integer::sum);
+            final long downloadTransferred = progress.getTransferredBytes();
+            final long downloadExpected = progress.getExpectedBytes();
+            transferred += downloadTransferred;
+            if (downloadExpected >= 0) {
+                expected += downloadExpected;
+            } else if (progress.isFinished()) {
+                expected += downloadTransferred;
+            } else {
+                unknown++;
+            }
+        }
+        return new ProgressSummary(counts, transferred, expected, unknown);
+    }
+
+    /**
+     * @return Number of downloads with #status
+     */
+    public int getCount(DownloadStatus status) {
+        return counts.getOrDefault(status, 0);
+    }
+
+    public int getTotal() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * @return Sum of the expected sizes, the size of the running downloads of unknown size excluded
+     */
+    public long getExpectedBytes() {
+        return expectedBytes;
+    }
+
+    /**
+     * @return Number of running downloads of unknown size
+     */
+    public int getUnknownSizes() {
+        return unknownSizes;
+    }
+}
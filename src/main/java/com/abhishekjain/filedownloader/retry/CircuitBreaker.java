@@ -0,0 +1,79 @@
+package com.abhishekjain.filedownloader.retry;
+
+/**
+ * Circuit breaker of a single host.
+ * <p>
+ * The circuit opens after #failureThreshold failed attempts in a row and fails the attempts against the host without
+ * trying them for #openMillis. A single trial attempt is then let through: its success closes the circuit, its failure
+ * opens it again.
+ * </p>
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private long trialUntil;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return 0 if an attempt may go through, otherwise the milliseconds left before the circuit lets one through
+     */
+    synchronized long acquire(long now) {
+
+        switch (state) {
+            case OPEN:
+                if (now < openUntil) {
+                    return openUntil - now;
+                }
+                state = State.HALF_OPEN;
+                trialUntil = now + openMillis;
+                return 0;
+            case HALF_OPEN:
+                // One trial attempt at a time, another one being let through if it never reported back
+                if (now < trialUntil) {
+                    return trialUntil - now;
+                }
+                trialUntil = now + openMillis;
+                return 0;
+            default:
+                return 0;
+        }
+    }
+
+    synchronized void succeeded() {
+
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * @param now Current time in milliseconds
+     * @return true if the failure opened the circuit
+     */
+    synchronized boolean failed(long now) {
+
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openUntil = now + openMillis;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
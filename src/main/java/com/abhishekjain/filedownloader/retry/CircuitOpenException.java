@@ -0,0 +1,16 @@
+package com.abhishekjain.filedownloader.retry;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of attempting a download against a host whose circuit is open, i.e. that failed too many times in a
+ * row lately. It is not retried.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String host, long remainingMillis) {
+        super("Circuit open for host: " + host + " for another " + remainingMillis + " ms");
+    }
+}
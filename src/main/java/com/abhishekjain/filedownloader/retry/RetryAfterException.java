@@ -0,0 +1,60 @@
+package com.abhishekjain.filedownloader.retry;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Thrown when a server answers HTTP 429 (Too Many Requests) or 503 (Service Unavailable), along with the delay it
+ * asked to be retried after in its <b>Retry-After</b> header, if any.
+ */
+public class RetryAfterException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String RETRY_AFTER = "Retry-After";
+
+    private final long delayMillis;
+
+    /**
+     * @param message     Detail message
+     * @param delayMillis Delay asked by the server in milliseconds, -1 if it did not ask for one
+     */
+    public RetryAfterException(String message, long delayMillis) {
+        super(message);
+        this.delayMillis = delayMillis;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * @param retryAfter Value of the <b>Retry-After</b> header: a number of seconds or an HTTP date
+     * @return The delay in milliseconds, -1 if the header is missing or malformed
+     */
+    public static long delayMillis(String retryAfter) {
+
+        if (StringUtils.isBlank(retryAfter)) {
+            return -1;
+        }
+        final String value = retryAfter.trim();
+        if (StringUtils.isNumeric(value)) {
+            try {
+                return Math.multiplyExact(Long.parseLong(value), 1000L);
+            } catch (ArithmeticException | NumberFormatException e) {
+                return -1;
+            }
+        }
+        try {
+            final ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
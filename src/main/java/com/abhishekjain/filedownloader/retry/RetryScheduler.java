@@ -0,0 +1,183 @@
+package com.abhishekjain.filedownloader.retry;
+
+import com.abhishekjain.filedownloader.checksum.ChecksumMismatchException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides if and when a failed download attempt is retried, and reschedules it on a timer so that no download
+ * thread is held while waiting.
+ * <p>
+ * Attempts failing with an {@link IOException} are retried up to {@link #maxAttempts} attempts in all, after an
+ * exponential backoff with full jitter: a random delay between 0 and {@link #baseInterval} doubled on every attempt,
+ * capped at {@link #maxInterval}, so that the downloads failing together do not retry in lock step. A delay asked by
+ * the server through a {@link RetryAfterException} is honoured instead, unless it is longer than
+ * {@link #maxInterval}, in which case the download fails rather than waiting that long.
+ * </p>
+ * Every host has a {@link CircuitBreaker} opened after {@link #failureThreshold} failed attempts in a row, so that
+ * the downloads of a failing host are shed with a {@link CircuitOpenException} for {@link #openDuration} milliseconds
+ * instead of taking download threads. A threshold of <b>0</b> disables the circuit breakers.
+ */
+@Component
+public class RetryScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RetryScheduler.class);
+
+    private static final String NO_HOST = "";
+
+    @Value("${download.retry.count}")
+    private int maxAttempts;
+
+    @Value("${download.retry.interval}")
+    private long baseInterval;
+
+    @Value("${download.retry.max.interval}")
+    private long maxInterval;
+
+    @Value("${download.circuit.failure.threshold}")
+    private int failureThreshold;
+
+    @Value("${download.circuit.open.duration}")
+    private long openDuration;
+
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "download-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt   Number of the attempt that failed, starting at 1
+     * @param throwable The failure of the attempt
+     * @return true if the download is to be attempted again
+     */
+    public boolean isRetryable(int attempt, Throwable throwable) {
+        return attempt < maxAttempts && throwable instanceof IOException
+                && !(throwable instanceof CircuitOpenException) && !exceedsMaxInterval(throwable);
+    }
+
+    /**
+     * @param throwable The failure of an attempt
+     * @return true if the server asked to be retried after more than {@link #maxInterval} milliseconds
+     */
+    public boolean exceedsMaxInterval(Throwable throwable) {
+
+        if (!(throwable instanceof RetryAfterException)
+                || ((RetryAfterException) throwable).getDelayMillis() <= maxInterval) {
+            return false;
+        }
+        log.warn("Not retrying: server asked to retry after {} ms, longer than the max interval of {} ms. {}",
+                 ((RetryAfterException) throwable).getDelayMillis(), maxInterval, throwable.getMessage());
+        return true;
+    }
+
+    /**
+     * @param attempt   Number of the attempt that failed, starting at 1
+     * @param throwable The failure of the attempt
+     * @return Milliseconds to wait before the next attempt, at most {@link #maxInterval}
+     */
+    public long delay(int attempt, Throwable throwable) {
+
+        if (throwable instanceof RetryAfterException && ((RetryAfterException) throwable).getDelayMillis() >= 0) {
+            return Math.min(maxInterval, ((RetryAfterException) throwable).getDelayMillis());
+        }
+        final long ceiling = Math.min(maxInterval, baseInterval << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Runs #retry after #delayMillis on the retry timer.
+     *
+     * @param retry       The next attempt, expected to hand the download over to a download thread
+     * @param delayMillis Milliseconds to wait
+     */
+    public void schedule(Runnable retry, long delayMillis) {
+        timer.schedule(retry, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param sourceUrl Source url about to be attempted
+     * @throws CircuitOpenException If the circuit of its host is open
+     */
+    public void acquire(URL sourceUrl) throws CircuitOpenException {
+
+        final CircuitBreaker circuitBreaker = circuitBreaker(sourceUrl);
+        if (circuitBreaker == null) {
+            return;
+        }
+        final long remaining = circuitBreaker.acquire(System.currentTimeMillis());
+        if (remaining > 0) {
+            throw new CircuitOpenException(hostOf(sourceUrl), remaining);
+        }
+    }
+
+    /**
+     * Records the outcome of an attempt against the host of #sourceUrl. Only failures of the host count against it:
+     * a missing file or a corrupt content is a successful exchange with the host.
+     *
+     * @param sourceUrl Source url that was attempted
+     * @param throwable The failure of the attempt, null if it succeeded
+     */
+    public void completed(URL sourceUrl, Throwable throwable) {
+
+        final CircuitBreaker circuitBreaker = circuitBreaker(sourceUrl);
+        if (circuitBreaker == null || throwable instanceof CircuitOpenException) {
+            return;
+        }
+        if (throwable instanceof IOException && !(throwable instanceof FileNotFoundException)
+                && !(throwable instanceof ChecksumMismatchException)) {
+            if (circuitBreaker.failed(System.currentTimeMillis())) {
+                log.warn("Circuit opened for host: {} for {} ms. Exception: {}", hostOf(sourceUrl), openDuration,
+                         throwable.getMessage());
+            }
+        } else {
+            circuitBreaker.succeeded();
+        }
+    }
+
+    private CircuitBreaker circuitBreaker(URL sourceUrl) {
+
+        if (failureThreshold <= 0) {
+            return null;
+        }
+        return circuitBreakers.computeIfAbsent(hostOf(sourceUrl),
+                                               host -> new CircuitBreaker(failureThreshold, openDuration));
+    }
+
+    private static String hostOf(URL sourceUrl) {
+        return StringUtils.defaultString(StringUtils.lowerCase(sourceUrl.getHost()), NO_HOST);
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package com.abhishekjain.filedownloader.service;
 
+import com.abhishekjain.filedownloader.model.DownloadBatch;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Base Interface of the Download Service
- * Exposes a single method ${@link #downloadFilesFromSources(List, String)}
+ * Exposes ${@link #downloadFilesFromSources(List, String)}, which returns without waiting for the
+ * downloads: their results are completed in the returned {@link DownloadBatch} as each of them finishes, and
+ * ${@link #streamFilesFromSources(Iterator, String, Consumer)} for batches too large to be held in memory.
  */
 public interface FileDownloadService {
 
-    void downloadFilesFromSources(final List<String> sources, final String outputDirectory);
+    DownloadBatch downloadFilesFromSources(final List<String> sources, final String outputDirectory);
+
+    CompletableFuture<Map<DownloadStatus, Long>> streamFilesFromSources(final Iterator<String> sources,
+                                                                       final String outputDirectory,
+                                                                       final Consumer<FileDownloadResult> onResult);
 }
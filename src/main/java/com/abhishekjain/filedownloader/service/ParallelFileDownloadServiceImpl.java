@@ -1,9 +1,21 @@
 package com.abhishekjain.filedownloader.service;
 
+import com.abhishekjain.filedownloader.execution.AdaptiveConcurrencyController;
+import com.abhishekjain.filedownloader.execution.DownloadExecutor;
+import com.abhishekjain.filedownloader.execution.RejectableTask;
+import com.abhishekjain.filedownloader.journal.DownloadJournal;
+import com.abhishekjain.filedownloader.journal.DownloadJournalRegistry;
 import com.abhishekjain.filedownloader.manager.DownloadManager;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataRegistry;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataStore;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.model.DownloadBatch;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
 import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.utils.DownloadOptions;
 import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,22 +24,46 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Implementation of @{@link FileDownloadService}
  * This implementation creates @{@link CompletableFuture} of the download tasks
  * and submits them to be <i>processed in parallel</i>.
+ * The executor is shared by all the batches and shut down with the application context.
  */
 @Service
 public class ParallelFileDownloadServiceImpl implements FileDownloadService {
     private static final Logger log = LoggerFactory.getLogger(ParallelFileDownloadServiceImpl.class);
 
+    /**
+     * Number of streamed sources read ahead, whose journal state is loaded at once
+     */
+    static final int JOURNAL_WINDOW = 16 * 1024;
+
     @Autowired
     private FileDownloaderUtils fileDownloaderUtils;
 
@@ -35,37 +71,91 @@ public class ParallelFileDownloadServiceImpl implements FileDownloadService {
     @Qualifier("RetryableDownloadManager")
     private DownloadManager downloadManager;
 
+    @Autowired
+    private DownloadJournalRegistry downloadJournalRegistry;
+
+    @Autowired
+    private SourceMetadataRegistry sourceMetadataRegistry;
+
+    @Autowired
+    private DownloadMetrics downloadMetrics;
+
+    @Autowired
+    private AdaptiveConcurrencyController adaptiveConcurrency;
+
+    @Value("${download.conditional.enabled}")
+    private boolean conditionalEnabled;
+
     @Value("${download.pool.threads}")
     private int poolSize;
 
-    private ThreadPoolExecutor threadExecutor;
+    @Value("${download.execution.mode}")
+    private String executionMode;
+
+    @Value("${download.max.concurrent}")
+    private int maxConcurrent;
+
+    @Value("${download.max.per.host}")
+    private int maxPerHost;
+
+    @Value("${download.stream.max.pending}")
+    private int maxPending;
+
+    private DownloadExecutor threadExecutor;
 
     /**
-     * Initialises the thread pool that controls the number of workers available
-     * for the download tasks. Property {@link #poolSize} is used to configure
-     * the thread pool size.
+     * Initialises the executor that controls the number of downloads running at once.
+     * Property {@link #executionMode} selects between a pool of {@link #poolSize} threads and a virtual thread per
+     * download, {@link #maxConcurrent} caps the concurrent downloads in either mode and {@link #maxPerHost} the
+     * ones against the same host. Its occupancy is exposed as gauges of {@link DownloadMetrics}.
+     * With adaptive concurrency, the pool has as many threads as the {@link AdaptiveConcurrencyController} may
+     * allow downloads, {@link #poolSize} being the number of concurrent downloads it starts from.
      */
     @PostConstruct
     protected void init() {
 
-        threadExecutor = new ThreadPoolExecutor(poolSize,
-                                                poolSize, 1000, TimeUnit
-                                                        .MILLISECONDS, new
-                                                        LinkedBlockingQueue<>(100),
-                                                new ThreadPoolExecutor
-                                                        .CallerRunsPolicy());
+        if (adaptiveConcurrency.isEnabled()) {
+            threadExecutor = DownloadExecutor.create(executionMode, Math.max(poolSize, adaptiveConcurrency.getMax()),
+                                                     maxConcurrent, maxPerHost);
+            threadExecutor.setLimit(Math.min(threadExecutor.getLimit(), poolSize));
+            adaptiveConcurrency.start(threadExecutor);
+        } else {
+            threadExecutor = DownloadExecutor.create(executionMode, poolSize, maxConcurrent, maxPerHost);
+        }
+
+        downloadMetrics.gauge("download_executor_active", "Downloads running on the executor",
+                              threadExecutor::getActiveCount);
+        downloadMetrics.gauge("download_executor_queued", "Downloads waiting for the executor",
+                              threadExecutor::getQueuedCount);
+        downloadMetrics.gauge("download_executor_limit", "Downloads allowed to run at once",
+                              threadExecutor::getLimit);
+    }
+
+    /**
+     * Stops the downloads still running or queued when the application shuts down.
+     */
+    @PreDestroy
+    protected void shutdown() {
 
-        log.info("Initialized task pool [for parallel download] of size :{}", poolSize);
+        threadExecutor.shutdownNow();
     }
 
     /**
      * The method takes the input url sources and prepares them to be downloaded in parallel.
+     * Equivalent urls of the same resource (see {@link DownloadOptions#normalize}) are downloaded once, under their normalized
+     * form, and the result is shared by all of them.
+     * Sources recorded as completed in the {@link DownloadJournal} of the directory by an earlier run, and whose
+     * file is still there, are skipped. With conditional download enabled they are revalidated instead, so that
+     * sources changed since are downloaded again.
+     * Invalid sources get an {@link DownloadStatus#ERROR} result and skipped ones a {@link DownloadStatus#COMPLETED}
+     * result, both already completed.
      *
      * @param sources         The Url sources from where to download from.
      * @param outputDirectory The final directory where the downloaded files would be saved
+     * @return The batch of the sources, with the future of the result of each
      */
     @Override
-    public void downloadFilesFromSources(final List<String> sources, final String outputDirectory) {
+    public DownloadBatch downloadFilesFromSources(final List<String> sources, final String outputDirectory) {
 
         List<String> validSources = sources.stream()
                                            .filter(url -> fileDownloaderUtils.isValidUrl(url))
@@ -74,27 +164,287 @@ public class ParallelFileDownloadServiceImpl implements FileDownloadService {
         log.warn("Invalid/Malformed sources that won't be attempted for download : {}", CollectionUtils.subtract
                 (sources, validSources));
 
-        CompletableFuture.allOf(
-                validSources
-                        .stream()
-                        .map(source -> downloadAndSaveTask(source, outputDirectory))
-                        .toArray
-                                (CompletableFuture[]::new)
-        )
-                         .thenAccept(result -> {
-                             log.info("Download of all the sources have been completed/terminated. Program would exit" +
-                                              " now");
-                             threadExecutor.shutdownNow();
-                         });
+        final Map<String, List<String>> aliases = validSources.stream()
+                                                              .collect(Collectors.groupingBy(
+                                                                      DownloadOptions::normalize, LinkedHashMap::new,
+                                                                      Collectors.toList()));
+        aliases.forEach((source, sourceAliases) -> {
+            if (sourceAliases.size() > 1) {
+                log.info("Sources : {} are the same resource : {} that would be downloaded once", sourceAliases,
+                         source);
+            }
+        });
+
+        final DownloadJournal journal = downloadJournalRegistry.open(outputDirectory);
+        final SourceMetadataStore metadataStore = metadataStore(outputDirectory);
+        journal.load(aliases.keySet());
+        metadataStore.load(aliases.keySet());
+
+        Set<String> pendingSources = aliases.keySet()
+                                             .stream()
+                                             .filter(source -> conditionalEnabled || !journal.isCompleted(
+                                                     source,
+                                                     fileDownloaderUtils.downloadedLength(source,
+                                                                                          outputDirectory)))
+                                             .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        log.info("Sources already downloaded by an earlier run that would be skipped : {}",
+                 CollectionUtils.subtract(aliases.keySet(), pendingSources));
+
+        pendingSources.forEach(journal::pending);
+
+        final Map<String, CompletableFuture<FileDownloadResult>> tasks = new LinkedHashMap<>();
+        aliases.forEach((source, sourceAliases) -> {
+            final CompletableFuture<FileDownloadResult> result = pendingSources.contains(source)
+                    ? downloadAndSaveTask(source, outputDirectory, journal)
+                    : CompletableFuture.completedFuture(skipped(source, outputDirectory));
+            sourceAliases.forEach(alias -> tasks.put(alias, result));
+        });
+
+        final Map<String, CompletableFuture<FileDownloadResult>> results = new LinkedHashMap<>();
+        sources.forEach(source -> results.put(source, tasks.containsKey(source) ? tasks.get(source)
+                : CompletableFuture.completedFuture(invalid(source))));
+
+        final DownloadBatch batch = new DownloadBatch(results);
+        batch.getCompletion()
+             .thenAccept(completed -> {
+                 results.forEach((alias, aliasResult) -> log.debug(
+                         "Source: {} finished with status: {}", alias,
+                         aliasResult.join().getDownloadStatusStatus()));
+                 log.info("Download of all the sources have been completed/terminated");
+                 journal.sync();
+                 journal.release(aliases.keySet());
+                 metadataStore.release(aliases.keySet());
+             });
+        return batch;
+    }
+
+    /**
+     * Downloads the sources as they are read from #sources, so that the memory used does not depend on their number.
+     * The caller is blocked while the sources are fed: once {@link #maxPending} downloads are queued or running, the
+     * next source is only handed over when one of them finishes. Sources are read {@link #JOURNAL_WINDOW} at a time,
+     * the journal keeping the state of those only.
+     * Equivalent urls are downloaded once while the first of them is in flight, later ones being treated like the
+     * sources downloaded by an earlier run.
+     *
+     * @param sources         The Url sources from where to download from, read lazily
+     * @param outputDirectory The final directory where the downloaded files would be saved
+     * @param onResult        Called with the result of each source as soon as it is known
+     * @return Future completed once all the sources are over, with their number by status
+     */
+    @Override
+    public CompletableFuture<Map<DownloadStatus, Long>> streamFilesFromSources(final Iterator<String> sources,
+                                                                              final String outputDirectory,
+                                                                              final Consumer<FileDownloadResult>
+                                                                                      onResult) {
+
+        final DownloadJournal journal = downloadJournalRegistry.open(outputDirectory);
+        final SourceMetadataStore metadataStore = metadataStore(outputDirectory);
+        final Semaphore pending = new Semaphore(maxPending);
+        final ConcurrentMap<String, CompletableFuture<FileDownloadResult>> inFlight = new ConcurrentHashMap<>();
+        final StreamedBatch batch = new StreamedBatch(journal, onResult);
+
+        final Deque<String> window = new ArrayDeque<>();
+        List<String> windowSources = Collections.emptyList();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (window.isEmpty()) {
+                    journal.release(windowSources);
+                    metadataStore.release(windowSources);
+                    windowSources = nextWindow(sources, window);
+                    if (window.isEmpty()) {
+                        break;
+                    }
+                    journal.load(windowSources);
+                    metadataStore.load(windowSources);
+                }
+                final String source = window.poll();
+                if (!fileDownloaderUtils.isValidUrl(source)) {
+                    log.warn("Invalid/Malformed source that won't be attempted for download : {}", source);
+                    batch.submitted().finished(invalid(source));
+                    continue;
+                }
+
+                final String normalized = DownloadOptions.normalize(source);
+                final CompletableFuture<FileDownloadResult> running = inFlight.get(normalized);
+                if (running != null) {
+                    log.info("Source : {} is the same resource as : {} that is being downloaded", source, normalized);
+                    batch.submitted();
+                    running.whenComplete((result, throwable) -> batch.finished(normalized, result, throwable));
+                    continue;
+                }
+                if (!conditionalEnabled && journal.isCompleted(
+                        normalized, fileDownloaderUtils.downloadedLength(normalized, outputDirectory))) {
+                    batch.submitted().finished(skipped(normalized, outputDirectory));
+                    continue;
+                }
 
+                pending.acquire();
+                journal.pending(normalized);
+                batch.submitted();
+                final CompletableFuture<FileDownloadResult> result = downloadAndSaveTask(normalized,
+                                                                                         outputDirectory, journal);
+                inFlight.put(normalized, result);
+                result.whenComplete((downloadResult, throwable) -> {
+                    inFlight.remove(normalized, result);
+                    pending.release();
+                    batch.finished(normalized, downloadResult, throwable);
+                });
+            }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while feeding the sources, the remaining ones won't be attempted for download");
+            Thread.currentThread().interrupt();
+        } finally {
+            journal.release(windowSources);
+            metadataStore.release(windowSources);
+            batch.fed();
+        }
+        return batch.getCompletion();
     }
 
-    private CompletableFuture<FileDownloadResult> downloadAndSaveTask(final String source, final String saveDirectory) {
+    /**
+     * @return The {@link SourceMetadataStore} of the directory, loaded along with the journal so that the sources
+     * revalidated by conditional downloads are not looked up one at a time
+     */
+    private SourceMetadataStore metadataStore(String outputDirectory) {
+        return conditionalEnabled ? sourceMetadataRegistry.open(outputDirectory) : SourceMetadataStore.disabled();
+    }
+
+    /**
+     * Reads the next {@link #JOURNAL_WINDOW} sources into #window, so that their journal state is loaded at once.
+     *
+     * @return The normalized valid sources of the window
+     */
+    private List<String> nextWindow(final Iterator<String> sources, final Deque<String> window) {
+
+        final List<String> normalized = new ArrayList<>();
+        while (window.size() < JOURNAL_WINDOW && sources.hasNext()) {
+            final String source = StringUtils.trim(sources.next());
+            if (StringUtils.isEmpty(source)) {
+                continue;
+            }
+            window.add(source);
+            if (fileDownloaderUtils.isValidUrl(source)) {
+                normalized.add(DownloadOptions.normalize(source));
+            }
+        }
+        return normalized;
+    }
+
+    private CompletableFuture<FileDownloadResult> downloadAndSaveTask(final String source, final String saveDirectory,
+                                                                      final DownloadJournal journal) {
+
+        // Attempts are queued behind the other downloads of the host, the first one marking the download started
+        final Executor hostExecutor = threadExecutor.forHost(hostOf(source));
+        final AtomicBoolean started = new AtomicBoolean();
+        final Executor attemptExecutor = attempt -> hostExecutor.execute(RejectableTask.of(() -> {
+            if (started.compareAndSet(false, true)) {
+                journal.inProgress(source);
+            }
+            attempt.run();
+        }, e -> RejectableTask.reject(attempt, e)));
+
+        return downloadManager.downloadFromSourceAsync(source, saveDirectory, attemptExecutor)
+                              .thenApply(result -> {
+                                  result.setSource(source);
+                                  if (DownloadStatus.COMPLETED.equals(result.getDownloadStatusStatus())
+                                          || DownloadStatus.NOT_MODIFIED.equals(result.getDownloadStatusStatus())) {
+                                      final long length = fileDownloaderUtils.downloadedLength(source, saveDirectory);
+                                      result.setBytes(length);
+                                      journal.completed(source, length, Objects.toString(result.getChecksum(), null));
+                                  }
+                                  return result;
+                              });
+
+    }
+
+    private FileDownloadResult skipped(final String source, final String outputDirectory) {
+
+        return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED)
+                                       .setMessage("Already downloaded by an earlier run: " + source)
+                                       .setSource(source)
+                                       .setBytes(fileDownloaderUtils.downloadedLength(source, outputDirectory));
+    }
+
+    private static FileDownloadResult invalid(final String source) {
+
+        return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.ERROR)
+                                       .setMessage("Invalid/Malformed source: " + source)
+                                       .setSource(source);
+    }
+
+    /**
+     * Counts the results of a streamed batch and completes it once the last of its sources is over.
+     */
+    private static class StreamedBatch {
+
+        private final DownloadJournal journal;
+        private final Consumer<FileDownloadResult> onResult;
+        private final Map<DownloadStatus, LongAdder> counts = new EnumMap<>(DownloadStatus.class);
+        // Sources submitted and not finished yet, plus one until all of them are fed
+        private final AtomicLong outstanding = new AtomicLong(1);
+        private final CompletableFuture<Map<DownloadStatus, Long>> completion = new CompletableFuture<>();
+
+        StreamedBatch(DownloadJournal journal, Consumer<FileDownloadResult> onResult) {
+
+            this.journal = journal;
+            this.onResult = onResult;
+            for (DownloadStatus status : DownloadStatus.values()) {
+                counts.put(status, new LongAdder());
+            }
+        }
+
+        StreamedBatch submitted() {
+
+            outstanding.incrementAndGet();
+            return this;
+        }
+
+        void finished(String source, FileDownloadResult result, Throwable throwable) {
+
+            finished(result != null ? result : new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.ERROR)
+                                                                       .setMessage(String.valueOf(throwable))
+                                                                       .setSource(source));
+        }
+
+        void finished(FileDownloadResult result) {
+
+            try {
+                onResult.accept(result);
+            } catch (RuntimeException e) {
+                log.error("Failed to process the result of source: {}", result.getSource(), e);
+            }
+            counts.get(result.getDownloadStatusStatus()).increment();
+            done();
+        }
+
+        void fed() {
+            done();
+        }
+
+        CompletableFuture<Map<DownloadStatus, Long>> getCompletion() {
+            return completion;
+        }
+
+        private void done() {
+
+            if (outstanding.decrementAndGet() == 0) {
+                final Map<DownloadStatus, Long> totals = new EnumMap<>(DownloadStatus.class);
+                counts.forEach((status, count) -> totals.put(status, count.sum()));
+                log.info("Download of all the streamed sources have been completed/terminated : {}", totals);
+                journal.sync();
+                completion.complete(Collections.unmodifiableMap(totals));
+            }
+        }
+    }
 
-        return CompletableFuture.supplyAsync(
-                () -> downloadManager.downloadFromSource(source, saveDirectory),
-                threadExecutor);
+    private static String hostOf(final String source) {
 
+        try {
+            return StringUtils.lowerCase(URI.create(source).getHost());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
 }
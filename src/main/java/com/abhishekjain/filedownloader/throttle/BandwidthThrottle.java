@@ -0,0 +1,123 @@
+package com.abhishekjain.filedownloader.throttle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits the bandwidth of the downloads to a global budget of {@link #globalBytesPerSecond} and a budget of
+ * {@link #hostBytesPerSecond} per host. A budget that is not positive is not limited.
+ * <p>
+ * Every download of the same host shares the {@link TokenBucket} of the host, and every download shares the
+ * global one.
+ * </p>
+ * <p>
+ * The bucket of a host is evicted once no channel of the host is open and the bucket is {@link TokenBucket#isIdle()
+ * idle}, so that a run over many hosts does not keep a bucket for each of them. Buckets are swept whenever a
+ * channel of a host is closed.
+ * </p>
+ */
+@Component
+public class BandwidthThrottle {
+    private static final Logger log = LoggerFactory.getLogger(BandwidthThrottle.class);
+
+    @Value("${download.throttle.global.bytes.per.sec}")
+    private long globalBytesPerSecond;
+
+    @Value("${download.throttle.host.bytes.per.sec}")
+    private long hostBytesPerSecond;
+
+    private final Map<String, HostBucket> hostBuckets = new ConcurrentHashMap<>();
+
+    private TokenBucket globalBucket;
+
+    @PostConstruct
+    protected void init() {
+
+        if (globalBytesPerSecond > 0) {
+            globalBucket = new TokenBucket(globalBytesPerSecond);
+        }
+        log.info("Initialized bandwidth throttle of {} bytes/sec in total, {} bytes/sec per host (0 is unlimited)",
+                 Math.max(0, globalBytesPerSecond), Math.max(0, hostBytesPerSecond));
+    }
+
+    public boolean isEnabled() {
+        return globalBucket != null || hostBytesPerSecond > 0;
+    }
+
+    /**
+     * Wraps the channel of a download so that reading from it stays within the budgets of its source.
+     *
+     * @param sourceUrl Source url the channel downloads from
+     * @param channel   Channel of the downloaded content
+     * @return Throttled channel, #channel itself if there is no budget to respect
+     */
+    public ReadableByteChannel throttle(URL sourceUrl, ReadableByteChannel channel) {
+
+        if (!isEnabled()) {
+            return channel;
+        }
+
+        final List<TokenBucket> buckets = new ArrayList<>(2);
+        if (globalBucket != null) {
+            buckets.add(globalBucket);
+        }
+        final String host = hostBytesPerSecond > 0 && sourceUrl.getHost() != null
+                ? sourceUrl.getHost().toLowerCase(Locale.ROOT) : null;
+        if (host != null) {
+            buckets.add(hostBuckets.compute(host, (key, hostBucket) -> (hostBucket != null ? hostBucket
+                    : new HostBucket(new TokenBucket(hostBytesPerSecond))).opened()).bucket);
+        }
+        return buckets.isEmpty() ? channel : new ThrottledChannel(channel, buckets, () -> closed(host));
+    }
+
+    /**
+     * Releases the bucket of #host, if any, for a closed channel, and evicts every bucket no longer needed.
+     */
+    private void closed(String host) {
+
+        if (host != null) {
+            hostBuckets.computeIfPresent(host, (key, hostBucket) -> hostBucket.closed());
+        }
+        for (String key : hostBuckets.keySet()) {
+            hostBuckets.computeIfPresent(key, (k, hostBucket) -> hostBucket.isIdle() ? null : hostBucket);
+        }
+    }
+
+    /**
+     * Bucket of a host along with the number of its open channels, only updated within the map's atomic updates.
+     */
+    private static final class HostBucket {
+
+        private final TokenBucket bucket;
+        private int channels;
+
+        private HostBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        private HostBucket opened() {
+            channels++;
+            return this;
+        }
+
+        private HostBucket closed() {
+            channels--;
+            return this;
+        }
+
+        private boolean isIdle() {
+            return channels == 0 && bucket.isIdle();
+        }
+    }
+}
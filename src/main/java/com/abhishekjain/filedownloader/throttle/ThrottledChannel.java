@@ -0,0 +1,85 @@
+package com.abhishekjain.filedownloader.throttle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Channel taking every byte read out of its {@link TokenBucket}s, and waiting after a read for as long as the
+ * most indebted bucket requires.
+ * <p>
+ * Reads are capped at {@link #CHUNK_SIZE} bytes so that the waits stay short and the rate smooth. The first close
+ * of the channel runs its close callback.
+ * </p>
+ */
+class ThrottledChannel implements ReadableByteChannel {
+
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final List<TokenBucket> buckets;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ThrottledChannel(ReadableByteChannel channel, List<TokenBucket> buckets, Runnable onClose) {
+        this.channel = channel;
+        this.buckets = buckets;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        final int limit = dst.limit();
+        final int read;
+        try {
+            dst.limit(Math.min(limit, dst.position() + CHUNK_SIZE));
+            read = channel.read(dst);
+        } finally {
+            dst.limit(limit);
+        }
+
+        if (read > 0) {
+            long wait = 0;
+            for (TokenBucket bucket : buckets) {
+                wait = Math.max(wait, bucket.take(read));
+            }
+            pause(wait);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            channel.close();
+        } finally {
+            if (closed.compareAndSet(false, true)) {
+                onClose.run();
+            }
+        }
+    }
+
+    private static void pause(long nanos) throws InterruptedIOException {
+
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling download");
+        }
+    }
+}
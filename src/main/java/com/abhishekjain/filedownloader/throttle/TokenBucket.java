@@ -0,0 +1,67 @@
+package com.abhishekjain.filedownloader.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket of {@link #bytesPerSecond} bytes, shared by every download it limits.
+ * <p>
+ * Instead of counting tokens, the bucket keeps the time at which the bytes taken so far are paid for. Taking bytes
+ * moves that time forward with a single compare-and-set and tells the caller how long to wait for it, so that
+ * concurrent downloads never block each other while accounting. Up to {@link #BURST_NANOS} of unused budget is kept
+ * for bursts.
+ * </p>
+ */
+public class TokenBucket {
+
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long bytesPerSecond;
+    private final AtomicLong paidUntil;
+
+    /**
+     * @param bytesPerSecond Budget of the bucket, at least 1
+     */
+    public TokenBucket(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        this.paidUntil = new AtomicLong(System.nanoTime() - BURST_NANOS);
+    }
+
+    /**
+     * Takes #bytes out of the bucket, going into debt if it does not hold as many.
+     *
+     * @param bytes Number of bytes transferred
+     * @return Nanoseconds the caller has to wait for the bucket to be even again, 0 if none
+     */
+    public long take(long bytes) {
+
+        final long cost = costOf(bytes);
+        final long now = System.nanoTime();
+        long current;
+        long start;
+        do {
+            current = paidUntil.get();
+            start = Math.max(current, now - BURST_NANOS);
+        } while (!paidUntil.compareAndSet(current, start + cost));
+
+        return Math.max(0, start + cost - now);
+    }
+
+    /**
+     * @return Whether the bucket holds its full burst, so that it can be replaced by a new one without any change
+     */
+    public boolean isIdle() {
+        return paidUntil.get() <= System.nanoTime() - BURST_NANOS;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private long costOf(long bytes) {
+
+        final long seconds = bytes / bytesPerSecond;
+        final long remainder = bytes % bytesPerSecond;
+        return TimeUnit.SECONDS.toNanos(seconds) + remainder * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+    }
+}
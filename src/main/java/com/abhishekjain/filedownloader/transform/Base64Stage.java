@@ -0,0 +1,97 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Decodes base64 content, of the basic or the URL safe alphabet. Line breaks and other whitespace are skipped, so
+ * that MIME formatted content is decoded as well, and the padding of the last group is optional.
+ */
+@Component
+public class Base64Stage implements TransformStage {
+
+    private static final byte[] DECODE = new byte[256];
+    private static final byte WHITESPACE = -2;
+    private static final byte INVALID = -1;
+
+    static {
+        Arrays.fill(DECODE, INVALID);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+        DECODE['-'] = 62;
+        DECODE['_'] = 63;
+        for (char c : " \t\r\n".toCharArray()) {
+            DECODE[c] = WHITESPACE;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "base64";
+    }
+
+    @Override
+    public ReadableByteChannel apply(ReadableByteChannel upstream, BufferPool bufferPool) {
+        return new Base64DecodeChannel(upstream, bufferPool);
+    }
+
+    private static class Base64DecodeChannel extends TransformChannel {
+
+        private int group;
+        private int groupLength;
+        private boolean padded;
+
+        Base64DecodeChannel(ReadableByteChannel upstream, BufferPool bufferPool) {
+            super(upstream, bufferPool);
+        }
+
+        @Override
+        protected boolean transform(ByteBuffer input, ByteBuffer output, boolean endOfInput) throws IOException {
+
+            while (input.hasRemaining() && output.remaining() >= 3) {
+                final int c = input.get() & 0xFF;
+                if (c == '=') {
+                    padded = true;
+                    continue;
+                }
+                final byte value = DECODE[c];
+                if (value == WHITESPACE) {
+                    continue;
+                }
+                if (value == INVALID || padded) {
+                    throw new IOException("Invalid base64 content at character: " + (char) c);
+                }
+                group = group << 6 | value;
+                if (++groupLength == 4) {
+                    output.put((byte) (group >> 16)).put((byte) (group >> 8)).put((byte) group);
+                    group = 0;
+                    groupLength = 0;
+                }
+            }
+
+            if (!endOfInput || input.hasRemaining() || output.remaining() < 3) {
+                return false;
+            }
+            switch (groupLength) {
+                case 0:
+                    break;
+                case 2:
+                    output.put((byte) (group >> 4));
+                    break;
+                case 3:
+                    output.put((byte) (group >> 10)).put((byte) (group >> 2));
+                    break;
+                default:
+                    throw new IOException("Invalid base64 content: truncated last group");
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses deflate content, either zlib wrapped (RFC 1950) or raw (RFC 1951) as some servers send it.
+ */
+@Component
+public class DeflateStage implements TransformStage {
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public ReadableByteChannel apply(ReadableByteChannel upstream, BufferPool bufferPool) {
+        return new InflateChannel(upstream, bufferPool);
+    }
+
+    /**
+     * Inflates #input into #output with the inflater, keeping the position of #input in step with the bytes the
+     * inflater consumed.
+     *
+     * @return Number of bytes inflated
+     */
+    static int inflate(Inflater inflater, ByteBuffer input, ByteBuffer output) throws IOException {
+
+        inflater.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        try {
+            final int inflated = inflater.inflate(output.array(), output.arrayOffset() + output.position(),
+                                                  output.remaining());
+            output.position(output.position() + inflated);
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid deflate content: " + e.getMessage());
+        } finally {
+            input.position(input.limit() - inflater.getRemaining());
+        }
+    }
+
+    private static class InflateChannel extends TransformChannel {
+
+        private Inflater inflater;
+
+        InflateChannel(ReadableByteChannel upstream, BufferPool bufferPool) {
+            super(upstream, bufferPool);
+        }
+
+        @Override
+        protected boolean transform(ByteBuffer input, ByteBuffer output, boolean endOfInput) throws IOException {
+
+            if (inflater == null) {
+                if (input.remaining() < 2) {
+                    return endOfInput && !input.hasRemaining();
+                }
+                inflater = new Inflater(!isZlibHeader(input.get(input.position()), input.get(input.position() + 1)));
+            }
+
+            inflate(inflater, input, output);
+            if (inflater.needsDictionary()) {
+                throw new ZipException("Deflate content with a preset dictionary is not supported");
+            }
+            if (inflater.finished()) {
+                inflater.end();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (inflater != null) {
+                inflater.end();
+            }
+            super.close();
+        }
+
+        private static boolean isZlibHeader(byte cmf, byte flg) {
+            return (cmf & 0x0F) == 8 && ((cmf & 0xFF) * 256 + (flg & 0xFF)) % 31 == 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses gzip content (RFC 1952), so that a <i>.gz</i> source is stored decompressed in one pass.
+ * <p>
+ * Concatenated members are decompressed one after the other and the CRC-32 and size of every member are verified.
+ * Like {@link java.util.zip.GZIPInputStream}, bytes trailing the last member that do not start a new member are
+ * ignored. The optional fields of a member header are skipped as they stream through, so that they may be longer
+ * than the buffers of the channel.
+ * </p>
+ */
+@Component
+public class GzipStage implements TransformStage {
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public ReadableByteChannel apply(ReadableByteChannel upstream, BufferPool bufferPool) {
+        return new GunzipChannel(upstream, bufferPool);
+    }
+
+    private static class GunzipChannel extends TransformChannel {
+
+        private static final int MAGIC = 0x8b1f;
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+        private static final int HEADER_LENGTH = 10;
+        private static final int TRAILER_LENGTH = 8;
+
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private State state = State.HEADER;
+        private boolean firstMember = true;
+        private int flags;
+        private int extraRemaining;
+
+        GunzipChannel(ReadableByteChannel upstream, BufferPool bufferPool) {
+            super(upstream, bufferPool);
+        }
+
+        @Override
+        protected boolean transform(ByteBuffer input, ByteBuffer output, boolean endOfInput) throws IOException {
+
+            while (true) {
+                switch (state) {
+                    case HEADER:
+                        if (!firstMember && !input.hasRemaining()) {
+                            return endOfInput;
+                        }
+                        if (!firstMember && (!startsWithMagic(input) || endOfInput && input.remaining() < 2)) {
+                            // Trailing garbage after the last member
+                            input.position(input.limit());
+                            return true;
+                        }
+                        if (input.remaining() < HEADER_LENGTH) {
+                            return false;
+                        }
+                        flags = headerFlags(input);
+                        input.position(input.position() + HEADER_LENGTH);
+                        state = State.EXTRA_LENGTH;
+                        break;
+                    case EXTRA_LENGTH:
+                        if ((flags & FEXTRA) != 0) {
+                            if (input.remaining() < 2) {
+                                return false;
+                            }
+                            extraRemaining = input.get() & 0xFF | (input.get() & 0xFF) << 8;
+                        }
+                        state = State.EXTRA;
+                        break;
+                    case EXTRA:
+                        final int skipped = Math.min(extraRemaining, input.remaining());
+                        input.position(input.position() + skipped);
+                        extraRemaining -= skipped;
+                        if (extraRemaining > 0) {
+                            return false;
+                        }
+                        state = State.NAME;
+                        break;
+                    case NAME:
+                        if ((flags & FNAME) != 0 && !skipZeroTerminated(input)) {
+                            return false;
+                        }
+                        state = State.COMMENT;
+                        break;
+                    case COMMENT:
+                        if ((flags & FCOMMENT) != 0 && !skipZeroTerminated(input)) {
+                            return false;
+                        }
+                        state = State.HEADER_CRC;
+                        break;
+                    case HEADER_CRC:
+                        if ((flags & FHCRC) != 0) {
+                            if (input.remaining() < 2) {
+                                return false;
+                            }
+                            input.position(input.position() + 2);
+                        }
+                        inflater.reset();
+                        crc.reset();
+                        state = State.BODY;
+                        break;
+                    case BODY:
+                        final int start = output.position();
+                        DeflateStage.inflate(inflater, input, output);
+                        crc.update(output.array(), output.arrayOffset() + start, output.position() - start);
+                        if (!inflater.finished()) {
+                            return false;
+                        }
+                        state = State.TRAILER;
+                        break;
+                    case TRAILER:
+                        if (input.remaining() < TRAILER_LENGTH) {
+                            return false;
+                        }
+                        final ByteBuffer trailer = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+                        if ((trailer.getInt(0) & 0xFFFFFFFFL) != crc.getValue()) {
+                            throw new ZipException("Corrupt gzip content: CRC-32 mismatch");
+                        }
+                        if ((trailer.getInt(4) & 0xFFFFFFFFL) != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+                            throw new ZipException("Corrupt gzip content: size mismatch");
+                        }
+                        input.position(input.position() + TRAILER_LENGTH);
+                        firstMember = false;
+                        state = State.HEADER;
+                        if (!output.hasRemaining()) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown state: " + state);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            inflater.end();
+            super.close();
+        }
+
+        private static boolean startsWithMagic(ByteBuffer input) {
+
+            return input.remaining() < 2
+                    || (input.get(input.position()) & 0xFF | (input.get(input.position() + 1) & 0xFF) << 8) == MAGIC;
+        }
+
+        /**
+         * @return Flags of the fixed part of the member header at the position of #input
+         */
+        private static int headerFlags(ByteBuffer input) throws ZipException {
+
+            final ByteBuffer header = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+            if ((header.getShort(0) & 0xFFFF) != MAGIC) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (header.get(2) != 8) {
+                throw new ZipException("Unsupported gzip compression method: " + header.get(2));
+            }
+            return header.get(3) & 0xFF;
+        }
+
+        /**
+         * Skips the bytes of #input up to and including a zero byte.
+         *
+         * @return true if the zero byte was found, false if every byte of #input was skipped without it
+         */
+        private static boolean skipZeroTerminated(ByteBuffer input) {
+
+            while (input.hasRemaining()) {
+                if (input.get() == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Parts of a member, in order. The optional fields of the header are skipped when their flag is not set.
+         */
+        private enum State {
+            HEADER, EXTRA_LENGTH, EXTRA, NAME, COMMENT, HEADER_CRC, BODY, TRAILER
+        }
+    }
+}
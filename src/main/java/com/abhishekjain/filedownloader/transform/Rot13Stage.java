@@ -0,0 +1,24 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+import com.abhishekjain.filedownloader.custom.CryptChannels;
+import org.springframework.stereotype.Component;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Decodes rot13 content, rotating the bytes in place in the reader's buffer without any buffer of its own.
+ */
+@Component
+public class Rot13Stage implements TransformStage {
+
+    @Override
+    public String getName() {
+        return "rot13";
+    }
+
+    @Override
+    public ReadableByteChannel apply(ReadableByteChannel upstream, BufferPool bufferPool) {
+        return CryptChannels.rot13(upstream);
+    }
+}
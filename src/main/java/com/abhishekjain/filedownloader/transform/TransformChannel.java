@@ -0,0 +1,111 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Base channel of the transform stages. Reads the upstream content into a pooled input buffer, lets
+ * {@link #transform(ByteBuffer, ByteBuffer, boolean)} turn it into a pooled output buffer, and hands the output
+ * out to the readers. Both buffers are heap buffers, so that stages can work on their arrays. They are acquired on
+ * the first read, and returned to the pool when the channel is closed.
+ */
+public abstract class TransformChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel upstream;
+    private final BufferPool bufferPool;
+    private ByteBuffer input;
+    private ByteBuffer output;
+    private boolean endOfInput;
+    private boolean done;
+    private boolean closed;
+
+    protected TransformChannel(ReadableByteChannel upstream, BufferPool bufferPool) {
+
+        this.upstream = upstream;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Transforms as much of #input as fits into #output.
+     *
+     * @param input      Upstream content to transform, ready to be read from
+     * @param output     Buffer to write the transformed content to
+     * @param endOfInput true if #input holds the last bytes of the upstream content
+     * @return true once the whole content has been transformed
+     * @throws IOException If the content can not be transformed
+     */
+    protected abstract boolean transform(ByteBuffer input, ByteBuffer output, boolean endOfInput) throws IOException;
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (input == null) {
+            input = (ByteBuffer) bufferPool.acquire().flip();
+        }
+        if (output == null) {
+            output = (ByteBuffer) bufferPool.acquire().flip();
+        }
+        while (!output.hasRemaining()) {
+            if (done) {
+                return -1;
+            }
+            output.clear();
+            done = transform(input, output, endOfInput);
+            output.flip();
+            if (!output.hasRemaining() && !done) {
+                if (endOfInput) {
+                    throw new EOFException("Unexpected end of content for " + getClass().getSimpleName());
+                }
+                fill();
+            }
+        }
+
+        final int count = Math.min(dst.remaining(), output.remaining());
+        final int limit = output.limit();
+        output.limit(output.position() + count);
+        dst.put(output);
+        output.limit(limit);
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return upstream.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            upstream.close();
+        } finally {
+            closed = true;
+            bufferPool.release(input);
+            bufferPool.release(output);
+            input = null;
+            output = null;
+        }
+    }
+
+    private void fill() throws IOException {
+
+        input.compact();
+        if (!input.hasRemaining()) {
+            input.flip();
+            throw new IOException(getClass().getSimpleName() + " can not make progress on a full input buffer");
+        }
+        final int read = upstream.read(input);
+        input.flip();
+        if (read == -1) {
+            endOfInput = true;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Chains the {@link TransformStage}s selected for a download onto its channel, so that the content is transformed
+ * while it streams to its file, without a temporary file or a second read.
+ * <p>
+ * Built-in stages are <b>gzip</b>, <b>deflate</b>, <b>rot13</b> and <b>base64</b>. Any other bean implementing
+ * {@link TransformStage} is registered under its name. The stages share a pool of {@link #bufferSize} byte heap
+ * buffers, keeping at most {@link #maxPooledBuffers} of them idle.
+ * </p>
+ */
+@Component
+public class TransformPipeline {
+    private static final Logger log = LoggerFactory.getLogger(TransformPipeline.class);
+
+    @Autowired(required = false)
+    private List<TransformStage> transformStages = Collections.emptyList();
+
+    @Value("${download.transform.buffer.size}")
+    private int bufferSize;
+
+    @Value("${download.transform.buffer.pool.max}")
+    private int maxPooledBuffers;
+
+    private final Map<String, TransformStage> stages = new TreeMap<>();
+
+    private BufferPool bufferPool;
+
+    @PostConstruct
+    protected void init() {
+
+        for (TransformStage stage : transformStages) {
+            final TransformStage existing = stages.put(stage.getName().toLowerCase(Locale.ROOT), stage);
+            if (existing != null) {
+                throw new IllegalStateException("Transform stages " + existing.getClass().getName() + " and "
+                                                        + stage.getClass().getName() + " share the name: "
+                                                        + stage.getName());
+            }
+        }
+        bufferPool = new BufferPool(bufferSize, maxPooledBuffers, false);
+
+        log.info("Initialized transform stages: {} with buffers of {} bytes", stages.keySet(), bufferSize);
+    }
+
+    /**
+     * @param names Names of the stages
+     * @throws IllegalArgumentException If any of the stages is unknown
+     */
+    public void validate(List<String> names) {
+
+        for (String name : names) {
+            if (!stages.containsKey(name.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Unknown transform: " + name + ". Available: " + stages.keySet());
+            }
+        }
+    }
+
+    /**
+     * @param names   Names of the stages, in the order the content goes through them
+     * @param channel Channel of the downloaded content
+     * @return Channel of the transformed content
+     * @throws IllegalArgumentException If any of the stages is unknown
+     */
+    public ReadableByteChannel apply(List<String> names, ReadableByteChannel channel) {
+
+        validate(names);
+        ReadableByteChannel transformed = channel;
+        for (String name : names) {
+            transformed = stages.get(name.toLowerCase(Locale.ROOT)).apply(transformed, bufferPool);
+        }
+        return transformed;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
@@ -0,0 +1,27 @@
+package com.abhishekjain.filedownloader.transform;
+
+import com.abhishekjain.filedownloader.buffer.BufferPool;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Stage of the {@link TransformPipeline}, transforming the content of a download while it streams to its file.
+ * <p>
+ * Every Spring bean implementing this interface is registered under its {@link #getName() name}, so that user
+ * stages are plugged in by declaring them as components. Stages are typically built on {@link TransformChannel}.
+ * </p>
+ */
+public interface TransformStage {
+
+    /**
+     * @return Name the stage is selected by, case insensitive
+     */
+    String getName();
+
+    /**
+     * @param upstream   Channel of the content to transform
+     * @param bufferPool Pool of heap buffers the stage takes its buffers from
+     * @return Channel of the transformed content, closing #upstream when closed
+     */
+    ReadableByteChannel apply(ReadableByteChannel upstream, BufferPool bufferPool);
+}
@@ -0,0 +1,126 @@
+package com.abhishekjain.filedownloader.utils;
+
+import com.abhishekjain.filedownloader.checksum.ChecksumAlgorithm;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Options of a single download, given in the fragment of its source url. The fragment is never sent to the server.
+ * <p>
+ * Example: <b>http://localhost:8000/logs.txt.gz#transform=gzip</b>
+ * stores the decompressed logs. Several options are separated by <b>&amp;</b>.
+ * </p>
+ */
+public class DownloadOptions {
+
+    /**
+     * Comma separated names of the {@link com.abhishekjain.filedownloader.transform.TransformStage}s the content
+     * goes through, in order
+     */
+    public static final String TRANSFORM = "transform";
+
+    private static final DownloadOptions NONE = new DownloadOptions(Collections.emptyMap());
+
+    private final Map<String, String> options;
+
+    private DownloadOptions(Map<String, String> options) {
+        this.options = options;
+    }
+
+    /**
+     * @param url Source url of the download
+     * @return The options in the fragment of #url
+     */
+    public static DownloadOptions of(URL url) {
+
+        if (StringUtils.isBlank(url.getRef())) {
+            return NONE;
+        }
+
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (String option : StringUtils.split(url.getRef(), '&')) {
+            final String key = StringUtils.substringBefore(option, "=");
+            final String value = option.contains("=") ? StringUtils.substringAfter(option, "=") : "";
+            options.put(decode(key).toLowerCase(Locale.ROOT), decode(value));
+        }
+        return new DownloadOptions(options);
+    }
+
+    /**
+     * Normalizes the source as {@link UrlNormalizer} does, keeping its transforms and expected checksums (see
+     * {@link ChecksumAlgorithm}) as the only options of the fragment, so that sources saved at the same file (see
+     * {@link FileDownloaderUtils#uniqueFileSaveLocation}) and verified the same way compare equal.
+     * <p>
+     * Example: <b>http://Localhost:80/logs.gz#Transform=GZIP&amp;section=2&amp;SHA256=AB12</b> becomes
+     * <b>http://localhost/logs.gz#transform=gzip&amp;sha256=ab12</b>
+     * </p>
+     *
+     * @param source Source url of the download
+     * @return The normalized source, #source itself if it can not be parsed
+     */
+    public static String normalize(String source) {
+
+        try {
+            final URL url = new URL(source);
+            final DownloadOptions options = of(url);
+            final List<String> fragment = new ArrayList<>();
+            if (options.hasTransforms()) {
+                fragment.add(TRANSFORM + "=" + String.join(",", options.getTransforms()).toLowerCase(Locale.ROOT));
+            }
+            for (ChecksumAlgorithm checksumAlgorithm : ChecksumAlgorithm.values()) {
+                final String checksum = options.get(checksumAlgorithm.getName());
+                if (StringUtils.isNotBlank(checksum)) {
+                    fragment.add(checksumAlgorithm.getName() + "=" + checksum.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            final String normalized = UrlNormalizer.normalize(url);
+            return fragment.isEmpty() ? normalized : normalized + "#" + String.join("&", fragment);
+        } catch (MalformedURLException e) {
+            return source;
+        }
+    }
+
+    public String get(String key) {
+        return options.get(key);
+    }
+
+    /**
+     * @return Names of the transform stages, empty if the content is saved as is
+     */
+    public List<String> getTransforms() {
+
+        final String transforms = options.get(TRANSFORM);
+        if (StringUtils.isBlank(transforms)) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(StringUtils.split(transforms, ','))
+                     .map(String::trim)
+                     .filter(StringUtils::isNotEmpty)
+                     .collect(Collectors.toList());
+    }
+
+    public boolean hasTransforms() {
+        return !getTransforms().isEmpty();
+    }
+
+    private static String decode(String value) {
+
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
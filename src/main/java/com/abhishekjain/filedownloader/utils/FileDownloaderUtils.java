@@ -1,19 +1,25 @@
 package com.abhishekjain.filedownloader.utils;
 
+import com.abhishekjain.filedownloader.http.PooledHttpClient;
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.UrlValidator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.List;
+import java.util.Locale;
 
 import static org.apache.commons.validator.routines.UrlValidator.ALLOW_2_SLASHES;
 import static org.apache.commons.validator.routines.UrlValidator.ALLOW_ALL_SCHEMES;
@@ -22,6 +28,9 @@ import static org.apache.commons.validator.routines.UrlValidator.ALLOW_LOCAL_URL
 @Service
 public class FileDownloaderUtils {
 
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String PART_SUFFIX = ".part";
+
     private static final UrlValidator defaultValidator = new UrlValidator(ALLOW_ALL_SCHEMES | ALLOW_2_SLASHES |
                                                                                   ALLOW_LOCAL_URLS);
 
@@ -31,6 +40,9 @@ public class FileDownloaderUtils {
     @Value("${download.read.timeout}")
     private int readTimeout;
 
+    @Autowired(required = false)
+    private PooledHttpClient pooledHttpClient;
+
     public boolean isValidUrl(String url) {
 
         return defaultValidator.isValid(url);
@@ -62,24 +74,39 @@ public class FileDownloaderUtils {
                             .concat(uniqueFilenameForSource(sourceUrl));
     }
 
+    /**
+     * Builds the file name from the normalized url (see {@link UrlNormalizer}), so that equivalent urls of the same
+     * resource are saved at the same file. Transformed downloads (see {@link DownloadOptions#TRANSFORM}) are saved
+     * apart from the untransformed one.
+     */
     private String uniqueFilenameForSource(URL url) {
 
-        //TODO: ABJ 12112018 Use URL normalization and then sha1hex
+        final String normalizedPath = UrlNormalizer.normalizePath(url.getPath());
+        // Root path and empty path are the same resource
+        final String path = "/".equals(normalizedPath) ? "" : normalizedPath;
+
         StringBuilder filenameBuilder = new StringBuilder();
-        filenameBuilder.append(url.getProtocol())
+        filenameBuilder.append(url.getProtocol().toLowerCase(Locale.ROOT))
                        .append('-')
                        .append(url.getPort() == -1 ? url.getDefaultPort() : url.getPort())
                        .append('-')
-                       .append(url.getHost())
+                       .append(url.getHost().toLowerCase(Locale.ROOT))
                        .append('-')
-                       .append(url.getPath());
-        if (StringUtils.isEmpty(url.getPath())) {
+                       .append(path);
+        if (StringUtils.isEmpty(path)) {
             filenameBuilder.deleteCharAt(filenameBuilder.length() - 1);
         }
+        final List<String> transforms = DownloadOptions.of(url).getTransforms();
+        if (!transforms.isEmpty()) {
+            filenameBuilder.append('#')
+                           .append(DownloadOptions.TRANSFORM)
+                           .append('=')
+                           .append(String.join(",", transforms).toLowerCase(Locale.ROOT));
+        }
 
         return DigestUtils.sha1Hex(filenameBuilder.toString())
                           .concat("_")
-                          .concat(FilenameUtils.getName(url.getPath()));
+                          .concat(FilenameUtils.getName(path));
 
     }
 
@@ -93,12 +120,102 @@ public class FileDownloaderUtils {
      */
     public InputStream openStream(URL url) throws IOException {
 
-        URLConnection conn = url.openConnection();
+        return inputStream(openConnection(url));
+    }
+
+    /**
+     * Gets the input stream of the connection, see {@link #checkRetryAfter(HttpURLConnection)}.
+     *
+     * @param connection Connection to the source
+     * @return @{@link InputStream} of the connection
+     * @throws IOException If stream can not be obtained
+     */
+    public InputStream inputStream(URLConnection connection) throws IOException {
+
+        if (connection instanceof HttpURLConnection) {
+            checkRetryAfter((HttpURLConnection) connection);
+        }
+        return connection.getInputStream();
+    }
+
+    /**
+     * Fails with a {@link RetryAfterException} if the server is overloaded or unavailable, i.e. answered
+     * HTTP 429 or 503, along with the delay of its <b>Retry-After</b> header.
+     *
+     * @param connection HTTP connection to the source
+     * @throws IOException If the server is overloaded or unavailable, or can not be reached
+     */
+    public void checkRetryAfter(HttpURLConnection connection) throws IOException {
+
+        final int responseCode = connection.getResponseCode();
+        if (responseCode == HTTP_TOO_MANY_REQUESTS || responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+            final long delay = RetryAfterException.delayMillis(
+                    connection.getHeaderField(RetryAfterException.RETRY_AFTER));
+            connection.disconnect();
+            throw new RetryAfterException("Server returned HTTP response code: " + responseCode + " for URL: "
+                                                  + connection.getURL(), delay);
+        }
+    }
+
+    /**
+     * The method opens the connection to the URL setting the connection and
+     * read timeout from properties file. The connection is not yet connected so that
+     * the caller can still set request properties (like Range) on it.
+     * HTTP(S) connections are served by the {@link PooledHttpClient} keep-alive pool when it is enabled.
+     *
+     * @param url Url to which connection is to be opened
+     * @return @{@link URLConnection} to the url provided
+     * @throws IOException If connection can not be opened
+     */
+    public URLConnection openConnection(URL url) throws IOException {
+
+        URLConnection conn = pooledHttpClient != null && pooledHttpClient.handles(url)
+                ? pooledHttpClient.openConnection(url)
+                : url.openConnection();
 
         conn.setConnectTimeout(connectTimeout);
         conn.setReadTimeout(readTimeout);
 
-        return conn.getInputStream();
+        return conn;
+    }
+
+    /**
+     * Gets the size of the file saved for the source at #outputDirectory.
+     *
+     * @param source
+     * @param outputDirectory
+     * @return Size of the file, -1 if there is none or the source is malformed
+     */
+    public long downloadedLength(String source, String outputDirectory) {
+
+        try {
+            final File downloadFile = new File(uniqueFileSaveLocation(new URL(source), outputDirectory));
+            return downloadFile.isFile() ? downloadFile.length() : -1;
+        } catch (MalformedURLException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param downloadFile The file a download is saved to
+     * @return The temporary file the download is written to, in the same directory, until it is complete
+     */
+    public File partFile(File downloadFile) {
+        return new File(downloadFile.getPath() + PART_SUFFIX);
+    }
+
+    /**
+     * Deletes the temporary file of the download of #source, see {@link #partFile(File)}.
+     *
+     * @param source
+     * @param outputDirectory
+     */
+    public void deletePartFileQuietly(String source, String outputDirectory) {
+
+        try {
+            FileUtils.deleteQuietly(partFile(new File(uniqueFileSaveLocation(new URL(source), outputDirectory))));
+        } catch (MalformedURLException ignored) {
+        }
     }
 
     /**
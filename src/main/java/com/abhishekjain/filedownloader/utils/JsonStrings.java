@@ -0,0 +1,34 @@
+package com.abhishekjain.filedownloader.utils;
+
+import java.util.Locale;
+
+/**
+ * JSON string literals, for the few JSON documents written by the downloader without a JSON library.
+ */
+public final class JsonStrings {
+
+    private JsonStrings() {
+    }
+
+    /**
+     * @param value Any string
+     * @return #value as a quoted JSON string, escaped, or <b>null</b> if there is none
+     */
+    public static String quote(String value) {
+
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
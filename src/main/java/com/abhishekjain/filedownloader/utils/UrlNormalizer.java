@@ -0,0 +1,148 @@
+package com.abhishekjain.filedownloader.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Syntax and scheme based normalization of URLs (RFC 3986, section 6.2.2 and 6.2.3), so that equivalent URLs of the
+ * same resource compare equal:
+ * <ul>
+ * <li>scheme and host are lower cased</li>
+ * <li>the default port of the scheme is removed</li>
+ * <li>dot-segments are removed from the path, and an empty HTTP(S) path becomes "/"</li>
+ * <li>percent-encoded unreserved characters are decoded, other percent-encodings are upper cased, and characters
+ * not allowed in a path or query are percent-encoded</li>
+ * <li>the fragment is removed, as it is never sent to the server</li>
+ * </ul>
+ * Example: <b>HTTP://Example.COM:80/a/./b/../%7euser/%3f#top</b> becomes <b>http://example.com/a/~user/%3F</b>
+ */
+public final class UrlNormalizer {
+
+    private static final String UNRESERVED = "-._~";
+    private static final String PATH_CHARACTERS = "!$&'()*+,;=:@/";
+    private static final String QUERY_CHARACTERS = PATH_CHARACTERS + "?";
+
+    private UrlNormalizer() {
+    }
+
+    /**
+     * @param source Url to normalize
+     * @return The normalized url, #source itself if it can not be parsed
+     */
+    public static String normalize(String source) {
+
+        try {
+            return normalize(new URL(source));
+        } catch (MalformedURLException e) {
+            return source;
+        }
+    }
+
+    /**
+     * @param url Url to normalize
+     * @return The normalized url
+     */
+    public static String normalize(URL url) {
+
+        final String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        final StringBuilder normalized = new StringBuilder(scheme).append(':');
+
+        if (url.getHost() != null && (!url.getHost().isEmpty() || url.getAuthority() != null)) {
+            normalized.append("//");
+            if (url.getUserInfo() != null) {
+                normalized.append(url.getUserInfo()).append('@');
+            }
+            normalized.append(url.getHost().toLowerCase(Locale.ROOT));
+            if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+                normalized.append(':').append(url.getPort());
+            }
+        }
+
+        final String path = normalizePath(url.getPath());
+        normalized.append(path.isEmpty() && ("http".equals(scheme) || "https".equals(scheme)) ? "/" : path);
+
+        if (url.getQuery() != null) {
+            normalized.append('?').append(normalizeEncoding(url.getQuery(), QUERY_CHARACTERS));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @param path Path of an url
+     * @return The path with normalized percent-encoding and without dot-segments
+     */
+    public static String normalizePath(String path) {
+        return removeDotSegments(normalizeEncoding(StringUtils.defaultString(path), PATH_CHARACTERS));
+    }
+
+    private static String normalizeEncoding(String component, String allowed) {
+
+        final StringBuilder normalized = new StringBuilder(component.length());
+        for (int i = 0; i < component.length(); i++) {
+            final char c = component.charAt(i);
+            if (c == '%' && i + 2 < component.length() && isHex(component.charAt(i + 1))
+                    && isHex(component.charAt(i + 2))) {
+                final char decoded = (char) Integer.parseInt(component.substring(i + 1, i + 3), 16);
+                if (isUnreserved(decoded)) {
+                    normalized.append(decoded);
+                } else {
+                    normalized.append('%').append(component.substring(i + 1, i + 3).toUpperCase(Locale.ROOT));
+                }
+                i += 2;
+            } else if (isUnreserved(c) || allowed.indexOf(c) >= 0) {
+                normalized.append(c);
+            } else {
+                final int codePoint = component.codePointAt(i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    normalized.append('%').append(String.format("%02X", b & 0xFF));
+                }
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Removes the "." and ".." segments of the path as per RFC 3986, section 5.2.4.
+     */
+    private static String removeDotSegments(String path) {
+
+        if (!path.contains(".")) {
+            return path;
+        }
+
+        final Deque<String> output = new ArrayDeque<>();
+        final String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i];
+            final boolean last = i == segments.length - 1;
+            if (".".equals(segment) || "..".equals(segment)) {
+                if ("..".equals(segment) && output.size() > 1) {
+                    output.removeLast();
+                }
+                if (last) {
+                    output.addLast("");
+                }
+            } else {
+                output.addLast(segment);
+            }
+        }
+        return String.join("/", output);
+    }
+
+    private static boolean isUnreserved(char c) {
+
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || UNRESERVED.indexOf(c) >= 0;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
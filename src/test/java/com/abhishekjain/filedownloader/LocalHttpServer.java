@@ -0,0 +1,163 @@
+package com.abhishekjain.filedownloader;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP server on localhost for tests, so that download tests don't depend on an internet connection.
+ * Serves registered content and honours HEAD, Range, If-Range and If-None-Match requests.
+ * Paths can be made to fail a number of times with a given status before being served.
+ */
+public class LocalHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private final Map<String, String> lastModifieds = new ConcurrentHashMap<>();
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private final Map<String, Integer> failureStatuses = new ConcurrentHashMap<>();
+    private final Map<String, String> retryAfters = new ConcurrentHashMap<>();
+    private volatile boolean acceptRanges = true;
+    private volatile int rangeStart = -1;
+
+    public LocalHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public LocalHttpServer serve(String path, byte[] content) {
+        contents.put(path, content);
+        return this;
+    }
+
+    public LocalHttpServer serve(String path, byte[] content, String etag) {
+        etags.put(path, etag);
+        return serve(path, content);
+    }
+
+    /**
+     * Serves #content with a Last-Modified date, honoured by If-Range, along with an ETag if #etag is set. Weak ETags
+     * never match an If-Range.
+     */
+    public LocalHttpServer serve(String path, byte[] content, String etag, String lastModified) {
+        lastModifieds.put(path, lastModified);
+        return etag == null ? serve(path, content) : serve(path, content, etag);
+    }
+
+    /**
+     * Answers the next #times requests of #path with #status, along with a Retry-After header if #retryAfter is set.
+     */
+    public LocalHttpServer fail(String path, int status, int times, String retryAfter) {
+        failureStatuses.put(path, status);
+        failures.put(path, new AtomicInteger(times));
+        if (retryAfter != null) {
+            retryAfters.put(path, retryAfter);
+        }
+        return this;
+    }
+
+    public LocalHttpServer acceptRanges(boolean acceptRanges) {
+        this.acceptRanges = acceptRanges;
+        return this;
+    }
+
+    /**
+     * Answers every range request from byte #rangeStart, whatever the range requested, like a misbehaving cache.
+     */
+    public LocalHttpServer rangeStart(int rangeStart) {
+        this.rangeStart = rangeStart;
+        return this;
+    }
+
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * @return Headers of every request received so far, in order of arrival
+     */
+    public List<Headers> requests() {
+        return requests;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        requests.add(exchange.getRequestHeaders());
+        final String path = exchange.getRequestURI().getPath();
+        final byte[] content = contents.get(path);
+        final String etag = etags.get(path);
+        final String lastModified = lastModifieds.get(path);
+        final boolean head = "HEAD".equals(exchange.getRequestMethod());
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            final AtomicInteger remainingFailures = failures.get(path);
+            if (remainingFailures != null && remainingFailures.getAndDecrement() > 0) {
+                if (retryAfters.containsKey(path)) {
+                    exchange.getResponseHeaders().add("Retry-After", retryAfters.get(path));
+                }
+                exchange.sendResponseHeaders(failureStatuses.get(path), -1);
+                return;
+            }
+            if (content == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            if (etag != null) {
+                exchange.getResponseHeaders().add("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            if (lastModified != null) {
+                exchange.getResponseHeaders().add("Last-Modified", lastModified);
+            }
+            if (acceptRanges) {
+                exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            }
+
+            int start = 0;
+            int end = content.length - 1;
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            final boolean validated = ifRange == null || (ifRange.equals(etag) && !ifRange.startsWith("W/"))
+                    || ifRange.equals(lastModified);
+            final boolean partial = acceptRanges && range != null && validated;
+            if (partial) {
+                final String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                start = rangeStart >= 0 ? rangeStart : Integer.parseInt(bounds[0]);
+                end = bounds[1].isEmpty() ? end : Math.min(end, Integer.parseInt(bounds[1]));
+                exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            }
+
+            final int length = end - start + 1;
+            if (head) {
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(partial ? 206 : 200, length);
+            body.write(content, start, length);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,193 @@
+package com.abhishekjain.filedownloader.buffer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ChunkedTransferTest {
+
+    private final ChunkedTransfer chunkedTransfer = new ChunkedTransfer();
+
+    private byte[] content;
+    private File target;
+
+    @Before
+    public void before() throws IllegalAccessException, IOException {
+
+        FieldUtils.writeField(chunkedTransfer, "bufferSize", 1000, true);
+        FieldUtils.writeField(chunkedTransfer, "maxBuffers", 1, true);
+        chunkedTransfer.init();
+
+        content = new byte[4500];
+        new Random(7).nextBytes(content);
+        target = File.createTempFile("chunked-transfer", ".bin");
+    }
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(target);
+    }
+
+    @Test
+    public void transfer_in_full_chunks_test() throws IOException {
+
+        try (ReadableByteChannel source = trickling(content); FileChannel fileChannel = open()) {
+            fileChannel.write(ByteBuffer.wrap(new byte[]{1, 2}));
+
+            Assert.assertEquals(content.length, chunkedTransfer.transfer(source, fileChannel, 2, Long.MAX_VALUE));
+        }
+
+        final byte[] saved = Files.readAllBytes(target.toPath());
+        Assert.assertArrayEquals(new byte[]{1, 2}, Arrays.copyOf(saved, 2));
+        Assert.assertArrayEquals(content, Arrays.copyOfRange(saved, 2, saved.length));
+        Assert.assertEquals("Reads of 100 bytes written 1000 at a time", 5, chunkedTransfer.getChunks());
+        Assert.assertEquals(content.length, chunkedTransfer.getChunkBytes());
+        Assert.assertEquals(0, chunkedTransfer.getBufferPool().getAcquiredCount());
+        final ByteBuffer buffer = chunkedTransfer.getBufferPool().acquire();
+        Assert.assertTrue(buffer.isDirect());
+        chunkedTransfer.getBufferPool().release(buffer);
+    }
+
+    @Test
+    public void transfer_count_test() throws IOException {
+
+        try (ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(content));
+             FileChannel fileChannel = open()) {
+
+            Assert.assertEquals(1500, chunkedTransfer.transfer(source, fileChannel, 0, 1500));
+        }
+        Assert.assertArrayEquals(Arrays.copyOf(content, 1500), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void transfer_failed_read_keeps_bytes_read_test() throws IOException {
+
+        // Fails in the middle of the second chunk
+        final ReadableByteChannel failing = Channels.newChannel(new SequenceInputStream(
+                new ByteArrayInputStream(content, 0, 1500), new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new SocketException("Connection reset");
+                    }
+                }));
+        try (ReadableByteChannel source = failing; FileChannel fileChannel = open()) {
+            chunkedTransfer.transfer(source, fileChannel, 0, Long.MAX_VALUE);
+            Assert.fail("Transfer should fail");
+        } catch (PartialTransferException e) {
+            Assert.assertEquals(1500, e.getTransferred());
+            Assert.assertTrue(e.failure() instanceof SocketException);
+        }
+        Assert.assertArrayEquals(Arrays.copyOf(content, 1500), Files.readAllBytes(target.toPath()));
+        Assert.assertEquals(0, chunkedTransfer.getBufferPool().getAcquiredCount());
+
+        try (ReadableByteChannel source = Channels.newChannel(
+                new ByteArrayInputStream(content, 1500, content.length)); FileChannel fileChannel = open()) {
+
+            Assert.assertEquals(content.length - 1500, chunkedTransfer.transfer(source, fileChannel, 1500,
+                                                                                Long.MAX_VALUE));
+        }
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void buffers_capped_test() throws Exception {
+
+        final BufferPool bufferPool = chunkedTransfer.getBufferPool();
+        final ByteBuffer buffer = bufferPool.acquire();
+
+        final CompletableFuture<Long> transfer = CompletableFuture.supplyAsync(() -> {
+            try (ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(content));
+                 FileChannel fileChannel = open()) {
+                return chunkedTransfer.transfer(source, fileChannel, 0, Long.MAX_VALUE);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            transfer.get(200, TimeUnit.MILLISECONDS);
+            Assert.fail("Transfer should wait for the only buffer");
+        } catch (TimeoutException expected) {
+        }
+
+        bufferPool.release(buffer);
+        Assert.assertEquals(Long.valueOf(content.length), transfer.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, bufferPool.getAcquiredCount());
+    }
+
+    @Test
+    public void interrupted_wait_for_buffer_test() throws IOException {
+
+        final BufferPool bufferPool = chunkedTransfer.getBufferPool();
+        final ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(content));
+             FileChannel fileChannel = open()) {
+            Thread.currentThread().interrupt();
+            chunkedTransfer.transfer(source, fileChannel, 0, Long.MAX_VALUE);
+            Assert.fail("Transfer should be interrupted while waiting for the only buffer");
+        } catch (PartialTransferException e) {
+            Assert.assertEquals(0, e.getTransferred());
+            Assert.assertTrue(e.failure() instanceof InterruptedIOException);
+            Assert.assertTrue(Thread.interrupted());
+        } finally {
+            bufferPool.release(buffer);
+        }
+        Assert.assertEquals(0, bufferPool.getAcquiredCount());
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(target.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @return Channel giving at most 100 bytes per read, as a network stream would
+     */
+    private static ReadableByteChannel trickling(byte[] bytes) {
+
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(bytes));
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+
+                final ByteBuffer slice = dst.duplicate();
+                slice.limit(Math.min(dst.limit(), dst.position() + 100));
+                final int read = channel.read(slice);
+                if (read > 0) {
+                    dst.position(dst.position() + read);
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
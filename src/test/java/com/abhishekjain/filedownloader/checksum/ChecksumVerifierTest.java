@@ -0,0 +1,105 @@
+package com.abhishekjain.filedownloader.checksum;
+
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.utils.DownloadOptions;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChecksumVerifierTest {
+
+    @InjectMocks
+    private ChecksumVerifier checksumVerifier;
+
+    @Spy
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    private final byte[] content = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Before
+    public void before() throws IllegalAccessException {
+
+        FieldUtils.writeField(fileDownloaderUtils, "connectTimeout", 1000, true);
+        FieldUtils.writeField(fileDownloaderUtils, "readTimeout", 1000, true);
+        FieldUtils.writeField(checksumVerifier, "algorithmName", "sha256", true);
+        checksumVerifier.init();
+    }
+
+    @Test
+    public void digesting_channel_test() throws IOException {
+
+        Assert.assertEquals(new Checksum("sha256", DigestUtils.sha256Hex(content)), digest(ChecksumAlgorithm.SHA256));
+        Assert.assertEquals(new Checksum("sha1", DigestUtils.sha1Hex(content)), digest(ChecksumAlgorithm.SHA1));
+        // Check value of CRC-32C from RFC 3720
+        Assert.assertEquals(new Checksum("crc32c", "e3069283"), digest(ChecksumAlgorithm.CRC32C));
+    }
+
+    @Test
+    public void expected_from_options_test() throws IOException {
+
+        final URL url = new URL("http://localhost:8000/file.bin#transform=gzip&crc32c=E3069283");
+
+        final Checksum expected = checksumVerifier.expected(url, DownloadOptions.of(url));
+
+        Assert.assertEquals(new Checksum("crc32c", "e3069283"), expected);
+        Assert.assertEquals(ChecksumAlgorithm.CRC32C, checksumVerifier.algorithmFor(expected));
+        Assert.assertEquals(ChecksumAlgorithm.SHA256, checksumVerifier.algorithmFor(null));
+    }
+
+    @Test
+    public void expected_from_sidecar_test() throws Exception {
+
+        FieldUtils.writeField(checksumVerifier, "sidecarEnabled", true, true);
+        final String sha256 = DigestUtils.sha256Hex(content);
+
+        try (LocalHttpServer server = new LocalHttpServer()
+                .serve("/file.bin.sha256", (sha256 + "  file.bin\n").getBytes(StandardCharsets.US_ASCII))) {
+            final URL url = new URL(server.url("/file.bin"));
+            final URL missing = new URL(server.url("/other.bin"));
+
+            Assert.assertEquals(new Checksum("sha256", sha256), checksumVerifier.expected(url, DownloadOptions.of(url)));
+            Assert.assertNull(checksumVerifier.expected(missing, DownloadOptions.of(missing)));
+        }
+    }
+
+    @Test(expected = ChecksumMismatchException.class)
+    public void verify_mismatch_test() throws ChecksumMismatchException {
+
+        checksumVerifier.verify("http://localhost:8000/file.bin", new Checksum("sha1", "00"),
+                                new Checksum("sha1", "01"));
+    }
+
+    @Test
+    public void no_algorithm_test() throws IllegalAccessException {
+
+        FieldUtils.writeField(checksumVerifier, "algorithmName", "none", true);
+        checksumVerifier.init();
+
+        Assert.assertNull(checksumVerifier.algorithmFor(null));
+    }
+
+    private Checksum digest(ChecksumAlgorithm algorithm) throws IOException {
+
+        try (DigestingChannel channel = new DigestingChannel(
+                Channels.newChannel(new ByteArrayInputStream(content)), algorithm.newDigest())) {
+            IOUtils.toByteArray(Channels.newInputStream(channel));
+            return ChecksumVerifier.checksumOf(algorithm, channel.getDigest());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.abhishekjain.filedownloader.custom;
+
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class CryptURLConnectionTest {
+
+    private static final String PLAIN = "Hello, World! 0123 xyz ABC\n";
+
+    private Path root;
+    private Rot13Server server;
+
+    @Before
+    public void before() throws IOException {
+
+        root = Files.createTempDirectory("rot13-server");
+        Files.write(root.resolve("hello.txt"), PLAIN.getBytes(StandardCharsets.UTF_8));
+        server = new Rot13Server(root);
+    }
+
+    @After
+    public void after() throws IOException {
+
+        server.close();
+        FileUtils.deleteQuietly(root.toFile());
+    }
+
+    @Test
+    public void stream_test() throws IOException {
+
+        final URLConnection connection = open(server.url("/hello.txt"), 1000);
+
+        try (InputStream inputStream = connection.getInputStream()) {
+            Assert.assertEquals(PLAIN.length(), connection.getContentLengthLong());
+            Assert.assertEquals(PLAIN, IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void channel_test() throws IOException {
+
+        final byte[] content = new byte[300_000];
+        new Random(7).nextBytes(content);
+        Files.write(root.resolve("large.bin"), content);
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(content.length + 1);
+        try (ReadableByteChannel channel = CryptChannels.newChannel(
+                open(server.url("/large.bin"), 1000).getInputStream())) {
+            while (channel.read(buffer) >= 0) {
+                Assert.assertTrue(buffer.hasRemaining());
+            }
+        }
+
+        buffer.flip();
+        final byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        Assert.assertArrayEquals(content, read);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void not_found_test() throws IOException {
+        open(server.url("/../missing.txt"), 1000).getInputStream();
+    }
+
+    @Test
+    public void read_timeout_test() throws IOException {
+
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final long start = System.nanoTime();
+            try {
+                open("rot13://127.0.0.1:" + silent.getLocalPort() + "/hello.txt", 200).getInputStream();
+                Assert.fail("Server never answers");
+            } catch (SocketTimeoutException expected) {
+                Assert.assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+            }
+        }
+    }
+
+    @Test(expected = RetryAfterException.class)
+    public void unavailable_test() throws IOException {
+
+        try (ServerSocket unavailable = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            new Thread(() -> {
+                try (Socket socket = unavailable.accept(); OutputStream outputStream = socket.getOutputStream()) {
+                    outputStream.write("503 -1\n".getBytes(StandardCharsets.UTF_8));
+                } catch (IOException ignored) {
+                }
+            }).start();
+
+            open("rot13://127.0.0.1:" + unavailable.getLocalPort() + "/hello.txt", 1000).getInputStream();
+        }
+    }
+
+    @Test
+    public void closed_before_content_length_test() throws IOException {
+
+        try (ServerSocket truncating = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            new Thread(() -> {
+                for (int i = 0; i < 2; i++) {
+                    try (Socket socket = truncating.accept(); OutputStream outputStream = socket.getOutputStream()) {
+                        // Reading the request first, so that closing does not reset the connection
+                        new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+                                .readLine();
+                        outputStream.write("200 1000\nUryyb".getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException ignored) {
+                    }
+                }
+            }).start();
+            final String url = "rot13://127.0.0.1:" + truncating.getLocalPort() + "/hello.txt";
+
+            try (InputStream inputStream = open(url, 1000).getInputStream()) {
+                IOUtils.toByteArray(inputStream);
+                Assert.fail("Connection closed after 5 of 1000 bytes");
+            } catch (EOFException expected) {
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate(2000);
+            try (ReadableByteChannel channel = CryptChannels.newChannel(open(url, 1000).getInputStream())) {
+                while (channel.read(buffer) >= 0) {
+                    Assert.assertEquals("Hello", new String(buffer.array(), 0, buffer.position(),
+                                                            StandardCharsets.UTF_8));
+                }
+                Assert.fail("Connection closed after 5 of 1000 bytes");
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    private static URLConnection open(String url, int timeout) throws IOException {
+
+        final URLConnection connection = new URL(null, url, new Handler()).openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        return connection;
+    }
+}
@@ -0,0 +1,107 @@
+package com.abhishekjain.filedownloader.custom;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class Rot13StreamTest {
+
+    private static final String PLAIN = "Hello, World! 0123 xyz ABC\n";
+    private static final String ROTATED = "Uryyb, Jbeyq! 0123 klm NOP\n";
+
+    @Test
+    public void read_single_bytes_test() throws IOException {
+
+        final InputStream inputStream = new rot13InputStream(stream(PLAIN));
+        final StringBuilder rotated = new StringBuilder();
+        int c;
+        while ((c = inputStream.read()) != -1) {
+            rotated.append((char) c);
+        }
+
+        Assert.assertEquals(ROTATED, rotated.toString());
+    }
+
+    @Test
+    public void read_bulk_test() throws IOException {
+
+        Assert.assertEquals(ROTATED, IOUtils.toString(new rot13InputStream(stream(PLAIN)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void read_bulk_at_offset_test() throws IOException {
+
+        final byte[] buffer = new byte[PLAIN.length() + 4];
+
+        final int read = new rot13InputStream(stream(PLAIN)).read(buffer, 4, PLAIN.length());
+
+        Assert.assertEquals(PLAIN.length(), read);
+        Assert.assertEquals(ROTATED, new String(buffer, 4, read, StandardCharsets.UTF_8));
+        Assert.assertEquals(0, buffer[0]);
+    }
+
+    @Test
+    public void read_all_bytes_test() throws IOException {
+
+        final byte[] content = new byte[256];
+        for (int c = 0; c < content.length; c++) {
+            content[c] = (byte) c;
+        }
+
+        final byte[] rotated = IOUtils.toByteArray(new rot13InputStream(new ByteArrayInputStream(content)));
+
+        for (int c = 0; c < content.length; c++) {
+            final boolean letter = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            Assert.assertEquals(letter, rotated[c] != content[c]);
+        }
+        Assert.assertArrayEquals(content, IOUtils.toByteArray(new rot13InputStream(new ByteArrayInputStream(rotated))));
+    }
+
+    @Test
+    public void crypt_stream_bulk_read_test() throws IOException {
+
+        final CryptInputStream cryptInputStream = new rot13CryptInputStream();
+        cryptInputStream.set(stream(PLAIN), null);
+
+        Assert.assertEquals(ROTATED, IOUtils.toString(cryptInputStream, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void channel_heap_buffer_test() throws IOException {
+        Assert.assertEquals(ROTATED, readChannel(ByteBuffer.allocate(5)));
+    }
+
+    @Test
+    public void channel_direct_buffer_test() throws IOException {
+        Assert.assertEquals(ROTATED, readChannel(ByteBuffer.allocateDirect(5)));
+    }
+
+    private static String readChannel(ByteBuffer buffer) throws IOException {
+
+        final CryptInputStream cryptInputStream = new rot13CryptInputStream();
+        cryptInputStream.set(stream(PLAIN), null);
+
+        final StringBuilder rotated = new StringBuilder();
+        try (ReadableByteChannel channel = CryptChannels.newChannel(cryptInputStream)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    rotated.append((char) buffer.get());
+                }
+                buffer.clear();
+            }
+        }
+        return rotated.toString();
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
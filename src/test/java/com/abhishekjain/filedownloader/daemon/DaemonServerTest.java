@@ -0,0 +1,249 @@
+package com.abhishekjain.filedownloader.daemon;
+
+import com.abhishekjain.filedownloader.configuration.FileDownloaderConfig;
+import com.abhishekjain.filedownloader.model.DownloadBatch;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.service.FileDownloadService;
+import com.abhishekjain.filedownloader.utils.JsonStrings;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.anyListOf;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DaemonServerTest {
+
+    private final FileDownloadService fileDownloadService = Mockito.mock(FileDownloadService.class);
+    private final DownloadJobRegistry jobRegistry = new DownloadJobRegistry();
+    private final DaemonServer daemonServer = new DaemonServer();
+
+    private Path tokenDirectory;
+    private String token;
+
+    @Before
+    public void before() throws IllegalAccessException, IOException {
+
+        final FileDownloaderConfig downloaderConfig = new FileDownloaderConfig();
+        downloaderConfig.setDefaultDirectory("download");
+        FieldUtils.writeField(jobRegistry, "fileDownloadService", fileDownloadService, true);
+        FieldUtils.writeField(jobRegistry, "downloaderConfig", downloaderConfig, true);
+        FieldUtils.writeField(jobRegistry, "retainFinished", 1, true);
+
+        FieldUtils.writeField(daemonServer, "jobRegistry", jobRegistry, true);
+        FieldUtils.writeField(daemonServer, "port", 0, true);
+        tokenDirectory = Files.createTempDirectory("daemon-token");
+        FieldUtils.writeField(daemonServer, "tokenFile", tokenDirectory.resolve("daemon.token").toString(), true);
+        daemonServer.start();
+        token = new String(Files.readAllBytes(tokenDirectory.resolve("daemon.token")), StandardCharsets.US_ASCII);
+    }
+
+    @After
+    public void after() {
+        daemonServer.close();
+        FileUtils.deleteQuietly(tokenDirectory.toFile());
+    }
+
+    @Test
+    public void submit_job_test() throws IOException {
+
+        final CompletableFuture<FileDownloadResult> running = new CompletableFuture<>();
+        final Map<String, CompletableFuture<FileDownloadResult>> results = new LinkedHashMap<>();
+        results.put("http://a.example.com/a.txt", running);
+        results.put("http://b.example.com/b.txt", CompletableFuture.completedFuture(
+                result("http://b.example.com/b.txt", DownloadStatus.COMPLETED)));
+        when(fileDownloadService.downloadFilesFromSources(anyListOf(String.class), anyString()))
+                .thenReturn(new DownloadBatch(results));
+
+        final HttpURLConnection submit = request("POST", "/jobs?directory=out%20dir",
+                                                 "# Sources\nhttp://a.example.com/a.txt  http://b.example.com/b.txt\n");
+        Assert.assertEquals(HttpURLConnection.HTTP_ACCEPTED, submit.getResponseCode());
+        Assert.assertEquals("/jobs/1", submit.getHeaderField("Location"));
+        Assert.assertTrue(body(submit).contains("\"status\":\"RUNNING\""));
+        verify(fileDownloadService).downloadFilesFromSources(
+                Arrays.asList("http://a.example.com/a.txt", "http://b.example.com/b.txt"),
+                Paths.get("download", "out dir").toString());
+
+        String job = body(request("GET", "/jobs/1", null));
+        Assert.assertTrue(job, job.contains("\"total\":2,\"finished\":1,\"results\":[{\"source\":\"http://b"));
+
+        running.complete(result("http://a.example.com/a.txt", DownloadStatus.ERROR));
+        job = body(request("GET", "/jobs/1", null));
+        Assert.assertTrue(job, job.contains("\"status\":\"FAILED\""));
+        Assert.assertTrue(job, job.contains("\"finished\":2"));
+
+        final String jobs = body(request("GET", "/jobs", null));
+        final String directory = JsonStrings.quote(Paths.get("download", "out dir").toString());
+        Assert.assertTrue(jobs, jobs.startsWith("{\"jobs\":[{\"id\":1,\"status\":\"FAILED\",\"directory\":"
+                                                        + directory));
+    }
+
+    @Test
+    public void token_required_test() throws IOException {
+
+        Assert.assertEquals(64, token.length());
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Assert.assertEquals("rw-------", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(tokenDirectory.resolve("daemon.token"))));
+        }
+
+        final HttpURLConnection missing = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + daemonServer.getPort() + "/jobs").openConnection();
+        Assert.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, missing.getResponseCode());
+        Assert.assertEquals("Bearer", missing.getHeaderField("WWW-Authenticate"));
+
+        final HttpURLConnection invalid = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + daemonServer.getPort() + "/shutdown").openConnection();
+        invalid.setRequestMethod("POST");
+        invalid.setRequestProperty("Authorization", "Bearer " + StringUtils.reverse(token));
+        Assert.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, invalid.getResponseCode());
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, request("GET", "/jobs", null).getResponseCode());
+    }
+
+    @Test
+    public void foreign_host_and_origin_rejected_test() throws IOException {
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, rawStatus("localhost:" + daemonServer.getPort(), null));
+        Assert.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, rawStatus("attacker.example.com", null));
+        Assert.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, rawStatus("attacker.example.com:"
+                + daemonServer.getPort(), null));
+        Assert.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, rawStatus("127.0.0.1:" + daemonServer.getPort(),
+                                                                         "http://attacker.example.com"));
+    }
+
+    @Test
+    public void directory_outside_default_rejected_test() throws IOException {
+
+        Assert.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+                            request("POST", "/jobs?directory=..%2Foutside", "http://a.example.com/a.txt\n")
+                                    .getResponseCode());
+        Assert.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+                            request("POST", "/jobs?directory=%2Ftmp", "http://a.example.com/a.txt\n")
+                                    .getResponseCode());
+        Assert.assertEquals("{\"jobs\":[]}", body(request("GET", "/jobs", null)));
+
+        when(fileDownloadService.downloadFilesFromSources(anyListOf(String.class), anyString()))
+                .thenReturn(new DownloadBatch(Collections.emptyMap()));
+        Assert.assertEquals(Paths.get("download", "b").toString(), jobRegistry.submit(
+                Collections.singletonList("file:///a.txt"), "a/../b/.").getDirectory());
+    }
+
+    @Test
+    public void invalid_requests_test() throws IOException {
+
+        Assert.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, request("POST", "/jobs", "# Nothing\n")
+                .getResponseCode());
+        Assert.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, request("GET", "/jobs/42", null).getResponseCode());
+        Assert.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, request("GET", "/jobs/x", null).getResponseCode());
+        Assert.assertEquals(HttpURLConnection.HTTP_BAD_METHOD, request("DELETE", "/jobs", null).getResponseCode());
+        Assert.assertEquals("{\"jobs\":[]}", body(request("GET", "/jobs", null)));
+    }
+
+    @Test
+    public void finished_jobs_evicted_test() {
+
+        when(fileDownloadService.downloadFilesFromSources(anyListOf(String.class), anyString()))
+                .thenReturn(new DownloadBatch(Collections.singletonMap("file:///a.txt", CompletableFuture
+                        .completedFuture(result("file:///a.txt", DownloadStatus.COMPLETED)))));
+
+        final List<String> sources = Collections.singletonList("file:///a.txt");
+        Assert.assertEquals("download", jobRegistry.submit(sources, " ").getDirectory());
+        jobRegistry.submit(sources, null);
+
+        Assert.assertNull(jobRegistry.get(1));
+        Assert.assertEquals(DownloadJob.Status.COMPLETED, jobRegistry.get(2).getStatus());
+        Assert.assertEquals(1, jobRegistry.getJobs().size());
+    }
+
+    @Test
+    public void shutdown_test() throws Exception {
+
+        final CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                daemonServer.awaitShutdown();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Assert.assertEquals(HttpURLConnection.HTTP_BAD_METHOD, request("GET", "/shutdown", null).getResponseCode());
+        Assert.assertFalse(stopped.isDone());
+
+        Assert.assertEquals(HttpURLConnection.HTTP_ACCEPTED, request("POST", "/shutdown", "").getResponseCode());
+        stopped.get(5, TimeUnit.SECONDS);
+    }
+
+    private HttpURLConnection request(String method, String path, String body) throws IOException {
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + daemonServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Authorization", "Bearer " + token);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Sends GET /jobs with the token through a plain socket, as HttpURLConnection sets the Host and Origin headers
+     * itself.
+     *
+     * @return Status code of the answer
+     */
+    private int rawStatus(String host, String origin) throws IOException {
+
+        try (Socket socket = new Socket("127.0.0.1", daemonServer.getPort())) {
+            final String request = "GET /jobs HTTP/1.1\r\nHost: " + host + "\r\n"
+                    + (origin != null ? "Origin: " + origin + "\r\n" : "")
+                    + "Authorization: Bearer " + token + "\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            final String response = IOUtils.toString(socket.getInputStream(), StandardCharsets.US_ASCII.name());
+            return Integer.parseInt(response.split(" ", 3)[1]);
+        }
+    }
+
+    private static String body(HttpURLConnection connection) throws IOException {
+
+        try (InputStream inputStream = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getInputStream() : connection.getErrorStream()) {
+            return IOUtils.toString(inputStream, StandardCharsets.UTF_8.name());
+        }
+    }
+
+    private static FileDownloadResult result(String source, DownloadStatus status) {
+        return new FileDownloadResult().setSource(source).setDownloadStatusStatus(status);
+    }
+}
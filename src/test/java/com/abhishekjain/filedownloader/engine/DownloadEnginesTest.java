@@ -0,0 +1,92 @@
+package com.abhishekjain.filedownloader.engine;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class DownloadEnginesTest {
+
+    @Test
+    public void service_loaded_test() throws MalformedURLException {
+
+        final DownloadEngines downloadEngines = DownloadEngines.get();
+
+        Assert.assertEquals(Collections.singleton("rot13"), downloadEngines.getSchemes());
+        final URLStreamHandler handler = downloadEngines.createURLStreamHandler("ROT13");
+        Assert.assertNotNull(handler);
+        Assert.assertSame("Handler cached", handler, downloadEngines.createURLStreamHandler("rot13"));
+        Assert.assertNull("Left to the JVM", downloadEngines.createURLStreamHandler("http"));
+
+        final URL url = new URL(null, "rot13://localhost:8000/file.txt", handler);
+        Assert.assertEquals("rot13", url.getProtocol());
+        Assert.assertNotNull(downloadEngines.engineFor(url));
+        Assert.assertNull(downloadEngines.engineFor(new URL("http://localhost/file.txt")));
+    }
+
+    @Test
+    public void engine_channel_test() throws IOException {
+
+        final DownloadEngines downloadEngines = new DownloadEngines(Collections.singletonList(new UpperCaseEngine()));
+
+        final URL url = new URL(null, "upper://localhost/file.txt", downloadEngines.createURLStreamHandler("upper"));
+        try (ReadableByteChannel channel = downloadEngines.newChannel(url, stream("hello"))) {
+            Assert.assertEquals("HELLO", IOUtils.toString(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        }
+        try (ReadableByteChannel channel = downloadEngines.newChannel(new URL("http://localhost/"), stream("hello"))) {
+            Assert.assertEquals("hello", IOUtils.toString(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicate_scheme_test() {
+        new DownloadEngines(Arrays.asList(new UpperCaseEngine(), new UpperCaseEngine()));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class UpperCaseEngine implements DownloadEngine {
+
+        @Override
+        public Set<String> getSchemes() {
+            return Collections.singleton("upper");
+        }
+
+        @Override
+        public URLStreamHandler createURLStreamHandler(String scheme) {
+
+            return new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL u) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public ReadableByteChannel newChannel(InputStream inputStream) {
+
+            try {
+                return Channels.newChannel(stream(IOUtils.toString(inputStream, StandardCharsets.UTF_8)
+                                                         .toUpperCase()));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.abhishekjain.filedownloader.execution;
+
+import com.abhishekjain.filedownloader.checksum.ChecksumMismatchException;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import com.abhishekjain.filedownloader.retry.CircuitOpenException;
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    private final DownloadMetrics downloadMetrics = new DownloadMetrics();
+    private final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DownloadExecutor executor;
+
+    @Before
+    public void before() throws IllegalAccessException {
+
+        FieldUtils.writeField(controller, "downloadMetrics", downloadMetrics, true);
+        FieldUtils.writeField(controller, "enabled", true, true);
+        FieldUtils.writeField(controller, "min", 2, true);
+        FieldUtils.writeField(controller, "max", 5, true);
+        // Adjusted by the test rather than on schedule
+        FieldUtils.writeField(controller, "interval", 3_600_000L, true);
+        FieldUtils.writeField(controller, "decreaseFactor", 0.5, true);
+        FieldUtils.writeField(controller, "maxErrorRate", 0.2, true);
+        FieldUtils.writeField(controller, "latencyTolerance", 2.0, true);
+
+        executor = new DownloadExecutor(Executors.newCachedThreadPool(), 3);
+    }
+
+    @After
+    public void after() {
+
+        release.countDown();
+        controller.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void increases_while_downloads_wait_test() {
+
+        controller.start(executor);
+        controller.adjust();
+        Assert.assertEquals("Holds without waiting downloads", 3, executor.getLimit());
+
+        submit(10);
+        controller.adjust();
+        Assert.assertEquals(4, executor.getLimit());
+        controller.adjust();
+        controller.adjust();
+        Assert.assertEquals("Bounded by the maximum", 5, executor.getLimit());
+        Assert.assertEquals(5, executor.getActiveCount());
+    }
+
+    @Test
+    public void decreases_on_timeouts_test() {
+
+        controller.start(executor);
+        submit(10);
+        controller.adjust();
+        controller.adjust();
+        Assert.assertEquals(5, executor.getLimit());
+
+        downloadMetrics.retried(new SocketTimeoutException("Read timed out"));
+        controller.adjust();
+        Assert.assertEquals(2, executor.getLimit());
+
+        downloadMetrics.retried(new SocketTimeoutException("Read timed out"));
+        controller.adjust();
+        Assert.assertEquals("Bounded by the minimum", 2, executor.getLimit());
+    }
+
+    @Test
+    public void decreases_on_error_rate_test() {
+
+        controller.start(executor);
+        submit(10);
+        controller.adjust();
+        Assert.assertEquals(4, executor.getLimit());
+
+        for (int i = 0; i < 9; i++) {
+            downloadMetrics.start("http://localhost/" + i).finished(DownloadStatus.COMPLETED);
+        }
+        downloadMetrics.retried(new SocketException("Connection reset"));
+        controller.adjust();
+        Assert.assertEquals("Error rate of 10% tolerated", 5, executor.getLimit());
+
+        downloadMetrics.failed(new ConnectException("Connection refused"));
+        downloadMetrics.start("http://localhost/failed").finished(DownloadStatus.ERROR);
+        downloadMetrics.retried(new SocketException("Connection reset"));
+        controller.adjust();
+        Assert.assertEquals(2, executor.getLimit());
+    }
+
+    @Test
+    public void ignores_failures_other_than_transport_test() {
+
+        controller.start(executor);
+        submit(10);
+
+        for (int i = 0; i < 10; i++) {
+            final FileNotFoundException notFound = new FileNotFoundException("http://localhost/missing-" + i);
+            downloadMetrics.failed(notFound);
+            downloadMetrics.start("http://localhost/missing-" + i).finished(DownloadStatus.ERROR);
+        }
+        downloadMetrics.retried(new ChecksumMismatchException("http://localhost/a", new Checksum("sha256", "aa"),
+                                                              new Checksum("sha256", "bb")));
+        downloadMetrics.retried(new CircuitOpenException("localhost", 1000));
+        downloadMetrics.retried(new IOException("Server returned HTTP response code: 404"));
+        downloadMetrics.retried(new TimeoutException("Checksum of the part file timed out"));
+        controller.adjust();
+
+        Assert.assertEquals(0, downloadMetrics.getTransportFailures());
+        Assert.assertEquals("Grows as downloads are waiting", 4, executor.getLimit());
+    }
+
+    @Test
+    public void counts_transport_failures_by_type_test() {
+
+        downloadMetrics.failed(new UncheckedIOException(new SocketTimeoutException("Read timed out")));
+        downloadMetrics.retried(new ConnectTimeoutException("Connect timed out"));
+        downloadMetrics.retried(new RetryAfterException("Server returned HTTP response code: 503", 1000));
+        downloadMetrics.failed(new NoHttpResponseException("localhost:80 failed to respond"));
+
+        Assert.assertEquals(2, downloadMetrics.getTimeouts());
+        Assert.assertEquals(4, downloadMetrics.getTransportFailures());
+    }
+
+    private void submit(int tasks) {
+
+        for (int i = 0; i < tasks; i++) {
+            executor.execute("localhost", () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+    }
+}
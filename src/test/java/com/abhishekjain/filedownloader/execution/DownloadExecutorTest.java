@@ -0,0 +1,210 @@
+package com.abhishekjain.filedownloader.execution;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DownloadExecutorTest {
+
+    private DownloadExecutor executor;
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void execute_limits_concurrent_tasks_test() throws InterruptedException {
+
+        executor = new DownloadExecutor(Executors.newCachedThreadPool(), 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(5);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getActiveCount());
+        Assert.assertEquals(3, executor.getQueuedCount());
+
+        release.countDown();
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void setLimit_dispatches_queued_tasks_test() throws InterruptedException {
+
+        executor = new DownloadExecutor(Executors.newCachedThreadPool(), 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        Assert.assertEquals(2, executor.getQueuedCount());
+
+        executor.setLimit(3);
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void execute_limits_tasks_per_host_test() throws InterruptedException {
+
+        executor = new DownloadExecutor(Executors.newCachedThreadPool(), 10, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+
+        for (String host : Arrays.asList("a.example.com", "a.example.com", "a.example.com", "b.example.com")) {
+            executor.execute(host, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getActiveCount());
+        Assert.assertEquals(2, executor.getQueuedCount());
+        release.countDown();
+    }
+
+    @Test
+    public void execute_round_robin_across_hosts_test() throws InterruptedException {
+
+        executor = new DownloadExecutor(Executors.newCachedThreadPool(), 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final List<String> order = new CopyOnWriteArrayList<>();
+
+        executor.execute("a", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            done.countDown();
+        });
+        for (String task : Arrays.asList("a2", "a3", "b1")) {
+            executor.execute(task.substring(0, 1), () -> {
+                order.add(task);
+                done.countDown();
+            });
+        }
+
+        release.countDown();
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a2", "b1", "a3"), order);
+    }
+
+    @Test
+    public void create_pool_mode_caps_limit_at_pool_size_test() {
+
+        executor = DownloadExecutor.create(DownloadExecutor.POOL_MODE, 4, 1000, 0);
+
+        Assert.assertEquals(4, executor.getLimit());
+    }
+
+    @Test
+    public void create_virtual_mode_runs_tasks_test() throws InterruptedException {
+
+        executor = DownloadExecutor.create(DownloadExecutor.VIRTUAL_MODE, 4, 1000, 0);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(done::countDown);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void engine_shut_down_rejects_queued_tasks_test() throws InterruptedException {
+
+        final ExecutorService engine = Executors.newCachedThreadPool();
+        executor = new DownloadExecutor(engine, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch rejected = new CountDownLatch(2);
+        final AtomicInteger ran = new AtomicInteger();
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        for (int i = 0; i < 2; i++) {
+            executor.execute(RejectableTask.of(ran::incrementAndGet, e -> rejected.countDown()));
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The running task completes once the engine no longer takes any task
+        engine.shutdown();
+        release.countDown();
+
+        Assert.assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, ran.get());
+        Assert.assertEquals(0, executor.getQueuedCount());
+        Assert.assertTrue(engine.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void shutdownNow_rejects_queued_tasks_test() throws InterruptedException {
+
+        executor = new DownloadExecutor(Executors.newFixedThreadPool(1), 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final List<RejectedExecutionException> rejections = new CopyOnWriteArrayList<>();
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        final Runnable queued = RejectableTask.of(() -> {
+        }, rejections::add);
+        executor.execute(queued);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(Collections.singletonList(queued), executor.shutdownNow());
+        Assert.assertEquals(1, rejections.size());
+        Assert.assertEquals(0, executor.getQueuedCount());
+    }
+}
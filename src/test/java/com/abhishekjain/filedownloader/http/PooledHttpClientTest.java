@@ -0,0 +1,124 @@
+package com.abhishekjain.filedownloader.http;
+
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+public class PooledHttpClientTest {
+
+    private final PooledHttpClient pooledHttpClient = new PooledHttpClient();
+
+    private final byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    private LocalHttpServer server;
+
+    @Before
+    public void before() throws Exception {
+
+        FieldUtils.writeField(pooledHttpClient, "enabled", true, true);
+        FieldUtils.writeField(pooledHttpClient, "maxPerHost", 2, true);
+        FieldUtils.writeField(pooledHttpClient, "maxTotal", 10, true);
+        FieldUtils.writeField(pooledHttpClient, "idleTimeout", 30000L, true);
+        pooledHttpClient.init();
+
+        server = new LocalHttpServer().serve("/file.txt", content);
+    }
+
+    @After
+    public void after() {
+        pooledHttpClient.close();
+        server.close();
+    }
+
+    @Test
+    public void openConnection_reuses_kept_alive_connection_test() throws IOException {
+
+        for (int i = 0; i < 3; i++) {
+            try (InputStream inputStream = open("/file.txt").getInputStream()) {
+                Assert.assertArrayEquals(content, IOUtils.toByteArray(inputStream));
+            }
+        }
+
+        final HttpPoolStatistics statistics = pooledHttpClient.getStatistics();
+        Assert.assertEquals(1, statistics.getMisses());
+        Assert.assertEquals(2, statistics.getHits());
+        Assert.assertEquals(1, statistics.getAvailable());
+    }
+
+    @Test
+    public void early_close_aborts_request_test() throws IOException {
+
+        server.serve("/large.bin", new byte[64 * 1024 * 1024]);
+
+        try (InputStream inputStream = open("/large.bin").getInputStream()) {
+            Assert.assertEquals(1024, IOUtils.read(inputStream, new byte[1024]));
+        }
+        // The rest of the content is not read to keep the connection
+        Assert.assertEquals(0, pooledHttpClient.getStatistics().getLeased());
+        Assert.assertEquals(0, pooledHttpClient.getStatistics().getAvailable());
+
+        // Reading exactly the content length, as a segment does, keeps it
+        try (InputStream inputStream = open("/file.txt").getInputStream()) {
+            Assert.assertEquals(content.length, IOUtils.read(inputStream, new byte[content.length]));
+        }
+        Assert.assertEquals(1, pooledHttpClient.getStatistics().getAvailable());
+    }
+
+    @Test
+    public void openConnection_sends_request_properties_test() throws IOException {
+
+        final HttpURLConnection connection = open("/file.txt");
+        connection.setRequestProperty("Range", "bytes=10-");
+
+        Assert.assertEquals(HttpURLConnection.HTTP_PARTIAL, connection.getResponseCode());
+        Assert.assertEquals("10", connection.getHeaderField("Content-Length"));
+        try (InputStream inputStream = connection.getInputStream()) {
+            Assert.assertEquals("abcdefghij", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void openConnection_head_request_test() throws IOException {
+
+        final HttpURLConnection connection = open("/file.txt");
+        connection.setRequestMethod("HEAD");
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        Assert.assertEquals(content.length, connection.getContentLengthLong());
+        connection.disconnect();
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void openConnection_missing_file_test() throws IOException {
+        open("/missing.txt").getInputStream();
+    }
+
+    @Test
+    public void handles_only_http_when_enabled_test() throws IOException {
+
+        Assert.assertTrue(pooledHttpClient.handles(new URL("http://localhost/file.txt")));
+        Assert.assertTrue(pooledHttpClient.handles(new URL("https://localhost/file.txt")));
+        Assert.assertFalse(pooledHttpClient.handles(new URL("ftp://localhost/file.txt")));
+        Assert.assertFalse(new PooledHttpClient().handles(new URL("http://localhost/file.txt")));
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+
+        final HttpURLConnection connection = (HttpURLConnection) pooledHttpClient.openConnection(
+                new URL(server.url(path)));
+        connection.setConnectTimeout(1000);
+        connection.setReadTimeout(1000);
+        return connection;
+    }
+}
@@ -0,0 +1,125 @@
+package com.abhishekjain.filedownloader.journal;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DownloadJournalTest {
+
+    private static final String SOURCE = "http://localhost:8000/sample.pdf";
+    private static final String OTHER_SOURCE = "http://localhost:8000/other.pdf";
+
+    private Path directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void open_replays_last_state_of_each_source_test() throws IOException {
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 10)) {
+            journal.pending(SOURCE);
+            journal.pending(OTHER_SOURCE);
+            journal.inProgress(SOURCE);
+            journal.inProgress(OTHER_SOURCE);
+            journal.completed(SOURCE, 1024, "abc");
+        }
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 10)) {
+            journal.load(Arrays.asList(SOURCE, OTHER_SOURCE));
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+            Assert.assertFalse(journal.isCompleted(SOURCE, 1000));
+            Assert.assertEquals("abc", journal.entry(SOURCE).getChecksum());
+            Assert.assertFalse(journal.isCompleted(OTHER_SOURCE, 0));
+            Assert.assertEquals(DownloadJournal.State.IN_PROGRESS, journal.entry(OTHER_SOURCE).getState());
+        }
+    }
+
+    @Test
+    public void open_skips_torn_record_test() throws IOException {
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 1)) {
+            journal.load(Collections.singletonList(SOURCE));
+            journal.completed(SOURCE, 1024, null);
+        }
+        Files.write(directory.resolve(DownloadJournal.FILE_NAME), "COMPLETED\t4f1a".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 1)) {
+            journal.load(Collections.singletonList(SOURCE));
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+            Assert.assertNull(journal.entry(SOURCE).getChecksum());
+        }
+    }
+
+    @Test
+    public void open_compacts_superseded_records_test() throws IOException {
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 100)) {
+            journal.pending(SOURCE);
+            journal.inProgress(SOURCE);
+            journal.completed(SOURCE, 1024, null);
+        }
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 100)) {
+            Assert.assertEquals(1, Files.readAllLines(directory.resolve(DownloadJournal.FILE_NAME)).size());
+            journal.load(Collections.singletonList(SOURCE));
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+        }
+    }
+
+    @Test
+    public void load_keeps_only_requested_sources_test() throws IOException {
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 10)) {
+            journal.load(Arrays.asList(SOURCE, OTHER_SOURCE));
+            journal.completed(SOURCE, 1024, null);
+            journal.completed(OTHER_SOURCE, 512, null);
+        }
+
+        try (DownloadJournal journal = DownloadJournal.open(directory, 10)) {
+            journal.load(Collections.singletonList(SOURCE));
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+            Assert.assertNull(journal.entry(OTHER_SOURCE));
+
+            // A source that is not loaded is still recorded in the journal file
+            journal.inProgress(OTHER_SOURCE);
+            Assert.assertNull(journal.entry(OTHER_SOURCE));
+
+            journal.release(Collections.singletonList(SOURCE));
+            Assert.assertNull(journal.entry(SOURCE));
+
+            journal.load(Arrays.asList(SOURCE, OTHER_SOURCE));
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+            Assert.assertEquals(DownloadJournal.State.IN_PROGRESS, journal.entry(OTHER_SOURCE).getState());
+        }
+    }
+
+    @Test
+    public void disabled_keeps_no_record_on_disk_test() throws IOException {
+
+        try (DownloadJournal journal = DownloadJournal.disabled()) {
+            journal.completed(SOURCE, 1024, null);
+            Assert.assertTrue(journal.isCompleted(SOURCE, 1024));
+        }
+
+        Assert.assertFalse(Files.exists(directory.resolve(DownloadJournal.FILE_NAME)));
+    }
+}
@@ -0,0 +1,168 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.metadata.SourceMetadataRegistry;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConditionalDownloaderTest {
+
+    @InjectMocks
+    private ConditionalDownloader conditionalDownloader = new ConditionalDownloader();
+
+    @Spy
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    @Spy
+    private SourceMetadataRegistry sourceMetadataRegistry;
+
+    private LocalHttpServer server;
+
+    private File directory;
+
+    private File downloadFile;
+
+    private String source;
+
+    private final byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Before
+    public void before() throws Exception {
+
+        FieldUtils.writeField(fileDownloaderUtils, "connectTimeout", 1000, true);
+        FieldUtils.writeField(fileDownloaderUtils, "readTimeout", 1000, true);
+        FieldUtils.writeField(conditionalDownloader, "enabled", true, true);
+
+        server = new LocalHttpServer().serve("/file.txt", content, "\"v1\"");
+        source = server.url("/file.txt");
+        directory = Files.createTempDirectory("conditional").toFile();
+        downloadFile = new File(directory, "file.txt");
+        FileUtils.writeByteArrayToFile(downloadFile, content);
+    }
+
+    @After
+    public void after() {
+        server.close();
+        sourceMetadataRegistry.close();
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void revalidate_without_metadata_test() throws IOException {
+
+        final ConditionalDownloader.Revalidation revalidation = revalidate();
+
+        Assert.assertFalse(revalidation.isNotModified());
+        Assert.assertNull(revalidation.getInputStream());
+        Assert.assertTrue(server.requests().isEmpty());
+    }
+
+    @Test
+    public void revalidate_not_modified_test() throws IOException {
+
+        conditionalDownloader.completed(source, directory.getPath(), new SourceMetadata("\"v1\"", null, -1),
+                                        downloadFile);
+
+        Assert.assertTrue(revalidate().isNotModified());
+        Assert.assertEquals("\"v1\"", server.requests().get(0).getFirst("If-None-Match"));
+        // Metadata is kept for the next run
+        Assert.assertTrue(revalidate().isNotModified());
+    }
+
+    @Test
+    public void revalidate_changed_source_returns_body_test() throws IOException {
+
+        conditionalDownloader.completed(source, directory.getPath(), new SourceMetadata("\"v0\"", null, -1),
+                                        downloadFile);
+
+        final ConditionalDownloader.Revalidation revalidation = revalidate();
+
+        Assert.assertFalse(revalidation.isNotModified());
+        Assert.assertArrayEquals(content, IOUtils.toByteArray(revalidation.getInputStream()));
+        Assert.assertEquals("\"v1\"", revalidation.getMetadata().getEtag());
+        Assert.assertNull(sourceMetadataRegistry.open(directory.getPath()).get(source));
+    }
+
+    @Test
+    public void revalidate_failed_request_keeps_metadata_test() throws IOException {
+
+        conditionalDownloader.completed(source, directory.getPath(), new SourceMetadata("\"v1\"", null, -1),
+                                        downloadFile);
+        server.fail("/file.txt", 500, 1, null);
+
+        try {
+            revalidate();
+            Assert.fail("Failed conditional request expected");
+        } catch (IOException e) {
+            Assert.assertEquals("\"v1\"", sourceMetadataRegistry.open(directory.getPath()).get(source).getEtag());
+        }
+        Assert.assertTrue(revalidate().isNotModified());
+    }
+
+    @Test
+    public void revalidate_size_mismatch_downloads_again_test() throws IOException {
+
+        conditionalDownloader.completed(source, directory.getPath(), new SourceMetadata("\"v1\"", null, -1),
+                                        downloadFile);
+        FileUtils.writeByteArrayToFile(downloadFile, Arrays.copyOf(content, 5));
+
+        final ConditionalDownloader.Revalidation revalidation = revalidate();
+
+        Assert.assertFalse(revalidation.isNotModified());
+        Assert.assertNull(revalidation.getInputStream());
+        Assert.assertTrue(server.requests().isEmpty());
+    }
+
+    @Test
+    public void revalidate_checksum_mismatch_downloads_again_test() throws IOException {
+
+        conditionalDownloader.completed(source, directory.getPath(), new SourceMetadata("\"v1\"", null, -1),
+                                        downloadFile);
+        final Checksum expected = new Checksum("sha256", DigestUtils.sha256Hex(content));
+
+        Assert.assertTrue(revalidate(expected).isNotModified());
+
+        // Altered in place, keeping its size
+        final byte[] altered = content.clone();
+        altered[0] ^= 1;
+        FileUtils.writeByteArrayToFile(downloadFile, altered);
+        server.requests().clear();
+
+        final ConditionalDownloader.Revalidation revalidation = revalidate(expected);
+
+        Assert.assertFalse(revalidation.isNotModified());
+        Assert.assertNull(revalidation.getInputStream());
+        Assert.assertTrue(server.requests().isEmpty());
+        Assert.assertTrue(revalidate(null).isNotModified());
+    }
+
+    private ConditionalDownloader.Revalidation revalidate() throws IOException {
+        return revalidate(null);
+    }
+
+    private ConditionalDownloader.Revalidation revalidate(Checksum expectedChecksum) throws IOException {
+        return conditionalDownloader.revalidate(source, new URL(source), downloadFile, directory.getPath(),
+                                                expectedChecksum);
+    }
+}
@@ -0,0 +1,158 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartialDownloadResumerTest {
+
+    @InjectMocks
+    private PartialDownloadResumer partialDownloadResumer = new PartialDownloadResumer();
+
+    @Spy
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    private LocalHttpServer server;
+
+    private File partialFile;
+
+    private File validatorFile;
+
+    private final byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @Before
+    public void before() throws Exception {
+
+        FieldUtils.writeField(fileDownloaderUtils, "connectTimeout", 1000, true);
+        FieldUtils.writeField(fileDownloaderUtils, "readTimeout", 1000, true);
+
+        server = new LocalHttpServer().serve("/file.txt", content, "\"v1\"");
+        partialFile = File.createTempFile("partial", ".txt");
+        validatorFile = new File(partialFile.getPath() + ".validator");
+    }
+
+    @After
+    public void after() {
+        server.close();
+        FileUtils.deleteQuietly(partialFile);
+        FileUtils.deleteQuietly(validatorFile);
+    }
+
+    @Test
+    public void open_fresh_download_saves_validator_test() throws IOException {
+
+        PartialDownloadResumer.ResumedStream stream = partialDownloadResumer.open(new URL(server.url("/file.txt")),
+                                                                                  partialFile);
+
+        Assert.assertEquals(0, stream.getPosition());
+        Assert.assertEquals(content.length, stream.getLength());
+        Assert.assertArrayEquals(content, IOUtils.toByteArray(stream.getInputStream()));
+        Assert.assertEquals("\"v1\"", FileUtils.readFileToString(validatorFile, StandardCharsets.UTF_8));
+        Assert.assertNull(server.requests().get(0).getFirst("Range"));
+    }
+
+    @Test
+    public void open_resumes_after_partial_bytes_test() throws IOException {
+
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(content, 8));
+        FileUtils.writeStringToFile(validatorFile, "\"v1\"", StandardCharsets.UTF_8);
+
+        PartialDownloadResumer.ResumedStream stream = partialDownloadResumer.open(new URL(server.url("/file.txt")),
+                                                                                  partialFile);
+
+        Assert.assertEquals(8, stream.getPosition());
+        Assert.assertEquals(content.length, stream.getLength());
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 8, content.length),
+                                 IOUtils.toByteArray(stream.getInputStream()));
+        Assert.assertEquals("bytes=8-", server.requests().get(0).getFirst("Range"));
+        Assert.assertEquals("\"v1\"", server.requests().get(0).getFirst("If-Range"));
+    }
+
+    @Test
+    public void open_source_changed_restarts_test() throws IOException {
+
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(content, 8));
+        FileUtils.writeStringToFile(validatorFile, "\"v0\"", StandardCharsets.UTF_8);
+
+        PartialDownloadResumer.ResumedStream stream = partialDownloadResumer.open(new URL(server.url("/file.txt")),
+                                                                                  partialFile);
+
+        Assert.assertEquals(0, stream.getPosition());
+        Assert.assertArrayEquals(content, IOUtils.toByteArray(stream.getInputStream()));
+        Assert.assertEquals("\"v1\"", FileUtils.readFileToString(validatorFile, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void open_without_validator_restarts_test() throws IOException {
+
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(content, 8));
+
+        PartialDownloadResumer.ResumedStream stream = partialDownloadResumer.open(new URL(server.url("/file.txt")),
+                                                                                  partialFile);
+
+        Assert.assertEquals(0, stream.getPosition());
+        Assert.assertNull(server.requests().get(0).getFirst("Range"));
+        stream.getInputStream().close();
+    }
+
+    @Test
+    public void open_weak_etag_saves_last_modified_test() throws IOException {
+
+        final String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        server.serve("/file.txt", content, "W/\"v1\"", lastModified);
+
+        partialDownloadResumer.open(new URL(server.url("/file.txt")), partialFile).getInputStream().close();
+        Assert.assertEquals(lastModified, FileUtils.readFileToString(validatorFile, StandardCharsets.UTF_8));
+
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(content, 8));
+        PartialDownloadResumer.ResumedStream stream = partialDownloadResumer.open(new URL(server.url("/file.txt")),
+                                                                                  partialFile);
+
+        Assert.assertEquals(8, stream.getPosition());
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 8, content.length),
+                                 IOUtils.toByteArray(stream.getInputStream()));
+        Assert.assertEquals(lastModified, server.requests().get(1).getFirst("If-Range"));
+    }
+
+    @Test
+    public void open_range_not_following_partial_bytes_fails_test() throws IOException {
+
+        FileUtils.writeByteArrayToFile(partialFile, Arrays.copyOf(content, 8));
+        FileUtils.writeStringToFile(validatorFile, "\"v1\"", StandardCharsets.UTF_8);
+        server.rangeStart(4);
+
+        try {
+            partialDownloadResumer.open(new URL(server.url("/file.txt")), partialFile);
+            Assert.fail("Range starting at byte 4 instead of byte 8");
+        } catch (IOException expected) {
+        }
+        Assert.assertFalse("Next attempt starts over", validatorFile.exists());
+    }
+
+    @Test
+    public void completed_removes_validator_test() throws IOException {
+
+        FileUtils.writeStringToFile(validatorFile, "\"v1\"", StandardCharsets.UTF_8);
+
+        partialDownloadResumer.completed(partialFile);
+
+        Assert.assertFalse(validatorFile.exists());
+    }
+}
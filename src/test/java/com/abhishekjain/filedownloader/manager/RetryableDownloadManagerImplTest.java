@@ -1,15 +1,29 @@
 package com.abhishekjain.filedownloader.manager;
 
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.checksum.ChecksumVerifier;
 import com.abhishekjain.filedownloader.configuration.retry.RetryDownloadListener;
+import com.abhishekjain.filedownloader.execution.RejectableTask;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.progress.DownloadProgress;
+import com.abhishekjain.filedownloader.progress.ProgressRegistry;
+import com.abhishekjain.filedownloader.retry.RetryAfterException;
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
 import com.abhishekjain.filedownloader.model.DownloadStatus;
 import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
 import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -17,14 +31,31 @@ import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.MalformedURLException;
+import java.net.SocketException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,9 +68,36 @@ public class RetryableDownloadManagerImplTest {
     @Spy
     private FileDownloaderUtils fileDownloaderUtils;
 
+    @Spy
+    private BandwidthThrottle bandwidthThrottle;
+
     @Mock
     private RetryTemplate retryTemplate = new RetryTemplate();
 
+    @Mock
+    private SegmentedDownloader segmentedDownloader;
+
+    @Mock
+    private PartialDownloadResumer partialDownloadResumer;
+
+    @Mock
+    private ConditionalDownloader conditionalDownloader;
+
+    @Spy
+    private ChecksumVerifier checksumVerifier;
+
+    @Spy
+    private DownloadMetrics downloadMetrics;
+
+    @Spy
+    private ProgressRegistry progressRegistry;
+
+    @Spy
+    private RetryScheduler retryScheduler;
+
+    @Spy
+    private ChunkedTransfer chunkedTransfer;
+
     @Before
     public void before() throws IllegalAccessException {
 
@@ -61,6 +119,15 @@ public class RetryableDownloadManagerImplTest {
         retryTemplate.setRetryPolicy(retryPolicy);
 
         FieldUtils.writeField(downloadManager, "retryTemplate", retryTemplate, true);
+
+        FieldUtils.writeField(retryScheduler, "maxAttempts", 3, true);
+        FieldUtils.writeField(retryScheduler, "baseInterval", 10L, true);
+        FieldUtils.writeField(retryScheduler, "maxInterval", 100L, true);
+        retryScheduler.init();
+
+        FieldUtils.writeField(chunkedTransfer, "bufferSize", 4096, true);
+        FieldUtils.writeField(chunkedTransfer, "maxBuffers", 4, true);
+        chunkedTransfer.init();
     }
 
     @Test
@@ -129,4 +196,271 @@ public class RetryableDownloadManagerImplTest {
 
     }
 
+    @Test
+    public void downloadFromSource_checksum_verified_test() throws IOException {
+
+        final byte[] content = new byte[100_000];
+        Arrays.fill(content, (byte) 'x');
+        final String sha256 = DigestUtils.sha256Hex(content);
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", content)) {
+            final String source = server.url("/file.bin") + "#sha256=" + sha256.toUpperCase();
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+
+            Assert.assertEquals(DownloadStatus.COMPLETED, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals(new Checksum("sha256", sha256), downloadResult.getChecksum());
+            Assert.assertEquals(content.length, downloadMetrics.getBytesTotal());
+            Assert.assertEquals(0, downloadMetrics.getBytesInFlight());
+
+            final DownloadProgress progress = progressRegistry.get(source);
+            Assert.assertEquals(DownloadStatus.COMPLETED, progress.getStatus());
+            Assert.assertEquals(content.length, progress.getTransferredBytes());
+            Assert.assertEquals(DownloadProgress.UNKNOWN_SIZE, progress.getExpectedBytes());
+            Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(saveLocation));
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSourceAsync_retry_after_test() throws IOException {
+
+        final byte[] content = "retried content".getBytes(StandardCharsets.US_ASCII);
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", content)
+                                                           .fail("/file.bin", 503, 2, "0")) {
+            final String source = server.url("/file.bin");
+            final List<String> attemptThreads = new CopyOnWriteArrayList<>();
+
+            final FileDownloadResult downloadResult = downloadManager.downloadFromSourceAsync(
+                    source, "download", attempt -> {
+                        attemptThreads.add(Thread.currentThread().getName());
+                        attempt.run();
+                    }).join();
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+
+            Assert.assertEquals(DownloadStatus.COMPLETED, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals(3, server.requests().size());
+            // Retries are submitted by the retry timer rather than waited for by the download thread
+            Assert.assertEquals(Arrays.asList(Thread.currentThread().getName(), "download-retry", "download-retry"),
+                                attemptThreads);
+            Assert.assertEquals(Long.valueOf(2), downloadMetrics.getRetries()
+                                                                .get(RetryAfterException.class.getName()));
+            Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(saveLocation));
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSourceAsync_error_completes_result_test() throws Exception {
+
+        doThrow(new Error("Failed attempt")).when(chunkedTransfer).transfer(Matchers.any(ReadableByteChannel.class),
+                                                                           Matchers.any(FileChannel.class),
+                                                                           Matchers.anyLong(), Matchers.anyLong());
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[100])) {
+            final FileDownloadResult downloadResult = downloadManager.downloadFromSourceAsync(
+                    server.url("/file.bin"), "download", Runnable::run).get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(DownloadStatus.ERROR, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals("RetryAttemptsExhausted", downloadResult.getMessage());
+        }
+    }
+
+    @Test
+    public void downloadFromSourceAsync_retry_rejected_completes_result_test() throws Exception {
+
+        retryScheduler.close();
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[100])
+                                                           .fail("/file.bin", 503, 1, "0")) {
+            final String source = server.url("/file.bin");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+
+            final FileDownloadResult downloadResult = downloadManager.downloadFromSourceAsync(
+                    source, "download", Runnable::run).get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(DownloadStatus.ERROR, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals(1, server.requests().size());
+            Assert.assertFalse(fileDownloaderUtils.partFile(saveLocation).exists());
+        }
+    }
+
+    @Test
+    public void downloadFromSourceAsync_dropped_attempt_completes_result_test() throws Exception {
+
+        // Executor shut down, dropping the attempt instead of running it
+        final Executor droppingExecutor = attempt -> RejectableTask.reject(
+                attempt, new RejectedExecutionException("Shut down"));
+
+        final FileDownloadResult downloadResult = downloadManager.downloadFromSourceAsync(
+                "http://localhost:1/file.bin", "download", droppingExecutor).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(DownloadStatus.ERROR, downloadResult.getDownloadStatusStatus());
+        Assert.assertEquals("Shut down", downloadResult.getMessage());
+    }
+
+    @Test
+    public void downloadFromSource_checksum_mismatch_retried_test() throws IOException {
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[]{1, 2, 3})) {
+            final String source = server.url("/file.bin") + "#sha1=" + DigestUtils.sha1Hex(new byte[]{1, 2, 4});
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.ERROR, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals("RetryAttemptsExhausted", downloadResult.getMessage());
+            Assert.assertEquals(3, server.requests().size());
+            Assert.assertFalse(new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source), "download"))
+                                       .exists());
+        }
+    }
+
+    @Test
+    public void downloadFromSource_part_file_renamed_test() throws IOException, IllegalAccessException {
+
+        final byte[] content = new byte[10_000];
+        Arrays.fill(content, (byte) 'x');
+        FieldUtils.writeField(downloadManager, "resumeEnabled", true, true);
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", content)) {
+            final String source = server.url("/file.bin");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+            final File partFile = fileDownloaderUtils.partFile(saveLocation);
+            FileUtils.writeStringToFile(saveLocation, "earlier download", StandardCharsets.UTF_8);
+            // Announces more than is sent, the file holds only what was received
+            when(partialDownloadResumer.open(Matchers.any(URL.class), Matchers.eq(partFile))).thenAnswer(
+                    invocation -> new PartialDownloadResumer.ResumedStream(
+                            ((URL) invocation.getArguments()[0]).openStream(), 0, content.length + 1000, null));
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.COMPLETED, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals(saveLocation.getPath(), downloadResult.getPath());
+            Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(saveLocation));
+            Assert.assertFalse(partFile.exists());
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSource_resumes_after_failed_read_test() throws IOException, IllegalAccessException {
+
+        final byte[] content = new byte[20_000];
+        new Random(11).nextBytes(content);
+        FieldUtils.writeField(downloadManager, "resumeEnabled", true, true);
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", content)) {
+            final String source = server.url("/file.bin");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+            final File partFile = fileDownloaderUtils.partFile(saveLocation);
+            // The first attempt fails in the middle of a chunk, the second one resumes where the file ends
+            when(partialDownloadResumer.open(Matchers.any(URL.class), Matchers.eq(partFile))).thenReturn(
+                    new PartialDownloadResumer.ResumedStream(new SequenceInputStream(
+                            new ByteArrayInputStream(content, 0, 3000), new InputStream() {
+                                @Override
+                                public int read() throws IOException {
+                                    throw new SocketException("Connection reset");
+                                }
+                            }), 0, content.length, null))
+                    .thenAnswer(invocation -> new PartialDownloadResumer.ResumedStream(
+                            new ByteArrayInputStream(content, (int) partFile.length(), content.length),
+                            partFile.length(), content.length, null));
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.COMPLETED, downloadResult.getDownloadStatusStatus());
+            Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(saveLocation));
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSource_resumes_after_crash_test() throws IOException, IllegalAccessException {
+
+        final byte[] content = new byte[50_000];
+        new Random(13).nextBytes(content);
+        final PartialDownloadResumer resumer = new PartialDownloadResumer();
+        FieldUtils.writeField(resumer, "fileDownloaderUtils", fileDownloaderUtils, true);
+        FieldUtils.writeField(downloadManager, "partialDownloadResumer", resumer, true);
+        FieldUtils.writeField(downloadManager, "resumeEnabled", true, true);
+        // The process dies after 10000 bytes, without any of the cleanup of a failed transfer
+        doAnswer(invocation -> {
+            final Object[] arguments = invocation.getArguments();
+            chunkedTransfer.transfer((ReadableByteChannel) arguments[0], (FileChannel) arguments[1],
+                                     (Long) arguments[2], 10_000);
+            throw new Error("Killed");
+        }).doCallRealMethod().when(chunkedTransfer).transfer(Matchers.any(ReadableByteChannel.class),
+                                                             Matchers.any(FileChannel.class), Matchers.anyLong(),
+                                                             Matchers.eq(Long.MAX_VALUE));
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", content, "\"v1\"")) {
+            final String source = server.url("/file.bin");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+            final File partFile = fileDownloaderUtils.partFile(saveLocation);
+            try {
+                downloadManager.downloadFromSource(source, "download");
+                Assert.fail("The download should have been killed");
+            } catch (Error expected) {
+            }
+            Assert.assertEquals(10_000, partFile.length());
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.COMPLETED, downloadResult.getDownloadStatusStatus());
+            Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(saveLocation));
+            Assert.assertEquals("bytes=10000-", server.requests().get(server.requests().size() - 1)
+                                                      .getFirst("Range"));
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSource_not_modified_leaves_no_part_file_test() throws IOException {
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[]{1, 2, 3})) {
+            final String source = server.url("/file.bin");
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+            FileUtils.writeByteArrayToFile(saveLocation, new byte[]{1, 2, 3});
+            when(conditionalDownloader.isEnabled()).thenReturn(true);
+            when(conditionalDownloader.revalidate(Matchers.eq(source), Matchers.any(URL.class),
+                                                  Matchers.eq(saveLocation), Matchers.eq("download"),
+                                                  Matchers.any(Checksum.class)))
+                    .thenReturn(ConditionalDownloader.Revalidation.NOT_MODIFIED);
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.NOT_MODIFIED, downloadResult.getDownloadStatusStatus());
+            Assert.assertFalse(fileDownloaderUtils.partFile(saveLocation).exists());
+            Assert.assertTrue(server.requests().isEmpty());
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
+    @Test
+    public void downloadFromSource_failure_keeps_earlier_file_test() throws IOException {
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[]{1, 2, 3})) {
+            final String source = server.url("/file.bin") + "#sha1=" + DigestUtils.sha1Hex(new byte[]{1, 2, 4});
+            final File saveLocation = new File(fileDownloaderUtils.uniqueFileSaveLocation(new URL(source),
+                                                                                          "download"));
+            FileUtils.writeStringToFile(saveLocation, "earlier download", StandardCharsets.UTF_8);
+
+            FileDownloadResult downloadResult = downloadManager.downloadFromSource(source, "download");
+
+            Assert.assertEquals(DownloadStatus.ERROR, downloadResult.getDownloadStatusStatus());
+            Assert.assertEquals("earlier download", FileUtils.readFileToString(saveLocation, StandardCharsets.UTF_8));
+            Assert.assertFalse(fileDownloaderUtils.partFile(saveLocation).exists());
+            FileUtils.deleteQuietly(saveLocation);
+        }
+    }
+
 }
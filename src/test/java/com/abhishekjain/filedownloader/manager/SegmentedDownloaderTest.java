@@ -0,0 +1,187 @@
+package com.abhishekjain.filedownloader.manager;
+
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.metadata.SourceMetadata;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
+import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SegmentedDownloaderTest {
+
+    @InjectMocks
+    private SegmentedDownloader segmentedDownloader = new SegmentedDownloader();
+
+    @Spy
+    private FileDownloaderUtils fileDownloaderUtils;
+
+    @Spy
+    private BandwidthThrottle bandwidthThrottle;
+
+    @Spy
+    private ChunkedTransfer chunkedTransfer;
+
+    private LocalHttpServer server;
+
+    private byte[] content;
+
+    @Before
+    public void before() throws Exception {
+
+        FieldUtils.writeField(fileDownloaderUtils, "connectTimeout", 1000, true);
+        FieldUtils.writeField(fileDownloaderUtils, "readTimeout", 1000, true);
+        FieldUtils.writeField(segmentedDownloader, "segmentCount", 4, true);
+        FieldUtils.writeField(segmentedDownloader, "minSegmentSize", 1000L, true);
+        FieldUtils.writeField(segmentedDownloader, "poolSize", 2, true);
+        FieldUtils.writeField(segmentedDownloader, "resumeEnabled", true, true);
+        segmentedDownloader.init();
+        FieldUtils.writeField(chunkedTransfer, "bufferSize", 1024, true);
+        FieldUtils.writeField(chunkedTransfer, "maxBuffers", 2, true);
+        chunkedTransfer.init();
+
+        content = new byte[10_001];
+        new Random(7).nextBytes(content);
+        server = new LocalHttpServer().serve("/large.bin", content);
+    }
+
+    @After
+    public void after() {
+        server.close();
+    }
+
+    @Test
+    public void segmentableLength_ranges_supported_test() throws IOException {
+
+        Assert.assertEquals(content.length, segmentedDownloader.segmentableLength(new URL(server.url("/large.bin"))));
+
+    }
+
+    @Test
+    public void segmentableLength_ranges_not_supported_test() throws IOException {
+
+        server.acceptRanges(false);
+
+        Assert.assertEquals(-1, segmentedDownloader.segmentableLength(new URL(server.url("/large.bin"))));
+
+    }
+
+    @Test
+    public void segmentableLength_too_small_test() throws IOException {
+
+        server.serve("/small.bin", new byte[1500]);
+
+        Assert.assertEquals(-1, segmentedDownloader.segmentableLength(new URL(server.url("/small.bin"))));
+
+    }
+
+    @Test
+    public void download_segments_test() throws IOException {
+
+        File target = File.createTempFile("segmented", ".bin");
+        target.deleteOnExit();
+
+        segmentedDownloader.download(new URL(server.url("/large.bin")), content.length, target,
+                                     new DownloadMetrics().start(server.url("/large.bin")));
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        Assert.assertEquals(4, server.requests().size());
+
+    }
+
+    @Test
+    public void download_failed_segment_resumed_test() throws IOException {
+
+        File target = File.createTempFile("segmented", ".bin");
+        target.deleteOnExit();
+        new File(target.getPath() + ".segments").deleteOnExit();
+        server.serve("/large.bin", content, "\"v1\"").fail("/large.bin", 500, 1, null);
+        final URL url = new URL(server.url("/large.bin"));
+        final SourceMetadata metadata = new SourceMetadata("\"v1\"", null, -1);
+
+        try {
+            segmentedDownloader.download(url, content.length, metadata, target,
+                                         new DownloadMetrics().start(server.url("/large.bin")));
+            Assert.fail("One segment fails");
+        } catch (IOException expected) {
+        }
+        Assert.assertTrue("Completed segments are kept", segmentedDownloader.hasSegments(target));
+        Assert.assertEquals(content.length, target.length());
+
+        server.requests().clear();
+        segmentedDownloader.download(url, content.length, metadata, target,
+                                     new DownloadMetrics().start(server.url("/large.bin")));
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        Assert.assertEquals("Only the failed segment is requested again", 1, server.requests().size());
+        Assert.assertEquals("\"v1\"", server.requests().get(0).getFirst("If-Range"));
+        Assert.assertFalse(segmentedDownloader.hasSegments(target));
+    }
+
+    @Test
+    public void download_changed_source_discards_segments_test() throws IOException {
+
+        File target = File.createTempFile("segmented", ".bin");
+        target.deleteOnExit();
+        server.serve("/large.bin", content, "\"v2\"");
+        final URL url = new URL(server.url("/large.bin"));
+
+        try {
+            segmentedDownloader.download(url, content.length, new SourceMetadata("\"v1\"", null, -1), target,
+                                         new DownloadMetrics().start(server.url("/large.bin")));
+            Assert.fail("Source changed since its probe");
+        } catch (IOException expected) {
+        }
+        Assert.assertFalse(segmentedDownloader.hasSegments(target));
+        Assert.assertEquals(0, target.length());
+    }
+
+    @Test
+    public void download_changed_source_without_resume_test() throws IOException, IllegalAccessException {
+
+        File target = File.createTempFile("segmented", ".bin");
+        target.deleteOnExit();
+        FieldUtils.writeField(segmentedDownloader, "resumeEnabled", false, true);
+        server.serve("/large.bin", content, "\"v2\"");
+        final URL url = new URL(server.url("/large.bin"));
+
+        try {
+            segmentedDownloader.download(url, content.length, new SourceMetadata("\"v1\"", null, -1), target,
+                                         new DownloadMetrics().start(server.url("/large.bin")));
+            Assert.fail("Source changed since its probe");
+        } catch (IOException expected) {
+        }
+        Assert.assertFalse(server.requests().isEmpty());
+        Assert.assertTrue(server.requests().stream()
+                                .allMatch(headers -> "\"v1\"".equals(headers.getFirst("If-Range"))));
+        Assert.assertFalse(segmentedDownloader.hasSegments(target));
+        Assert.assertEquals(0, target.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void download_range_not_honoured_test() throws IOException {
+
+        File target = File.createTempFile("segmented", ".bin");
+        target.deleteOnExit();
+        server.acceptRanges(false);
+
+        segmentedDownloader.download(new URL(server.url("/large.bin")), content.length, target,
+                                     new DownloadMetrics().start(server.url("/large.bin")));
+
+    }
+}
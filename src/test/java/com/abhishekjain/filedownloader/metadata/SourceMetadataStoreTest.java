@@ -0,0 +1,103 @@
+package com.abhishekjain.filedownloader.metadata;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class SourceMetadataStoreTest {
+
+    private static final String SOURCE = "http://localhost:8000/sample.pdf";
+    private static final String OTHER_SOURCE = "http://localhost:8000/other.pdf";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private Path directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("metadata");
+    }
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void open_replays_last_metadata_of_each_source_test() throws IOException {
+
+        try (SourceMetadataStore store = SourceMetadataStore.open(directory)) {
+            store.put(SOURCE, new SourceMetadata("\"v1\"", null, 10));
+            store.put(SOURCE, new SourceMetadata("\"v2\"", LAST_MODIFIED, 20));
+            store.put(OTHER_SOURCE, new SourceMetadata(null, LAST_MODIFIED, 30));
+            store.remove(OTHER_SOURCE);
+        }
+
+        try (SourceMetadataStore store = SourceMetadataStore.open(directory)) {
+            final SourceMetadata metadata = store.get(SOURCE);
+            Assert.assertEquals("\"v2\"", metadata.getEtag());
+            Assert.assertEquals(LAST_MODIFIED, metadata.getLastModified());
+            Assert.assertEquals(20, metadata.getSize());
+            Assert.assertNull(store.get(OTHER_SOURCE));
+            // Superseded lines are compacted away
+            Assert.assertEquals(1, Files.readAllLines(directory.resolve(SourceMetadataStore.FILE_NAME)).size());
+        }
+    }
+
+    @Test
+    public void load_keeps_only_requested_sources_test() throws IOException {
+
+        try (SourceMetadataStore store = SourceMetadataStore.open(directory)) {
+            store.put(SOURCE, new SourceMetadata("\"v1\"", null, 10));
+            store.put(OTHER_SOURCE, new SourceMetadata("\"v2\"", null, 20));
+        }
+
+        final Path storeFile = directory.resolve(SourceMetadataStore.FILE_NAME);
+        try (SourceMetadataStore store = SourceMetadataStore.open(directory)) {
+            store.load(Collections.singletonList(SOURCE));
+            store.put(SOURCE, new SourceMetadata("\"v3\"", null, 30));
+            Assert.assertEquals(3, Files.readAllLines(storeFile).size());
+
+            // Only the loaded source is kept in memory, the other one being looked up in the file
+            Files.write(storeFile, new byte[0]);
+            Assert.assertEquals("\"v3\"", store.get(SOURCE).getEtag());
+            Assert.assertNull(store.get(OTHER_SOURCE));
+
+            store.release(Collections.singletonList(SOURCE));
+            Assert.assertNull(store.get(SOURCE));
+        }
+    }
+
+    @Test
+    public void unloaded_source_is_looked_up_in_file_test() throws IOException {
+
+        try (SourceMetadataStore store = SourceMetadataStore.open(directory)) {
+            store.load(Collections.singletonList(SOURCE));
+            store.put(OTHER_SOURCE, new SourceMetadata("\"v1\"", null, 10));
+            store.remove(SOURCE);
+
+            Assert.assertEquals(10, store.get(OTHER_SOURCE).getSize());
+            Assert.assertNull(store.get(SOURCE));
+
+            store.remove(OTHER_SOURCE);
+            Assert.assertNull(store.get(OTHER_SOURCE));
+        }
+    }
+
+    @Test
+    public void disabled_keeps_no_record_on_disk_test() throws IOException {
+
+        try (SourceMetadataStore store = SourceMetadataStore.disabled()) {
+            store.put(SOURCE, new SourceMetadata("\"v1\"", null, 10));
+            Assert.assertEquals(10, store.get(SOURCE).getSize());
+        }
+
+        Assert.assertFalse(Files.exists(directory.resolve(SourceMetadataStore.FILE_NAME)));
+    }
+}
@@ -0,0 +1,147 @@
+package com.abhishekjain.filedownloader.metrics;
+
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jmx.export.annotation.AnnotationJmxAttributeSource;
+import org.springframework.jmx.export.assembler.MetadataMBeanInfoAssembler;
+
+import javax.management.MBeanException;
+import javax.management.modelmbean.ModelMBeanInfo;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class DownloadMetricsTest {
+
+    private final DownloadMetrics downloadMetrics = new DownloadMetrics();
+
+    @Test
+    public void recording_test() throws IOException {
+
+        final DownloadMetrics.Recording recording = downloadMetrics.start("http://Example.com/a.bin");
+        read(recording, 1000);
+
+        Assert.assertEquals(1000, downloadMetrics.getBytesTotal());
+        Assert.assertEquals(Long.valueOf(1000), downloadMetrics.getHostBytesTotal().get("example.com"));
+        Assert.assertEquals(1000, downloadMetrics.getBytesInFlight());
+        Assert.assertEquals(1, downloadMetrics.getDownloadsInProgress());
+        Assert.assertEquals(1, downloadMetrics.getTimeToFirstByte().getCount());
+
+        recording.finished(DownloadStatus.COMPLETED);
+        recording.finished(DownloadStatus.COMPLETED);
+
+        Assert.assertEquals(0, downloadMetrics.getBytesInFlight());
+        Assert.assertEquals(0, downloadMetrics.getDownloadsInProgress());
+        Assert.assertEquals(1, downloadMetrics.getDuration().getCount());
+        Assert.assertEquals(Long.valueOf(1), downloadMetrics.getResults().get("COMPLETED"));
+    }
+
+    @Test
+    public void time_to_first_byte_per_attempt_test() throws IOException {
+
+        final DownloadMetrics.Recording recording = downloadMetrics.start("http://example.com/a.bin");
+        read(recording, 10);
+        read(recording, 10);
+        recording.attemptStarted();
+        read(recording, 10);
+
+        Assert.assertEquals(2, downloadMetrics.getTimeToFirstByte().getCount());
+    }
+
+    @Test
+    public void sample_test() throws Exception {
+
+        read(downloadMetrics.start("http://example.com/a.bin"), 5000);
+        read(downloadMetrics.start("http://other.com/a.bin"), 1000);
+        Thread.sleep(10);
+
+        downloadMetrics.sample();
+
+        Assert.assertTrue(downloadMetrics.getBytesPerSecond() > 0);
+        Assert.assertTrue(downloadMetrics.getHostBytesPerSecond().get("example.com")
+                                  > downloadMetrics.getHostBytesPerSecond().get("other.com"));
+
+        downloadMetrics.sample();
+
+        Assert.assertEquals(0, downloadMetrics.getBytesPerSecond(), 0);
+    }
+
+    @Test
+    public void histogram_test() {
+
+        final Histogram histogram = new Histogram(0.1, 1);
+        histogram.record(50_000_000L);
+        histogram.record(100_000_000L);
+        histogram.record(500_000_000L);
+        histogram.record(5_000_000_000L);
+
+        Assert.assertArrayEquals(new long[]{2, 3, 4}, histogram.getCumulativeCounts());
+        Assert.assertEquals(5.65, histogram.getSumSeconds(), 1e-9);
+    }
+
+    @Test
+    public void prometheus_dump_test() throws Exception {
+
+        downloadMetrics.retried(new SocketTimeoutException());
+        downloadMetrics.gauge("download_executor_active", "Downloads running", () -> 3);
+        final DownloadMetrics.Recording recording = downloadMetrics.start("http://example.com/a.bin");
+        read(recording, 42);
+        recording.finished(DownloadStatus.ERROR);
+
+        final MetricsReporter metricsReporter = new MetricsReporter();
+        FieldUtils.writeField(metricsReporter, "downloadMetrics", downloadMetrics, true);
+        final File directory = Files.createTempDirectory("metrics").toFile();
+        try {
+            final File dump = new File(directory, "download.prom");
+            metricsReporter.dump(dump.toPath());
+
+            final String text = FileUtils.readFileToString(dump, StandardCharsets.UTF_8);
+            Assert.assertTrue(text.contains("# TYPE download_bytes_total counter\ndownload_bytes_total 42\n"));
+            Assert.assertTrue(text.contains("download_host_bytes_total{host=\"example.com\"} 42\n"));
+            Assert.assertTrue(text.contains(
+                    "download_retries_total{exception=\"java.net.SocketTimeoutException\"} 1\n"));
+            Assert.assertTrue(text.contains("download_results_total{status=\"ERROR\"} 1\n"));
+            Assert.assertTrue(text.contains("download_duration_seconds_bucket{le=\"+Inf\"} 1\n"));
+            Assert.assertTrue(text.contains("download_duration_seconds_count 1\n"));
+            Assert.assertTrue(text.contains("download_executor_active 3\n"));
+            Assert.assertFalse(new File(directory, "download.prom.tmp").exists());
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    @Test
+    public void jmx_metric_types_test() throws Exception {
+
+        final ModelMBeanInfo info = new MetadataMBeanInfoAssembler(new AnnotationJmxAttributeSource())
+                .getMBeanInfo(downloadMetrics, "com.abhishekjain.filedownloader:type=DownloadMetrics");
+
+        Assert.assertEquals("COUNTER", metricType(info, "BytesTotal"));
+        Assert.assertEquals("COUNTER", metricType(info, "HostBytesTotal"));
+        Assert.assertEquals("COUNTER", metricType(info, "Retries"));
+        Assert.assertEquals("COUNTER", metricType(info, "Results"));
+        Assert.assertEquals("GAUGE", metricType(info, "BytesPerSecond"));
+        Assert.assertEquals("GAUGE", metricType(info, "DownloadsInProgress"));
+    }
+
+    private static Object metricType(ModelMBeanInfo info, String attribute) throws MBeanException {
+        return info.getAttribute(attribute).getDescriptor().getFieldValue("metricType");
+    }
+
+    private static void read(DownloadMetrics.Recording recording, int length) throws IOException {
+
+        try (ReadableByteChannel channel = recording.meter(Channels.newChannel(
+                new ByteArrayInputStream(new byte[length])))) {
+            IOUtils.toByteArray(Channels.newInputStream(channel));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.abhishekjain.filedownloader.progress;
+
+import com.abhishekjain.filedownloader.model.DownloadStatus;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ProgressRegistryTest {
+
+    private ProgressRegistry progressRegistry;
+
+    @Before
+    public void before() {
+        progressRegistry = new ProgressRegistry();
+    }
+
+    @Test
+    public void progress_test() {
+
+        final DownloadProgress progress = progressRegistry.start("http://localhost/a.bin");
+        Assert.assertEquals(DownloadStatus.IN_PROGRESS, progress.getStatus());
+        Assert.assertEquals(-1, progress.getFraction(), 0);
+
+        progress.attempt(0, 1000);
+        progress.add(100);
+        progress.add(150);
+        Assert.assertEquals(250, progress.getTransferredBytes());
+        Assert.assertEquals(0.25, progress.getFraction(), 1e-9);
+
+        // A resumed attempt keeps the bytes already in the file
+        progress.attempt(200, 1000);
+        progress.add(300);
+        Assert.assertEquals(500, progress.getTransferredBytes());
+
+        progress.finished(DownloadStatus.COMPLETED);
+        Assert.assertTrue(progress.isFinished());
+        Assert.assertSame(progress, progressRegistry.get("http://localhost/a.bin"));
+    }
+
+    @Test
+    public void concurrent_updates_test() throws InterruptedException {
+
+        final DownloadProgress progress = progressRegistry.start("http://localhost/a.bin");
+        progress.attempt(0, 8 * 10_000);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    progress.add(1);
+                }
+                done.countDown();
+            });
+        }
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertEquals(1, progress.getFraction(), 0);
+    }
+
+    @Test
+    public void summary_and_clear_finished_test() {
+
+        final DownloadProgress completed = progressRegistry.start("http://localhost/a.bin");
+        completed.attempt(0, 100);
+        completed.add(100);
+        completed.finished(DownloadStatus.COMPLETED);
+
+        final DownloadProgress failed = progressRegistry.start("http://localhost/b.bin");
+        failed.add(10);
+        failed.finished(DownloadStatus.ERROR);
+
+        final DownloadProgress running = progressRegistry.start("http://localhost/c.bin");
+        running.add(5);
+
+        final ProgressSummary summary = progressRegistry.summary();
+        Assert.assertEquals(3, summary.getTotal());
+        Assert.assertEquals(1, summary.getCount(DownloadStatus.COMPLETED));
+        Assert.assertEquals(1, summary.getCount(DownloadStatus.ERROR));
+        Assert.assertEquals(1, summary.getCount(DownloadStatus.IN_PROGRESS));
+        Assert.assertEquals(115, summary.getTransferredBytes());
+        Assert.assertEquals(110, summary.getExpectedBytes());
+        Assert.assertEquals(1, summary.getUnknownSizes());
+        Assert.assertEquals(Collections.singletonList(running), progressRegistry.getActive());
+
+        progressRegistry.clearFinished();
+
+        Assert.assertEquals(Collections.singletonList(running), progressRegistry.getDownloads());
+    }
+
+    @Test
+    public void json_report_test() throws IllegalAccessException {
+
+        final DownloadProgress running = progressRegistry.start("http://localhost/\"quoted\".bin");
+        running.attempt(0, 100);
+        running.add(40);
+
+        final ProgressReporter progressReporter = new ProgressReporter();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FieldUtils.writeField(progressReporter, "progressRegistry", progressRegistry, true);
+        FieldUtils.writeField(progressReporter, "format", ProgressReporter.JSON_FORMAT, true);
+        FieldUtils.writeField(progressReporter, "out", new PrintStream(out, true), true);
+
+        progressReporter.report();
+        running.finished(DownloadStatus.COMPLETED);
+        progressReporter.report();
+        // Idle since the last report
+        progressReporter.report();
+
+        final String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0].contains("\"running\":1,\"completed\":0"));
+        Assert.assertTrue(lines[0].contains("\"downloads\":[{\"source\":\"http://localhost/\\\"quoted\\\".bin\","
+                                                    + "\"transferredBytes\":40,\"expectedBytes\":100"));
+        Assert.assertTrue(lines[1].contains("\"running\":0,\"completed\":1"));
+        Assert.assertTrue(lines[1].endsWith("\"downloads\":[]}"));
+    }
+}
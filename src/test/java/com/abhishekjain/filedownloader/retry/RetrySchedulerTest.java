@@ -0,0 +1,141 @@
+package com.abhishekjain.filedownloader.retry;
+
+import com.abhishekjain.filedownloader.configuration.retry.RetryTemplates;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetrySchedulerTest {
+
+    private final RetryScheduler retryScheduler = new RetryScheduler();
+
+    private URL sourceUrl;
+
+    @Before
+    public void before() throws IllegalAccessException, MalformedURLException {
+
+        FieldUtils.writeField(retryScheduler, "maxAttempts", 3, true);
+        FieldUtils.writeField(retryScheduler, "baseInterval", 100L, true);
+        FieldUtils.writeField(retryScheduler, "maxInterval", 250L, true);
+        FieldUtils.writeField(retryScheduler, "failureThreshold", 2, true);
+        FieldUtils.writeField(retryScheduler, "openDuration", 60_000L, true);
+        retryScheduler.init();
+
+        sourceUrl = new URL("http://Example.com/a.bin");
+    }
+
+    @After
+    public void after() {
+        retryScheduler.close();
+    }
+
+    @Test
+    public void retryable_test() {
+
+        Assert.assertTrue(retryScheduler.isRetryable(1, new ConnectException()));
+        Assert.assertFalse("Attempts exhausted", retryScheduler.isRetryable(3, new ConnectException()));
+        Assert.assertFalse(retryScheduler.isRetryable(1, new IllegalStateException()));
+        Assert.assertFalse(retryScheduler.isRetryable(1, new CircuitOpenException("example.com", 10)));
+    }
+
+    @Test
+    public void full_jitter_delay_test() {
+
+        for (int i = 0; i < 1000; i++) {
+            final long first = retryScheduler.delay(1, new ConnectException());
+            final long third = retryScheduler.delay(3, new ConnectException());
+            Assert.assertTrue(first >= 0 && first <= 100);
+            Assert.assertTrue("Capped at the max interval", third >= 0 && third <= 250);
+        }
+    }
+
+    @Test
+    public void retry_after_test() {
+
+        Assert.assertEquals(200, retryScheduler.delay(1, new RetryAfterException("503", 200)));
+        Assert.assertEquals("Capped at the max interval", 250,
+                            retryScheduler.delay(1, new RetryAfterException("503", 120_000)));
+        Assert.assertTrue(retryScheduler.delay(1, new RetryAfterException("503", -1)) <= 100);
+
+        Assert.assertTrue(retryScheduler.isRetryable(1, new RetryAfterException("503", 250)));
+        Assert.assertFalse("Longer than the max interval",
+                           retryScheduler.isRetryable(1, new RetryAfterException("503", 120_000)));
+
+        Assert.assertEquals(5000, RetryAfterException.delayMillis(" 5 "));
+        Assert.assertEquals(-1, RetryAfterException.delayMillis(null));
+        Assert.assertEquals(-1, RetryAfterException.delayMillis("soon"));
+        Assert.assertEquals(0, RetryAfterException.delayMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+        final long delay = RetryAfterException.delayMillis(DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30)));
+        Assert.assertTrue(delay > 25_000 && delay <= 30_000);
+    }
+
+    @Test
+    public void circuit_breaker_test() throws IOException {
+
+        retryScheduler.acquire(sourceUrl);
+        retryScheduler.completed(sourceUrl, new ConnectException());
+        retryScheduler.completed(sourceUrl, new FileNotFoundException());
+        retryScheduler.completed(sourceUrl, new ConnectException());
+        retryScheduler.acquire(sourceUrl);
+
+        retryScheduler.completed(sourceUrl, new ConnectException());
+        try {
+            retryScheduler.acquire(new URL("http://example.com/b.bin"));
+            Assert.fail("Circuit of the host should be open");
+        } catch (CircuitOpenException expected) {
+            Assert.assertTrue(expected.getMessage().contains("example.com"));
+        }
+        retryScheduler.acquire(new URL("http://other.example.com/a.bin"));
+    }
+
+    @Test
+    public void retry_template_gives_up_on_long_retry_after_test() throws IOException {
+
+        final RetryTemplate retryTemplate = RetryTemplates.create(new DownloadMetrics(), retryScheduler, 3);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = retryTemplate.<String, IOException>execute(context -> {
+            attempts.incrementAndGet();
+            throw new RetryAfterException("503", 120_000);
+        }, context -> "exhausted");
+
+        Assert.assertEquals("exhausted", result);
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void circuit_breaker_half_open_test() {
+
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1000);
+
+        Assert.assertTrue(circuitBreaker.failed(0));
+        Assert.assertEquals(500, circuitBreaker.acquire(500));
+        Assert.assertEquals(0, circuitBreaker.acquire(1000));
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assert.assertTrue("Single trial attempt", circuitBreaker.acquire(1100) > 0);
+
+        Assert.assertTrue(circuitBreaker.failed(1200));
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertEquals(0, circuitBreaker.acquire(2200));
+
+        circuitBreaker.succeeded();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals(0, circuitBreaker.acquire(2300));
+    }
+}
@@ -1,9 +1,26 @@
 package com.abhishekjain.filedownloader.service;
 
+import com.abhishekjain.filedownloader.LocalHttpServer;
+import com.abhishekjain.filedownloader.buffer.ChunkedTransfer;
+import com.abhishekjain.filedownloader.checksum.ChecksumVerifier;
+import com.abhishekjain.filedownloader.execution.AdaptiveConcurrencyController;
+import com.abhishekjain.filedownloader.execution.DownloadExecutor;
+import com.abhishekjain.filedownloader.journal.DownloadJournal;
+import com.abhishekjain.filedownloader.journal.DownloadJournalRegistry;
+import com.abhishekjain.filedownloader.manager.ConditionalDownloader;
 import com.abhishekjain.filedownloader.manager.DownloadManager;
+import com.abhishekjain.filedownloader.manager.RetryableDownloadManagerImpl;
+import com.abhishekjain.filedownloader.manager.SegmentedDownloader;
+import com.abhishekjain.filedownloader.metrics.DownloadMetrics;
+import com.abhishekjain.filedownloader.model.Checksum;
+import com.abhishekjain.filedownloader.model.DownloadBatch;
 import com.abhishekjain.filedownloader.model.DownloadStatus;
 import com.abhishekjain.filedownloader.model.FileDownloadResult;
+import com.abhishekjain.filedownloader.progress.ProgressRegistry;
+import com.abhishekjain.filedownloader.retry.RetryScheduler;
+import com.abhishekjain.filedownloader.throttle.BandwidthThrottle;
 import com.abhishekjain.filedownloader.utils.FileDownloaderUtils;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -14,17 +31,30 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -40,19 +70,40 @@ public class ParallelFileDownloadServiceImplTest {
     @Mock
     private FileDownloaderUtils fileDownloaderUtils;
 
+    @Mock
+    private DownloadJournalRegistry downloadJournalRegistry;
+
+    @Spy
+    private DownloadMetrics downloadMetrics;
+
+    @Spy
+    private AdaptiveConcurrencyController adaptiveConcurrency;
+
     private FileDownloaderUtils downloaderUtils = new FileDownloaderUtils();
 
+    private ThreadPoolExecutor executor;
+
     @Before
     public void before() throws IllegalAccessException {
 
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(10,
+        executor = new ThreadPoolExecutor(10,
                                                              10, 1000, TimeUnit
                                                                      .MILLISECONDS, new
                                                                      LinkedBlockingQueue<>(100),
                                                              new ThreadPoolExecutor
                                                                      .CallerRunsPolicy());
-        FieldUtils.writeField(downloadService, "threadExecutor", executor, true);
+        FieldUtils.writeField(downloadService, "threadExecutor", new DownloadExecutor(executor, 10), true);
         FieldUtils.writeField(downloadService, "poolSize", 5, true);
+        FieldUtils.writeField(downloadService, "maxPending", 2, true);
+
+        when(downloadJournalRegistry.open(anyString())).thenReturn(DownloadJournal.disabled());
+        // Downloads run on the given executor through the blocking method, as the default implementation does
+        when(downloadManager.downloadFromSourceAsync(anyString(), anyString(), any(Executor.class))).thenAnswer(
+                invocation -> {
+                    final Object[] arguments = invocation.getArguments();
+                    return CompletableFuture.supplyAsync(() -> downloadManager.downloadFromSource(
+                            (String) arguments[0], (String) arguments[1]), (Executor) arguments[2]);
+                });
     }
 
     @Test
@@ -95,12 +146,151 @@ public class ParallelFileDownloadServiceImplTest {
 
     }
 
+    @Test
+    public void downloadFilesFromSources_equivalent_urls_downloaded_once_test() {
+
+        when(downloadManager.downloadFromSource(anyString(), anyString()))
+                .thenReturn(new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED)
+                                                    .setMessage
+                                                            ("Done"));
+
+        when(fileDownloaderUtils.isValidUrl(anyString())).thenReturn(true);
+
+        final DownloadBatch batch = downloadService.downloadFilesFromSources(Arrays.asList(
+                "http://Localhost:80/a/./sample.pdf",
+                "http://localhost/a/sample.pdf",
+                "http://localhost/a/other.pdf"), "download");
+
+        Assert.assertEquals(3, batch.getCompletion().join().size());
+        Assert.assertSame(batch.getResults().get("http://Localhost:80/a/./sample.pdf"),
+                          batch.getResults().get("http://localhost/a/sample.pdf"));
+        verify(downloadManager, times(1)).downloadFromSource("http://localhost/a/sample.pdf", "download");
+        verify(downloadManager, times(1)).downloadFromSource("http://localhost/a/other.pdf", "download");
+        verify(downloadManager, times(2)).downloadFromSourceAsync(anyString(), anyString(), any(Executor.class));
+        verifyNoMoreInteractions(downloadManager);
+
+    }
+
+    @Test
+    public void downloadFilesFromSources_results_test() {
+
+        when(downloadManager.downloadFromSource(anyString(), anyString()))
+                .thenReturn(new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED));
+        when(fileDownloaderUtils.isValidUrl("http://localhost/a/sample.pdf")).thenReturn(true);
+        when(fileDownloaderUtils.downloadedLength("http://localhost/a/sample.pdf", "download")).thenReturn(42L);
+
+        final List<FileDownloadResult> results = downloadService.downloadFilesFromSources(Arrays.asList(
+                "http://localhost/a/sample.pdf", "invalid"), "download").getCompletion().join();
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(DownloadStatus.COMPLETED, results.get(0).getDownloadStatusStatus());
+        Assert.assertEquals("http://localhost/a/sample.pdf", results.get(0).getSource());
+        Assert.assertEquals(42L, results.get(0).getBytes());
+        Assert.assertEquals(DownloadStatus.ERROR, results.get(1).getDownloadStatusStatus());
+        Assert.assertEquals("invalid", results.get(1).getSource());
+        Assert.assertFalse(executor.isShutdown());
+
+        downloadService.shutdown();
+
+        Assert.assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    public void downloadFilesFromSources_journals_checksum_test() {
+
+        final DownloadJournal journal = spy(DownloadJournal.disabled());
+        when(downloadJournalRegistry.open("download")).thenReturn(journal);
+        when(downloadManager.downloadFromSource(anyString(), anyString()))
+                .thenReturn(new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED)
+                                                    .setChecksum(new Checksum("sha256", "ABC123")));
+        when(fileDownloaderUtils.isValidUrl("http://localhost/a/sample.pdf")).thenReturn(true);
+        when(fileDownloaderUtils.downloadedLength("http://localhost/a/sample.pdf", "download")).thenReturn(42L);
+
+        downloadService.downloadFilesFromSources(Collections.singletonList("http://localhost/a/sample.pdf"),
+                                                 "download").getCompletion().join();
+
+        verify(journal).load(Collections.singleton("http://localhost/a/sample.pdf"));
+        verify(journal).completed("http://localhost/a/sample.pdf", 42L, "sha256=abc123");
+    }
+
+    @Test
+    public void downloadFilesFromSources_checksum_mismatch_test() throws Exception {
+
+        final RetryScheduler retryScheduler = new RetryScheduler();
+        FieldUtils.writeField(retryScheduler, "maxAttempts", 1, true);
+        retryScheduler.init();
+        final ChunkedTransfer chunkedTransfer = new ChunkedTransfer();
+        FieldUtils.writeField(chunkedTransfer, "bufferSize", 4096, true);
+        FieldUtils.writeField(chunkedTransfer, "maxBuffers", 1, true);
+        chunkedTransfer.init();
+
+        final RetryableDownloadManagerImpl manager = new RetryableDownloadManagerImpl();
+        FieldUtils.writeField(manager, "fileDownloaderUtils", downloaderUtils, true);
+        FieldUtils.writeField(manager, "segmentedDownloader", mock(SegmentedDownloader.class), true);
+        FieldUtils.writeField(manager, "conditionalDownloader", mock(ConditionalDownloader.class), true);
+        FieldUtils.writeField(manager, "bandwidthThrottle", new BandwidthThrottle(), true);
+        FieldUtils.writeField(manager, "checksumVerifier", new ChecksumVerifier(), true);
+        FieldUtils.writeField(manager, "downloadMetrics", downloadMetrics, true);
+        FieldUtils.writeField(manager, "progressRegistry", new ProgressRegistry(), true);
+        FieldUtils.writeField(manager, "retryScheduler", retryScheduler, true);
+        FieldUtils.writeField(manager, "chunkedTransfer", chunkedTransfer, true);
+        FieldUtils.writeField(downloadService, "downloadManager", manager, true);
+        when(fileDownloaderUtils.isValidUrl(anyString())).thenReturn(true);
+
+        try (LocalHttpServer server = new LocalHttpServer().serve("/file.bin", new byte[]{1, 2, 3})) {
+            final String source = server.url("/file.bin") + "#sha256=" + DigestUtils.sha256Hex(new byte[]{1, 2, 4});
+
+            final List<FileDownloadResult> results = downloadService.downloadFilesFromSources(
+                    Collections.singletonList(source), "download").getCompletion().join();
+
+            Assert.assertEquals(DownloadStatus.ERROR, results.get(0).getDownloadStatusStatus());
+            Assert.assertFalse(new File(downloaderUtils.uniqueFileSaveLocation(new URL(source), "download"))
+                                       .exists());
+        } finally {
+            retryScheduler.close();
+        }
+    }
+
+    @Test
+    public void streamFilesFromSources_test() {
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        when(downloadManager.downloadFromSource(anyString(), anyString())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return new FileDownloadResult().setDownloadStatusStatus(DownloadStatus.COMPLETED);
+        });
+        when(fileDownloaderUtils.isValidUrl(anyString())).thenReturn(true);
+        when(fileDownloaderUtils.isValidUrl("invalid")).thenReturn(false);
+
+        final List<String> sources = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sources.add("http://localhost/a/file-" + i + ".bin");
+        }
+        sources.add("invalid");
+        sources.add(" ");
+        final List<FileDownloadResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        final Map<DownloadStatus, Long> counts = downloadService.streamFilesFromSources(
+                sources.iterator(), "download", results::add).join();
+
+        Assert.assertEquals(Long.valueOf(10), counts.get(DownloadStatus.COMPLETED));
+        Assert.assertEquals(Long.valueOf(1), counts.get(DownloadStatus.ERROR));
+        Assert.assertEquals(11, results.size());
+        // Only #maxPending downloads are handed to the executor at once
+        Assert.assertTrue(maxRunning.get() <= 2);
+        verify(downloadManager, times(10)).downloadFromSource(anyString(), anyString());
+    }
+
     @Test
     public void initMethod_test() {
 
         downloadService.init();
 
         Assert.assertNotNull(downloadService);
+        Assert.assertEquals(Long.valueOf(0), downloadMetrics.getGauges().get("download_executor_queued"));
 
     }
 
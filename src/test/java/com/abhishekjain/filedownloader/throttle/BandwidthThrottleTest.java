@@ -0,0 +1,126 @@
+package com.abhishekjain.filedownloader.throttle;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class BandwidthThrottleTest {
+
+    @Test
+    public void take_within_burst_does_not_wait_test() {
+
+        final TokenBucket bucket = new TokenBucket(1000);
+
+        Assert.assertEquals(0, bucket.take(50));
+        Assert.assertEquals(0, bucket.take(50));
+    }
+
+    @Test
+    public void take_beyond_burst_waits_for_budget_test() {
+
+        final TokenBucket bucket = new TokenBucket(1000);
+
+        final long wait = bucket.take(1100);
+
+        Assert.assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900));
+        Assert.assertTrue(wait <= TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(bucket.take(1) > wait);
+    }
+
+    @Test
+    public void throttle_disabled_returns_channel_test() throws Exception {
+
+        final BandwidthThrottle throttle = throttle(0, 0);
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[10]));
+
+        Assert.assertFalse(throttle.isEnabled());
+        Assert.assertSame(channel, throttle.throttle(new URL("http://localhost/file"), channel));
+    }
+
+    @Test
+    public void throttle_global_limits_read_rate_test() throws Exception {
+
+        final BandwidthThrottle throttle = throttle(256 * 1024, 0);
+        final ReadableByteChannel channel = throttle.throttle(
+                new URL("http://localhost/file"), Channels.newChannel(new ByteArrayInputStream(new byte[64 * 1024])));
+
+        final long start = System.nanoTime();
+        final long read = readFully(channel);
+
+        Assert.assertEquals(64 * 1024, read);
+        // 250 ms worth of budget, 100 ms of which is burst
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(140));
+    }
+
+    @Test
+    public void throttle_host_budget_is_per_host_test() throws Exception {
+
+        final BandwidthThrottle throttle = throttle(0, 200 * 1024);
+        final byte[] content = new byte[ThrottledChannel.CHUNK_SIZE];
+
+        final long start = System.nanoTime();
+        readFully(throttle.throttle(new URL("http://a.example.com/file"),
+                                    Channels.newChannel(new ByteArrayInputStream(content))));
+        readFully(throttle.throttle(new URL("http://b.example.com/file"),
+                                    Channels.newChannel(new ByteArrayInputStream(content))));
+
+        // Each host reads within its own burst, a shared bucket would have to wait 60 ms
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(throttle.throttle(new URL("http://A.example.com/file"),
+                                            Channels.newChannel(new ByteArrayInputStream(content)))
+                                  instanceof ThrottledChannel);
+    }
+
+    @Test
+    public void throttle_evicts_idle_host_buckets_test() throws Exception {
+
+        final BandwidthThrottle throttle = throttle(0, 1000);
+        final Map<?, ?> hostBuckets = (Map<?, ?>) FieldUtils.readField(throttle, "hostBuckets", true);
+
+        final ReadableByteChannel open = throttle.throttle(new URL("http://a.example.com/file"),
+                                                           Channels.newChannel(new ByteArrayInputStream(new byte[0])));
+        final ReadableByteChannel indebted = throttle.throttle(
+                new URL("http://b.example.com/file"), Channels.newChannel(new ByteArrayInputStream(new byte[10])));
+        readFully(indebted);
+        indebted.close();
+        Assert.assertEquals("Bucket of b still holds the bytes read", 2, hostBuckets.size());
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        throttle.throttle(new URL("http://c.example.com/file"),
+                          Channels.newChannel(new ByteArrayInputStream(new byte[0]))).close();
+        Assert.assertEquals("Only the bucket of the open channel of a is kept", 1, hostBuckets.size());
+
+        open.close();
+        Assert.assertTrue(hostBuckets.isEmpty());
+    }
+
+    private static BandwidthThrottle throttle(long global, long host) throws IllegalAccessException {
+
+        final BandwidthThrottle throttle = new BandwidthThrottle();
+        FieldUtils.writeField(throttle, "globalBytesPerSecond", global, true);
+        FieldUtils.writeField(throttle, "hostBytesPerSecond", host, true);
+        throttle.init();
+        return throttle;
+    }
+
+    private static long readFully(ReadableByteChannel channel) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        long total = 0;
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            total += read;
+            buffer.clear();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,201 @@
+package com.abhishekjain.filedownloader.transform;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class TransformPipelineTest {
+
+    private TransformPipeline transformPipeline;
+
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IllegalAccessException {
+
+        transformPipeline = new TransformPipeline();
+        FieldUtils.writeField(transformPipeline, "transformStages",
+                              Arrays.asList(new GzipStage(), new DeflateStage(), new Base64Stage(), new Rot13Stage()),
+                              true);
+        // Small buffers, so that the stages go through many partial reads and writes
+        FieldUtils.writeField(transformPipeline, "bufferSize", 512, true);
+        FieldUtils.writeField(transformPipeline, "maxPooledBuffers", 4, true);
+        transformPipeline.init();
+
+        content = new byte[100_000];
+        final Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(8));
+        }
+    }
+
+    @Test
+    public void gzip_test() throws IOException {
+
+        Assert.assertArrayEquals(content, transform(gzip(content), "gzip"));
+    }
+
+    @Test
+    public void gzip_multiple_members_test() throws IOException {
+
+        final byte[] first = Arrays.copyOf(content, 1000);
+        final byte[] second = Arrays.copyOfRange(content, 1000, content.length);
+
+        final ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(first));
+        members.write(gzip(second));
+
+        Assert.assertArrayEquals(content, transform(members.toByteArray(), "gzip"));
+    }
+
+    @Test
+    public void gzip_long_header_fields_test() throws IOException {
+
+        final byte[] gzipped = gzip(content);
+        final byte[] name = new byte[2000];
+        Arrays.fill(name, (byte) 'n');
+        final ByteArrayOutputStream member = new ByteArrayOutputStream();
+        member.write(gzipped, 0, 10);
+        // FEXTRA of 1500 bytes, then a file name and a comment, both longer than the 512 bytes buffers
+        member.write(new byte[]{(byte) 1500, (byte) (1500 >> 8)});
+        member.write(new byte[1500]);
+        member.write(name);
+        member.write(0);
+        member.write(name);
+        member.write(0);
+        member.write(new byte[2]);
+        member.write(gzipped, 10, gzipped.length - 10);
+        final byte[] withFields = member.toByteArray();
+        // FHCRC | FEXTRA | FNAME | FCOMMENT
+        withFields[3] = 2 | 4 | 8 | 16;
+
+        Assert.assertArrayEquals(content, transform(withFields, "gzip"));
+    }
+
+    @Test(expected = ZipException.class)
+    public void gzip_corrupt_crc_test() throws IOException {
+
+        final byte[] gzipped = gzip(content);
+        gzipped[gzipped.length - 8] ^= 1;
+
+        transform(gzipped, "gzip");
+    }
+
+    @Test(expected = IOException.class)
+    public void gzip_truncated_test() throws IOException {
+
+        final byte[] gzipped = gzip(content);
+
+        transform(Arrays.copyOf(gzipped, gzipped.length / 2), "gzip");
+    }
+
+    @Test
+    public void deflate_zlib_and_raw_test() throws IOException {
+
+        Assert.assertArrayEquals(content, transform(deflate(content, false), "deflate"));
+        Assert.assertArrayEquals(content, transform(deflate(content, true), "deflate"));
+    }
+
+    @Test
+    public void base64_test() throws IOException {
+
+        Assert.assertArrayEquals(content, transform(Base64.getMimeEncoder().encode(content), "base64"));
+        Assert.assertArrayEquals(content, transform(Base64.getUrlEncoder().withoutPadding().encode(content),
+                                                    "base64"));
+
+        final byte[] odd = Arrays.copyOf(content, 1001);
+        Assert.assertArrayEquals(odd, transform(Base64.getEncoder().withoutPadding().encode(odd), "BASE64"));
+    }
+
+    @Test
+    public void rot13_test() throws IOException {
+
+        Assert.assertArrayEquals("Hello World".getBytes(StandardCharsets.US_ASCII),
+                                 transform("Uryyb Jbeyq".getBytes(StandardCharsets.US_ASCII), "rot13"));
+    }
+
+    @Test
+    public void chained_stages_test() throws IOException {
+
+        Assert.assertArrayEquals(content, transform(Base64.getEncoder().encode(gzip(content)), "base64", "gzip"));
+    }
+
+    @Test
+    public void no_stages_test() throws IOException {
+
+        Assert.assertArrayEquals(content, transform(content));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown_stage_test() {
+
+        transformPipeline.validate(Collections.singletonList("bzip2"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicate_stage_name_test() throws IllegalAccessException {
+
+        final TransformPipeline pipeline = new TransformPipeline();
+        FieldUtils.writeField(pipeline, "transformStages", Arrays.asList(new GzipStage(), new GzipStage()), true);
+        pipeline.init();
+    }
+
+    @Test
+    public void buffers_returned_to_pool_test() throws IOException {
+
+        transform(Base64.getEncoder().encode(gzip(content)), "base64", "gzip");
+        final int pooled = transformPipeline.getBufferPool().getPooledCount();
+
+        transform(Base64.getEncoder().encode(gzip(content)), "base64", "gzip");
+
+        Assert.assertEquals(4, pooled);
+        Assert.assertEquals(pooled, transformPipeline.getBufferPool().getPooledCount());
+    }
+
+    private byte[] transform(byte[] input, String... stages) throws IOException {
+
+        final List<String> names = Arrays.asList(stages);
+        try (ReadableByteChannel channel = transformPipeline.apply(names, Channels.newChannel(
+                new ByteArrayInputStream(input))); InputStream transformed = Channels.newInputStream(channel)) {
+            return IOUtils.toByteArray(transformed);
+        }
+    }
+
+    private static byte[] gzip(byte[] input) throws IOException {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(input);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] input, boolean raw) throws IOException {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(output, new Deflater(Deflater.DEFAULT_COMPRESSION,
+                                                                                           raw))) {
+            deflate.write(input);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,49 @@
+package com.abhishekjain.filedownloader.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+
+public class DownloadOptionsTest {
+
+    @Test
+    public void no_fragment_test() throws MalformedURLException {
+
+        final DownloadOptions options = DownloadOptions.of(new URL("http://localhost:8000/logs.txt.gz"));
+
+        Assert.assertFalse(options.hasTransforms());
+        Assert.assertTrue(options.getTransforms().isEmpty());
+    }
+
+    @Test
+    public void transforms_test() throws MalformedURLException {
+
+        final DownloadOptions options = DownloadOptions.of(
+                new URL("http://localhost:8000/logs.b64#Transform=base64,%20gzip&other=a%2Cb"));
+
+        Assert.assertTrue(options.hasTransforms());
+        Assert.assertEquals(Arrays.asList("base64", "gzip"), options.getTransforms());
+        Assert.assertEquals("a,b", options.get("other"));
+    }
+
+    @Test
+    public void normalize_keeps_transforms_and_checksums_only_test() {
+
+        Assert.assertEquals("http://localhost/logs.gz#transform=base64,gzip",
+                            DownloadOptions.normalize("http://Localhost:80/logs.gz#Transform=BASE64,%20gzip&other=a"));
+        Assert.assertEquals("http://localhost/a", DownloadOptions.normalize("http://localhost/a#section-2"));
+        Assert.assertEquals("http://localhost/a.jar#transform=gzip&sha256=ab12&crc32c=0f",
+                            DownloadOptions.normalize("http://localhost/a.jar#CRC32C=0F&SHA256=%20AB12&transform=gzip"));
+        Assert.assertEquals("invalid", DownloadOptions.normalize("invalid"));
+    }
+
+    @Test
+    public void empty_transform_test() throws MalformedURLException {
+
+        Assert.assertFalse(DownloadOptions.of(new URL("http://localhost:8000/a#transform=")).hasTransforms());
+        Assert.assertFalse(DownloadOptions.of(new URL("http://localhost:8000/a#section-2")).hasTransforms());
+    }
+}
@@ -100,6 +100,20 @@ public class FileDownloaderUtilsTest {
 
     }
 
+    @Test
+    public void uniqueFileSaveLocation_equivalent_urls_test() throws MalformedURLException {
+
+        String saveLocation = downloaderUtils.uniqueFileSaveLocation(new URL("http://www.africau" +
+                                                                                     ".edu/images/default/sample.pdf")
+                , "download");
+
+        Assert.assertEquals(saveLocation, downloaderUtils.uniqueFileSaveLocation(
+                new URL("HTTP://WWW.Africau.edu:80/images/./other/../default/%73ample.pdf"), "download"));
+        Assert.assertEquals(downloaderUtils.uniqueFileSaveLocation(new URL("http://www.africau.edu"), "download"),
+                            downloaderUtils.uniqueFileSaveLocation(new URL("http://www.africau.edu/"), "download"));
+
+    }
+
     @Test
     public void openStream_valid_test() throws IOException {
 
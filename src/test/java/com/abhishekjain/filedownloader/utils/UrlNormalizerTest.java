@@ -0,0 +1,54 @@
+package com.abhishekjain.filedownloader.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UrlNormalizerTest {
+
+    @Test
+    public void normalize_case_and_default_port_test() {
+
+        Assert.assertEquals("http://example.com/a", UrlNormalizer.normalize("HTTP://Example.COM:80/a"));
+        Assert.assertEquals("https://example.com/a", UrlNormalizer.normalize("https://example.com:443/a"));
+        Assert.assertEquals("http://example.com:8080/a", UrlNormalizer.normalize("http://example.com:8080/a"));
+    }
+
+    @Test
+    public void normalize_empty_path_test() {
+
+        Assert.assertEquals("http://example.com/", UrlNormalizer.normalize("http://example.com"));
+        Assert.assertEquals("http://example.com/?q=1", UrlNormalizer.normalize("http://example.com?q=1"));
+    }
+
+    @Test
+    public void normalize_dot_segments_test() {
+
+        Assert.assertEquals("http://example.com/a/c", UrlNormalizer.normalize("http://example.com/a/./b/../c"));
+        Assert.assertEquals("http://example.com/a/", UrlNormalizer.normalize("http://example.com/a/b/.."));
+        Assert.assertEquals("http://example.com/", UrlNormalizer.normalize("http://example.com/../.."));
+    }
+
+    @Test
+    public void normalize_percent_encoding_test() {
+
+        Assert.assertEquals("http://example.com/~user/%3F", UrlNormalizer.normalize("http://example.com/%7euser/%3f"));
+        Assert.assertEquals("http://example.com/a%20b?q=%C3%A9", UrlNormalizer.normalize("http://example.com/a b?q=é"));
+        Assert.assertEquals("http://example.com/100%25", UrlNormalizer.normalize("http://example.com/100%"));
+    }
+
+    @Test
+    public void normalize_keeps_query_removes_fragment_test() {
+
+        Assert.assertEquals("http://user@example.com/a?b=c&d",
+                            UrlNormalizer.normalize("http://user@Example.com/a?b=c&d#frag"));
+        Assert.assertEquals("http://example.com/a", UrlNormalizer.normalize("http://example.com/a#"));
+        Assert.assertEquals(UrlNormalizer.normalize("http://example.com/a#part-1"),
+                            UrlNormalizer.normalize("http://example.com/a#part-2"));
+    }
+
+    @Test
+    public void normalize_unparseable_source_test() {
+
+        Assert.assertEquals("www.example.com/a", UrlNormalizer.normalize("www.example.com/a"));
+    }
+}
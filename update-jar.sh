@@ -1,3 +1,21 @@
 #!/bin/bash
 mvn clean package -DskipTests
 mkdir -p bin && cp target/multi-filedownloader-1.0-SNAPSHOT.jar bin/multi-filedownloader.jar
+
+# Shaded jar, before its Spring Boot repackaging: the classes of nested jars can't be shared by AppCDS
+cp target/multi-filedownloader-1.0-SNAPSHOT.jar.original bin/multi-filedownloader-fast.jar
+
+# AppCDS archive of the classes loaded by a fast start download, used by multifiledownload.sh (JDK 10 and later)
+rm -f bin/multi-filedownloader.jsa bin/multi-filedownloader.classlist
+if java -version 2>&1 | grep -q 'version "1\.'; then
+    echo "AppCDS archive not created: it needs JDK 10 or later"
+    exit 0
+fi
+TRAINING=$(mktemp -d)
+echo "AppCDS training download" > "$TRAINING/source.txt"
+(cd "$TRAINING" && java -Xshare:off -XX:DumpLoadedClassList="$OLDPWD/bin/multi-filedownloader.classlist" \
+    -jar "$OLDPWD/bin/multi-filedownloader-fast.jar" --fast --urls="file://$TRAINING/source.txt" \
+    --directory="$TRAINING/download" --logging.level.root=WARN)
+java -Xshare:dump -XX:SharedClassListFile=bin/multi-filedownloader.classlist \
+    -XX:SharedArchiveFile=bin/multi-filedownloader.jsa -cp bin/multi-filedownloader-fast.jar
+rm -rf "$TRAINING"